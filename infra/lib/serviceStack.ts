@@ -34,6 +34,21 @@ export class ServiceStack extends cdk.Stack {
       removalPolicy: cdk.RemovalPolicy.RETAIN,
     });
 
+    // Resolves GET/PATCH /v1/ghosts/{ghostId} with one key read. Ghost items
+    // already carry ghostId, so existing ghosts are backfilled on creation.
+    this.appTable.addGlobalSecondaryIndex({
+      indexName: 'GhostIdIndex',
+      partitionKey: {
+        name: 'ghostId',
+        type: dynamodb.AttributeType.STRING,
+      },
+      sortKey: {
+        name: 'pk',
+        type: dynamodb.AttributeType.STRING,
+      },
+      projectionType: dynamodb.ProjectionType.ALL,
+    });
+
     this.cacheTable = new dynamodb.Table(this, 'CacheTable', {
       tableName: 'phantom-cache',
       partitionKey: {
@@ -109,6 +124,13 @@ export class ServiceStack extends cdk.Stack {
       description: 'Cognito User Pool Client ID',
     });
 
+    // Every execution environment must sign page cursors with the same key,
+    // or a nextToken only verifies on the one that issued it.
+    const cursorSigningKey = process.env.CURSOR_SIGNING_KEY;
+    if (!cursorSigningKey) {
+      throw new Error('CURSOR_SIGNING_KEY must be set to deploy the API function');
+    }
+
     this.apiFunction = new lambda.Function(this, 'ApiFunction', {
       functionName: 'phantom-lambda',
       runtime: lambda.Runtime.JAVA_17,
@@ -117,12 +139,14 @@ export class ServiceStack extends cdk.Stack {
       code: lambda.Code.fromAsset(path.join(__dirname, '../../service/build/distributions/phantom-lambda.zip')),
       memorySize: 512,
       timeout: cdk.Duration.seconds(30),
+      snapStart: lambda.SnapStartConf.ON_PUBLISHED_VERSIONS,
       environment: {
         APP_TABLE_NAME: this.appTable.tableName,
         CACHE_TABLE_NAME: this.cacheTable.tableName,
         ALPACA_API_KEY_ID: process.env.ALPACA_API_KEY_ID || '',
         ALPACA_API_SECRET_KEY: process.env.ALPACA_API_SECRET_KEY || '',
         DEEPSEEK_API_KEY: process.env.DEEPSEEK_API_KEY || '',
+        CURSOR_SIGNING_KEY: cursorSigningKey,
       },
       logRetention: logs.RetentionDays.TWO_WEEKS,
     });
@@ -135,7 +159,13 @@ export class ServiceStack extends cdk.Stack {
       description: 'Lambda function ARN',
     });
 
-    const integration = new HttpLambdaIntegration('LambdaIntegration', this.apiFunction);
+    // SnapStart only applies to published versions, so API Gateway targets an alias.
+    const liveAlias = new lambda.Alias(this, 'ApiFunctionLiveAlias', {
+      aliasName: 'live',
+      version: this.apiFunction.currentVersion,
+    });
+
+    const integration = new HttpLambdaIntegration('LambdaIntegration', liveAlias);
 
     const authorizer = new HttpJwtAuthorizer('JwtAuthorizer', 
       `https://cognito-idp.${this.region}.amazonaws.com/${this.userPool.userPoolId}`,
@@ -182,6 +212,13 @@ export class ServiceStack extends cdk.Stack {
       authorizer: authorizer,
     });
 
+    this.httpApi.addRoutes({
+      path: '/v1/bootstrap',
+      methods: [apigatewayv2.HttpMethod.GET],
+      integration: integration,
+      authorizer: authorizer,
+    });
+
     this.httpApi.addRoutes({
       path: '/v1/dashboard/summary',
       methods: [apigatewayv2.HttpMethod.GET],
@@ -217,6 +254,13 @@ export class ServiceStack extends cdk.Stack {
       authorizer: authorizer,
     });
 
+    this.httpApi.addRoutes({
+      path: '/v1/market/quotes',
+      methods: [apigatewayv2.HttpMethod.GET],
+      integration: integration,
+      authorizer: authorizer,
+    });
+
     this.httpApi.addRoutes({
       path: '/v1/market/candles',
       methods: [apigatewayv2.HttpMethod.GET],
@@ -231,6 +275,13 @@ export class ServiceStack extends cdk.Stack {
       authorizer: authorizer,
     });
 
+    this.httpApi.addRoutes({
+      path: '/v1/batch',
+      methods: [apigatewayv2.HttpMethod.POST],
+      integration: integration,
+      authorizer: authorizer,
+    });
+
     new cdk.CfnOutput(this, 'ApiUrl', {
       value: this.httpApi.apiEndpoint,
       description: 'API Gateway endpoint URL',
@@ -47,6 +47,12 @@ struct MarketQuoteResponse: Codable {
     let price: Double
     let providerTs: String
     let fetchedAt: String
+    let stale: Bool?
+}
+
+struct MarketQuotesResponse: Codable {
+    let quotes: [MarketQuoteResponse]
+    let missing: [String]
 }
 
 struct TickerValidationResponse: Codable {
@@ -68,5 +68,5 @@ struct UpdateGhostRequest: Codable {
 
 struct GhostListResponse: Codable {
     let ghosts: [Ghost]
-    let lastEvaluatedKey: String?
+    let nextToken: String?
 }
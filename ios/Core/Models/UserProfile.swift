@@ -15,6 +15,13 @@ struct UserProfile: Codable {
     let settings: [String: AnyCodable]?
 }
 
+/// Profile, dashboard and newest ghosts fetched together at launch.
+struct BootstrapResponse: Codable {
+    let user: UserProfile
+    let dashboard: DashboardSummary
+    let ghosts: GhostListResponse
+}
+
 struct UpdateUserRequest: Codable {
     let timezone: String?
     let settings: [String: AnyCodable]?
@@ -158,6 +158,10 @@ class APIClient {
         return try await self.request(endpoint: "/v1/me")
     }
     
+    func bootstrap(ghostLimit: Int = 20) async throws -> BootstrapResponse {
+        return try await self.request(endpoint: "/v1/bootstrap?limit=\(ghostLimit)")
+    }
+    
     func updateUserProfile(_ request: UpdateUserRequest) async throws -> UserProfile {
         return try await self.request(
             endpoint: "/v1/me",
@@ -189,6 +193,10 @@ class APIClient {
     func getMarketQuote(symbol: String) async throws -> MarketQuoteResponse {
         return try await self.request(endpoint: "/v1/market/quote?symbol=\(symbol)")
     }
+
+    func getMarketQuotes(symbols: [String]) async throws -> MarketQuotesResponse {
+        return try await self.request(endpoint: "/v1/market/quotes?symbols=\(symbols.joined(separator: ","))")
+    }
     
     // MARK: - Investor DNA
 
@@ -0,0 +1,110 @@
+package com.phantom.handler;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import com.phantom.priming.StubDynamoDbAsyncClient;
+import com.phantom.priming.StubHttpClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end cost of {@link ApiHandler#handleRequest} per route: routing,
+ * request parsing, controller and service logic, repository mapping and
+ * response serialization. DynamoDB, Alpaca and DeepSeek are replaced by the
+ * in-memory priming stubs, so the numbers exclude network time.
+ *
+ * Run with {@code ./gradlew jmh}; the gc profiler adds allocation rate per
+ * operation. A single route can be selected with
+ * {@code -Pjmh.route=GetUser}.
+ *
+ * JMH needs the route list as constants, so it is spelled out below; every
+ * trial checks it against {@link SampleRequests} and fails if a route with a
+ * sample request is missing from it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApiHandlerBenchmark {
+
+    private static final String BENCHMARK_USER_ID = "benchmark-user";
+
+    @Param({
+            "GetHealth",
+            "GetUser",
+            "UpdateUser",
+            "DeleteUser",
+            "ListGhosts",
+            "CreateGhost",
+            "GetGhost",
+            "UpdateGhost",
+            "GetDashboardSummary",
+            "GetBootstrap",
+            "GetAchievements",
+            "GetStreaks",
+            "ValidateTicker",
+            "GetMarketQuote",
+            "GetMarketQuotes",
+            "GetMarketCandles",
+            "GetInvestorDNA",
+            "ExecuteBatch"
+    })
+    public String route;
+
+    private ApiHandler handler;
+    private APIGatewayV2HTTPEvent event;
+
+    @Setup(Level.Trial)
+    public void setUp() throws NoSuchFieldException {
+        Map<String, APIGatewayV2HTTPEvent> samples = SampleRequests.byOperation(BENCHMARK_USER_ID);
+        Set<String> missing = new TreeSet<>(samples.keySet());
+        missing.removeAll(Arrays.asList(ApiHandlerBenchmark.class.getField("route").getAnnotation(Param.class).value()));
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Routes missing from the benchmark's @Param list: " + missing);
+        }
+
+        handler = new ApiHandler();
+        handler.useComponents(new AppComponents(new StubDynamoDbAsyncClient(), new StubHttpClient(),
+                new StubHttpClient()));
+
+        event = samples.get(route);
+        if (event == null) {
+            throw new IllegalArgumentException("No sample request for operation " + route);
+        }
+
+        APIGatewayV2HTTPResponse response = handler.handleRequest(event, null);
+        if (response.getStatusCode() >= 400) {
+            throw new IllegalStateException(route + " returned " + response.getStatusCode() + ": "
+                    + response.getBody());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        handler.close();
+    }
+
+    @Benchmark
+    public APIGatewayV2HTTPResponse handleRequest() {
+        return handler.handleRequest(event, null);
+    }
+}
@@ -0,0 +1,286 @@
+package com.phantom.controller;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.phantom.metrics.RequestMetrics;
+import com.phantom.util.Json;
+import com.phantom.util.RequestBuilder;
+import com.phantom.util.ResponseBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Executes several API calls in one invocation. Sub-requests are dispatched
+ * through the same route table as top-level requests, on behalf of the
+ * caller's user.
+ *
+ * Consecutive GETs run concurrently. Any other method waits for the requests
+ * before it to finish and runs on its own, so a completed write is observed
+ * by the requests that follow it in the batch. A write that times out may
+ * still land later, so the items after it are not run and get a 424 instead.
+ *
+ * Every item has its own timeout and result: a failing or slow item yields an
+ * error status in its slot without failing the rest of the batch. The batch
+ * as a whole has one deadline, and items it leaves no time for get a 504
+ * without being run.
+ */
+@Slf4j
+public class BatchController {
+
+    public static final String BATCH_PATH = "/v1/batch";
+
+    private static final ObjectMapper objectMapper = Json.mapper();
+    private static final int MAX_ITEMS = 10;
+    private static final long DEFAULT_ITEM_TIMEOUT_MS = 10_000;
+    // Leaves headroom under API Gateway's 29s integration timeout to write the response.
+    private static final long BATCH_TIMEOUT_MS = 25_000;
+    private static final long MAX_ITEM_TIMEOUT_MS = BATCH_TIMEOUT_MS;
+
+    private final Function<APIGatewayV2HTTPEvent, APIGatewayV2HTTPResponse> dispatcher;
+    private final ExecutorService executor;
+
+    public BatchController(Function<APIGatewayV2HTTPEvent, APIGatewayV2HTTPResponse> dispatcher,
+                           ExecutorService executor) {
+        this.dispatcher = dispatcher;
+        this.executor = executor;
+    }
+
+    public APIGatewayV2HTTPResponse executeBatch(APIGatewayV2HTTPEvent event, String userId) {
+        long batchDeadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(BATCH_TIMEOUT_MS);
+        List<BatchItem> items;
+        long itemTimeoutMs;
+        try {
+            JsonNode json = objectMapper.readTree(event.getBody());
+            if (json == null || !json.path("requests").isArray()) {
+                return ResponseBuilder.badRequest("requests must be an array");
+            }
+            JsonNode requests = json.get("requests");
+            if (requests.size() == 0 || requests.size() > MAX_ITEMS) {
+                return ResponseBuilder.badRequest("requests must contain between 1 and " + MAX_ITEMS + " items");
+            }
+
+            itemTimeoutMs = json.hasNonNull("timeoutMs")
+                    ? Math.min(Math.max(json.get("timeoutMs").asLong(), 1), MAX_ITEM_TIMEOUT_MS)
+                    : DEFAULT_ITEM_TIMEOUT_MS;
+
+            items = new ArrayList<>(requests.size());
+            for (int i = 0; i < requests.size(); i++) {
+                items.add(BatchItem.parse(requests.get(i), i));
+            }
+        } catch (Exception e) {
+            log.error("Error parsing batch request", e);
+            return ResponseBuilder.badRequest("Invalid batch request");
+        }
+
+        try {
+            BatchResult[] results = execute(items, userId, itemTimeoutMs, batchDeadlineNanos);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("responses", results);
+            return ResponseBuilder.ok(response);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseBuilder.internalServerError("Batch interrupted");
+        } catch (Exception e) {
+            log.error("Error executing batch", e);
+            return ResponseBuilder.internalServerError("Failed to execute batch");
+        }
+    }
+
+    private BatchResult[] execute(List<BatchItem> items, String userId, long itemTimeoutMs,
+                                  long batchDeadlineNanos) throws InterruptedException {
+        BatchResult[] results = new BatchResult[items.size()];
+        List<Pending> concurrent = new ArrayList<>();
+        boolean writeTimedOut = false;
+
+        for (int i = 0; i < items.size(); i++) {
+            BatchItem item = items.get(i);
+            if (item.error != null) {
+                results[i] = BatchResult.error(item.id, 400, item.error);
+                continue;
+            }
+            if (writeTimedOut) {
+                results[i] = BatchResult.error(item.id, 424, "Skipped after an earlier write timed out");
+                continue;
+            }
+            if (expired(batchDeadlineNanos)) {
+                results[i] = BatchResult.error(item.id, 504, "Batch timed out before this request ran");
+                continue;
+            }
+
+            if ("GET".equals(item.method)) {
+                concurrent.add(submit(i, item, userId, itemTimeoutMs, batchDeadlineNanos));
+            } else {
+                awaitAll(concurrent, results);
+                concurrent.clear();
+                if (expired(batchDeadlineNanos)) {
+                    results[i] = BatchResult.error(item.id, 504, "Batch timed out before this request ran");
+                    continue;
+                }
+                Pending write = submit(i, item, userId, itemTimeoutMs, batchDeadlineNanos);
+                results[i] = await(write);
+                // A timed-out write is cancelled but may still land, so later items
+                // could no longer rely on its outcome.
+                writeTimedOut = write.future.isCancelled();
+            }
+        }
+        awaitAll(concurrent, results);
+        return results;
+    }
+
+    private Pending submit(int index, BatchItem item, String userId, long itemTimeoutMs, long batchDeadlineNanos) {
+        APIGatewayV2HTTPEvent subEvent = RequestBuilder.build(item.method, item.path, item.query, item.body, userId);
+        if (item.headers != null) {
+            subEvent.setHeaders(item.headers);
+        }
+        Future<APIGatewayV2HTTPResponse> future = executor.submit(
+                RequestMetrics.current().wrap(() -> dispatcher.apply(subEvent)));
+        long itemDeadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(itemTimeoutMs);
+        long deadlineNanos = itemDeadlineNanos - batchDeadlineNanos < 0 ? itemDeadlineNanos : batchDeadlineNanos;
+        return new Pending(index, item, future, deadlineNanos);
+    }
+
+    private static boolean expired(long deadlineNanos) {
+        return System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    private static void awaitAll(List<Pending> pending, BatchResult[] results) throws InterruptedException {
+        for (Pending p : pending) {
+            results[p.index] = await(p);
+        }
+    }
+
+    private static BatchResult await(Pending pending) throws InterruptedException {
+        try {
+            long remaining = Math.max(0, pending.deadlineNanos - System.nanoTime());
+            APIGatewayV2HTTPResponse response = pending.future.get(remaining, TimeUnit.NANOSECONDS);
+            return new BatchResult(pending.item.id, response.getStatusCode(), response.getBody());
+        } catch (TimeoutException e) {
+            pending.future.cancel(true);
+            log.warn("Batch item {} {} timed out", pending.item.method, pending.item.path);
+            return BatchResult.error(pending.item.id, 504, "Sub-request timed out");
+        } catch (ExecutionException e) {
+            log.error("Batch item {} {} failed", pending.item.method, pending.item.path, e.getCause());
+            return BatchResult.error(pending.item.id, 500, "Internal server error");
+        }
+    }
+
+    private static final class Pending {
+        private final int index;
+        private final BatchItem item;
+        private final Future<APIGatewayV2HTTPResponse> future;
+        private final long deadlineNanos;
+
+        private Pending(int index, BatchItem item, Future<APIGatewayV2HTTPResponse> future, long deadlineNanos) {
+            this.index = index;
+            this.item = item;
+            this.future = future;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+
+    private static final class BatchItem {
+        private String id;
+        private String method;
+        private String path;
+        private Map<String, String> query;
+        private Map<String, String> headers;
+        private String body;
+        private String error;
+
+        private static BatchItem parse(JsonNode json, int index) {
+            BatchItem item = new BatchItem();
+            item.id = json.hasNonNull("id") ? json.get("id").asText() : String.valueOf(index);
+
+            if (!json.hasNonNull("method") || !json.hasNonNull("path")) {
+                item.error = "method and path are required";
+                return item;
+            }
+            item.method = json.get("method").asText().toUpperCase(Locale.ROOT);
+            item.path = json.get("path").asText();
+            if (!item.path.startsWith("/")) {
+                item.error = "path must start with /";
+                return item;
+            }
+            if (item.path.equals(BATCH_PATH)) {
+                item.error = "Nested batches are not supported";
+                return item;
+            }
+
+            item.query = stringMap(json.get("query"));
+            item.headers = stringMap(json.get("headers"));
+            JsonNode body = json.get("body");
+            if (body != null && !body.isNull()) {
+                item.body = body.isTextual() ? body.asText() : body.toString();
+            }
+            return item;
+        }
+
+        private static Map<String, String> stringMap(JsonNode json) {
+            if (json == null || !json.isObject() || json.size() == 0) {
+                return null;
+            }
+            Map<String, String> map = new HashMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = json.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                map.put(field.getKey(), field.getValue().asText());
+            }
+            return map;
+        }
+    }
+
+    /**
+     * One slot of the batch response. The sub-response body is already JSON
+     * and is embedded as-is rather than re-parsed.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static final class BatchResult {
+        private final String id;
+        private final int status;
+        private final String body;
+
+        BatchResult(String id, int status, String body) {
+            this.id = id;
+            this.status = status;
+            this.body = body;
+        }
+
+        static BatchResult error(String id, int status, String message) {
+            try {
+                return new BatchResult(id, status, objectMapper.writeValueAsString(Map.of("error", message)));
+            } catch (Exception e) {
+                return new BatchResult(id, status, null);
+            }
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        @JsonRawValue
+        public String getBody() {
+            return body;
+        }
+    }
+}
@@ -3,13 +3,11 @@ package com.phantom.controller;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
 import com.phantom.model.entity.DashboardSummary;
+import com.phantom.model.response.DashboardSummaryResponse;
 import com.phantom.service.DashboardService;
 import com.phantom.util.ResponseBuilder;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.HashMap;
-import java.util.Map;
-
 @Slf4j
 public class DashboardController {
     
@@ -23,14 +21,7 @@ public class DashboardController {
         try {
             DashboardSummary summary = dashboardService.getDashboardSummary(userId);
             
-            Map<String, Object> response = new HashMap<>();
-            response.put("ghostCountTotal", summary.getGhostCountTotal());
-            response.put("ghostCount30d", summary.getGhostCount30d());
-            response.put("lastGhostAtEpochMs", summary.getLastGhostAtEpochMs());
-            response.put("streakDays", summary.getStreakDays());
-            response.put("topHesitationTags30d", summary.getTopHesitationTags30d());
-            
-            return ResponseBuilder.ok(response);
+            return ResponseBuilder.ok(DashboardSummaryResponse.from(summary));
         } catch (Exception e) {
             log.error("Error retrieving dashboard summary", e);
             return ResponseBuilder.internalServerError("Failed to retrieve dashboard summary");
@@ -2,25 +2,34 @@ package com.phantom.controller;
 
 import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.exc.ValueInstantiationException;
 import com.phantom.model.entity.Ghost;
+import com.phantom.model.request.CreateGhostRequest;
+import com.phantom.model.request.UpdateGhostRequest;
+import com.phantom.model.response.GhostListResponse;
+import com.phantom.model.response.GhostResponse;
+import com.phantom.repository.Page;
+import com.phantom.repository.VersionConflictException;
 import com.phantom.service.GhostService;
 import com.phantom.util.Constants;
+import com.phantom.util.Json;
 import com.phantom.util.ResponseBuilder;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 @Slf4j
 public class GhostController {
     
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final ObjectReader CREATE_READER = Json.mapper().readerFor(CreateGhostRequest.class);
+    private static final ObjectReader UPDATE_READER = Json.mapper().readerFor(UpdateGhostRequest.class);
+    private static final String IF_MATCH_HEADER = "if-match";
     private static final int DEFAULT_LIMIT = 50;
-    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final int MAX_PAGE_SIZE = 200;
     
     private final GhostService ghostService;
     
@@ -30,23 +39,33 @@ public class GhostController {
     
     public APIGatewayV2HTTPResponse listGhosts(APIGatewayV2HTTPEvent event, String userId) {
         try {
-            Integer limit = DEFAULT_LIMIT;
-            if (event.getQueryStringParameters() != null && 
-                    event.getQueryStringParameters().containsKey(Constants.REQUEST_KEY_LIMIT)) {
-                limit = Integer.parseInt(event.getQueryStringParameters().get(Constants.REQUEST_KEY_LIMIT));
+            int limit = DEFAULT_LIMIT;
+            String nextToken = null;
+            Map<String, String> queryParams = event.getQueryStringParameters();
+            if (queryParams != null) {
+                if (queryParams.containsKey(Constants.REQUEST_KEY_LIMIT)) {
+                    try {
+                        limit = Integer.parseInt(queryParams.get(Constants.REQUEST_KEY_LIMIT));
+                    } catch (NumberFormatException e) {
+                        return ResponseBuilder.badRequest("limit must be an integer");
+                    }
+                    if (limit < 1 || limit > MAX_PAGE_SIZE) {
+                        return ResponseBuilder.badRequest("limit must be between 1 and " + MAX_PAGE_SIZE);
+                    }
+                }
+                nextToken = queryParams.get(Constants.REQUEST_KEY_NEXT_TOKEN);
             }
             
-            List<Ghost> ghosts = ghostService.listGhosts(userId, limit);
+            Page<Ghost> page = ghostService.listGhostsPage(userId, limit, nextToken);
             
-            List<Map<String, Object>> ghostResponses = new ArrayList<>();
-            for (Ghost ghost : ghosts) {
-                ghostResponses.add(mapGhostToResponse(ghost));
+            List<GhostResponse> ghostResponses = new ArrayList<>(page.getItems().size());
+            for (Ghost ghost : page.getItems()) {
+                ghostResponses.add(GhostResponse.from(ghost));
             }
             
-            Map<String, Object> response = new HashMap<>();
-            response.put(Constants.RESPONSE_KEY_GHOSTS, ghostResponses);
-            
-            return ResponseBuilder.ok(response);
+            return ResponseBuilder.ok(new GhostListResponse(ghostResponses, page.getNextToken()));
+        } catch (IllegalArgumentException e) {
+            return ResponseBuilder.badRequest(e.getMessage());
         } catch (Exception e) {
             log.error("Error listing ghosts", e);
             return ResponseBuilder.internalServerError("Failed to list ghosts");
@@ -54,59 +73,22 @@ public class GhostController {
     }
     
     public APIGatewayV2HTTPResponse createGhost(APIGatewayV2HTTPEvent event, String userId) {
+        CreateGhostRequest request;
         try {
-            String body = event.getBody();
-            JsonNode json = objectMapper.readTree(body);
-            
-            String ticker = json.get(Constants.REQUEST_KEY_TICKER).asText();
-            String direction = json.get(Constants.REQUEST_KEY_DIRECTION).asText();
-            String priceSource = json.get(Constants.REQUEST_KEY_PRICE_SOURCE).asText();
-            String quantityType = json.get(Constants.REQUEST_KEY_QUANTITY_TYPE).asText();
-            
-            Double intendedShares = json.has(Constants.REQUEST_KEY_INTENDED_SHARES) && !json.get(Constants.REQUEST_KEY_INTENDED_SHARES).isNull()
-                    ? json.get(Constants.REQUEST_KEY_INTENDED_SHARES).asDouble() : null;
-            Double intendedDollars = json.has(Constants.REQUEST_KEY_INTENDED_DOLLARS) && !json.get(Constants.REQUEST_KEY_INTENDED_DOLLARS).isNull()
-                    ? json.get(Constants.REQUEST_KEY_INTENDED_DOLLARS).asDouble() : null;
-            
-            Double intendedSize;
-            if (Constants.QUANTITY_TYPE_SHARES.equals(quantityType)) {
-                if (intendedShares == null) {
-                    throw new IllegalArgumentException("intendedShares required when quantityType is SHARES");
-                }
-                intendedSize = intendedShares;
-            } else if (Constants.QUANTITY_TYPE_DOLLARS.equals(quantityType)) {
-                if (intendedDollars == null) {
-                    throw new IllegalArgumentException("intendedDollars required when quantityType is DOLLARS");
-                }
-                intendedSize = intendedDollars;
-            } else {
-                throw new IllegalArgumentException("Invalid quantityType: " + quantityType);
-            }
-            
-            Double intendedPrice = json.has(Constants.REQUEST_KEY_INTENDED_PRICE) && !json.get(Constants.REQUEST_KEY_INTENDED_PRICE).isNull()
-                    ? json.get(Constants.REQUEST_KEY_INTENDED_PRICE).asDouble() : null;
-            Long consideredAtEpochMs = json.has(Constants.REQUEST_KEY_CONSIDERED_AT) && !json.get(Constants.REQUEST_KEY_CONSIDERED_AT).isNull()
-                    ? json.get(Constants.REQUEST_KEY_CONSIDERED_AT).asLong() : null;
-            
-            List<String> hesitationTags = null;
-            if (json.has(Constants.REQUEST_KEY_HESITATION_TAGS)) {
-                hesitationTags = objectMapper.convertValue(
-                        json.get(Constants.REQUEST_KEY_HESITATION_TAGS), List.class);
-            }
-            
-            String noteText = json.has(Constants.REQUEST_KEY_NOTE_TEXT) ?
-                    json.get(Constants.REQUEST_KEY_NOTE_TEXT).asText() : null;
-            String voiceKey = json.has(Constants.REQUEST_KEY_VOICE_KEY) ?
-                    json.get(Constants.REQUEST_KEY_VOICE_KEY).asText() : null;
-
-            Double emotionStress = parseOptionalDouble(json, Constants.REQUEST_KEY_EMOTION_STRESS);
-            Double emotionSentiment = parseOptionalDouble(json, Constants.REQUEST_KEY_EMOTION_SENTIMENT);
-
-            Ghost ghost = ghostService.createGhost(userId, ticker, direction, priceSource,
-                    intendedPrice, consideredAtEpochMs, quantityType, intendedSize,
-                    hesitationTags, noteText, voiceKey, emotionStress, emotionSentiment);
+            request = readBody(event, CREATE_READER);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid request for creating ghost: {}", e.getMessage());
+            return ResponseBuilder.badRequest(e.getMessage());
+        }
+        
+        try {
+            Ghost ghost = ghostService.createGhost(userId, request.getTicker(), request.getDirection(),
+                    request.getPriceSource(), request.getIntendedPrice(), request.getConsideredAtEpochMs(),
+                    request.getQuantityType(), request.getIntendedSize(), request.getHesitationTags(),
+                    request.getNoteText(), request.getVoiceKey(), request.getEmotionStress(),
+                    request.getEmotionSentiment());
 
-            return ResponseBuilder.created(mapGhostToResponse(ghost));
+            return ResponseBuilder.created(GhostResponse.from(ghost));
         } catch (IllegalArgumentException e) {
             log.error("Invalid request for creating ghost", e);
             return ResponseBuilder.badRequest(e.getMessage());
@@ -120,20 +102,12 @@ public class GhostController {
         try {
             String ghostId = event.getPathParameters().get(Constants.RESPONSE_KEY_GHOST_ID);
             
-            List<Ghost> ghosts = ghostService.listGhosts(userId, MAX_SEARCH_LIMIT);
-            Ghost ghost = null;
-            for (Ghost g : ghosts) {
-                if (g.getGhostId().equals(ghostId)) {
-                    ghost = g;
-                    break;
-                }
-            }
-            
+            Ghost ghost = ghostService.getGhostById(userId, ghostId);
             if (ghost == null) {
                 return ResponseBuilder.notFound("Ghost not found");
             }
             
-            return ResponseBuilder.ok(mapGhostToResponse(ghost));
+            return ResponseBuilder.ok(GhostResponse.from(ghost));
         } catch (Exception e) {
             log.error("Error retrieving ghost", e);
             return ResponseBuilder.internalServerError("Failed to retrieve ghost");
@@ -141,69 +115,84 @@ public class GhostController {
     }
     
     public APIGatewayV2HTTPResponse updateGhost(APIGatewayV2HTTPEvent event, String userId) {
+        UpdateGhostRequest request;
+        Long expectedVersion;
+        try {
+            request = readBody(event, UPDATE_READER);
+            expectedVersion = parseIfMatch(event);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid request for updating ghost: {}", e.getMessage());
+            return ResponseBuilder.badRequest(e.getMessage());
+        }
+        
         try {
             String ghostId = event.getPathParameters().get(Constants.RESPONSE_KEY_GHOST_ID);
-            String body = event.getBody();
-            JsonNode json = objectMapper.readTree(body);
             
-            List<Ghost> ghosts = ghostService.listGhosts(userId, MAX_SEARCH_LIMIT);
-            String sk = null;
-            for (Ghost g : ghosts) {
-                if (g.getGhostId().equals(ghostId)) {
-                    sk = g.getSk();
-                    break;
-                }
-            }
-            
-            if (sk == null) {
+            // The index resolves the immutable sort key; the update itself is one conditional write.
+            Ghost existing = ghostService.getGhostById(userId, ghostId);
+            if (existing == null) {
                 return ResponseBuilder.notFound("Ghost not found");
             }
-            
-            String status = json.has(Constants.REQUEST_KEY_STATUS) ?
-                    json.get(Constants.REQUEST_KEY_STATUS).asText() : null;
-            String noteText = json.has(Constants.REQUEST_KEY_NOTE_TEXT) ?
-                    json.get(Constants.REQUEST_KEY_NOTE_TEXT).asText() : null;
 
-            Double emotionStress = parseOptionalDouble(json, Constants.REQUEST_KEY_EMOTION_STRESS);
-            Double emotionSentiment = parseOptionalDouble(json, Constants.REQUEST_KEY_EMOTION_SENTIMENT);
-
-            Ghost ghost = ghostService.updateGhost(userId, sk, status, noteText,
-                    emotionStress, emotionSentiment);
+            Ghost ghost = ghostService.updateGhost(userId, existing.getSk(), request.getStatus(), request.getNoteText(),
+                    request.getEmotionStress(), request.getEmotionSentiment(), expectedVersion);
+            if (ghost == null) {
+                return ResponseBuilder.notFound("Ghost not found");
+            }
 
-            return ResponseBuilder.ok(mapGhostToResponse(ghost));
+            return ResponseBuilder.ok(GhostResponse.from(ghost));
+        } catch (VersionConflictException e) {
+            return ResponseBuilder.conflict("Ghost was modified concurrently; current version is "
+                    + e.getCurrentVersion());
         } catch (Exception e) {
             log.error("Error updating ghost", e);
             return ResponseBuilder.internalServerError("Failed to update ghost");
         }
     }
     
-    private static Double parseOptionalDouble(JsonNode json, String key) {
-        if (json == null || !json.has(key) || json.get(key).isNull()) {
+    /**
+     * Reads the expected ghost version from {@code If-Match}, accepting
+     * {@code 3}, {@code "3"} and weak {@code W/"3"} forms.
+     *
+     * @return the version, or {@code null} when the header is absent
+     */
+    private static Long parseIfMatch(APIGatewayV2HTTPEvent event) {
+        String value = event.getHeaders() != null ? event.getHeaders().get(IF_MATCH_HEADER) : null;
+        if (value == null || value.isBlank() || value.trim().equals("*")) {
             return null;
         }
-        return json.get(key).asDouble();
+        String version = value.trim();
+        if (version.startsWith("W/")) {
+            version = version.substring(2);
+        }
+        if (version.length() >= 2 && version.startsWith("\"") && version.endsWith("\"")) {
+            version = version.substring(1, version.length() - 1);
+        }
+        try {
+            return Long.parseLong(version);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("If-Match must be a ghost version");
+        }
     }
-
-    private Map<String, Object> mapGhostToResponse(Ghost ghost) {
-        Map<String, Object> response = new HashMap<>();
-        response.put(Constants.RESPONSE_KEY_GHOST_ID, ghost.getGhostId());
-        response.put(Constants.RESPONSE_KEY_USER_ID, ghost.getUserId());
-        response.put(Constants.RESPONSE_KEY_CREATED_AT, ghost.getCreatedAtEpochMs());
-        response.put(Constants.REQUEST_KEY_TICKER, ghost.getTicker());
-        response.put(Constants.REQUEST_KEY_DIRECTION, ghost.getDirection());
-        response.put(Constants.RESPONSE_KEY_PRICE_SOURCE, ghost.getPriceSource());
-        response.put(Constants.RESPONSE_KEY_QUANTITY_TYPE, ghost.getQuantityType());
-        response.put(Constants.REQUEST_KEY_INTENDED_PRICE, ghost.getIntendedPrice());
-        response.put(Constants.RESPONSE_KEY_INTENDED_SHARES, ghost.getIntendedShares());
-        response.put(Constants.RESPONSE_KEY_INTENDED_DOLLARS, ghost.getIntendedDollars());
-        response.put(Constants.RESPONSE_KEY_CONSIDERED_AT, ghost.getConsideredAtEpochMs());
-        response.put(Constants.REQUEST_KEY_HESITATION_TAGS, ghost.getHesitationTags());
-        response.put(Constants.REQUEST_KEY_NOTE_TEXT, ghost.getNoteText());
-        response.put(Constants.REQUEST_KEY_VOICE_KEY, ghost.getVoiceKey());
-        response.put(Constants.REQUEST_KEY_STATUS, ghost.getStatus());
-        response.put(Constants.RESPONSE_KEY_LOGGED_QUOTE, ghost.getLoggedQuote());
-        response.put(Constants.REQUEST_KEY_EMOTION_STRESS, ghost.getEmotionStress());
-        response.put(Constants.REQUEST_KEY_EMOTION_SENTIMENT, ghost.getEmotionSentiment());
-        return response;
+    
+    /**
+     * Binds the body straight onto the request type. Validation failures
+     * thrown from the creator and malformed JSON both surface as
+     * {@link IllegalArgumentException} with a message safe to return.
+     */
+    private static <T> T readBody(APIGatewayV2HTTPEvent event, ObjectReader reader) {
+        String body = event.getBody();
+        if (body == null || body.isBlank()) {
+            throw new IllegalArgumentException("Request body is required");
+        }
+        try {
+            return reader.readValue(body);
+        } catch (ValueInstantiationException e) {
+            Throwable cause = e.getCause();
+            throw new IllegalArgumentException(cause instanceof IllegalArgumentException
+                    ? cause.getMessage() : "Invalid request body");
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid request body");
+        }
     }
 }
@@ -2,18 +2,29 @@ package com.phantom.controller;
 
 import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import com.phantom.model.entity.CacheItem;
+import com.phantom.model.response.CandlesResponse;
+import com.phantom.model.response.QuoteResponse;
+import com.phantom.model.response.QuotesResponse;
 import com.phantom.service.MarketDataService;
 import com.phantom.util.Constants;
 import com.phantom.util.ResponseBuilder;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.Instant;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Slf4j
 public class MarketController {
     
+    private static final int MAX_QUOTE_SYMBOLS = 100;
+    // Candles as [epochMs, open, high, low, close, volume] rows instead of objects.
+    private static final String FORMAT_COMPACT = "compact";
+    
     private final MarketDataService marketDataService;
     
     public MarketController(MarketDataService marketDataService) {
@@ -37,6 +48,52 @@ public class MarketController {
         }
     }
 
+    public APIGatewayV2HTTPResponse getMarketQuotes(APIGatewayV2HTTPEvent event) {
+        try {
+            Map<String, String> queryParams = event.getQueryStringParameters();
+            if (queryParams == null || queryParams.get("symbols") == null || queryParams.get("symbols").isBlank()) {
+                return ResponseBuilder.badRequest("Missing required parameter: symbols");
+            }
+
+            Set<String> symbols = new LinkedHashSet<>();
+            for (String symbol : queryParams.get("symbols").split(",")) {
+                if (!symbol.isBlank()) {
+                    symbols.add(symbol.trim().toUpperCase());
+                }
+            }
+            if (symbols.isEmpty() || symbols.size() > MAX_QUOTE_SYMBOLS) {
+                return ResponseBuilder.badRequest("symbols must list between 1 and " + MAX_QUOTE_SYMBOLS + " symbols");
+            }
+
+            Map<String, CacheItem> quotes = marketDataService.getRealTimeQuotes(symbols);
+
+            List<QuoteResponse> found = new ArrayList<>(quotes.size());
+            List<String> missing = new ArrayList<>();
+            for (String symbol : symbols) {
+                CacheItem item = quotes.get(symbol);
+                if (item == null) {
+                    missing.add(symbol);
+                    continue;
+                }
+                Map<String, Object> quote = item.getPayload();
+                Object price = quote.get(Constants.QUOTE_KEY_PRICE);
+                found.add(new QuoteResponse(
+                        symbol,
+                        price != null ? ((Number) price).doubleValue() : null,
+                        (String) quote.get(Constants.QUOTE_KEY_PROVIDER_TS),
+                        item.getFetchedAt(),
+                        null));
+            }
+
+            return ResponseBuilder.ok(new QuotesResponse(found, missing));
+        } catch (IllegalArgumentException e) {
+            return ResponseBuilder.badRequest(e.getMessage());
+        } catch (Exception e) {
+            log.error("Error retrieving market quotes", e);
+            return ResponseBuilder.internalServerError("Failed to retrieve market quotes");
+        }
+    }
+
     public APIGatewayV2HTTPResponse getMarketQuote(APIGatewayV2HTTPEvent event) {
         try {
             Map<String, String> queryParams = event.getQueryStringParameters();
@@ -47,11 +104,13 @@ public class MarketController {
             String symbol = queryParams.get("symbol");
             Map<String, Object> quote = marketDataService.getMarketQuote(symbol);
 
-            Map<String, Object> response = new HashMap<>();
-            response.put(Constants.QUOTE_KEY_SYMBOL, quote.get(Constants.QUOTE_KEY_SYMBOL));
-            response.put(Constants.QUOTE_KEY_PRICE, quote.get(Constants.QUOTE_KEY_PRICE));
-            response.put(Constants.QUOTE_KEY_PROVIDER_TS, quote.get(Constants.QUOTE_KEY_PROVIDER_TS));
-            response.put(Constants.QUOTE_KEY_FETCHED_AT, Instant.now().toString());
+            Object price = quote.get(Constants.QUOTE_KEY_PRICE);
+            QuoteResponse response = new QuoteResponse(
+                    (String) quote.get(Constants.QUOTE_KEY_SYMBOL),
+                    price != null ? ((Number) price).doubleValue() : null,
+                    (String) quote.get(Constants.QUOTE_KEY_PROVIDER_TS),
+                    Instant.now().toString(),
+                    Boolean.TRUE.equals(quote.get(Constants.QUOTE_KEY_STALE)) ? Boolean.TRUE : null);
 
             return ResponseBuilder.ok(response);
         } catch (IllegalArgumentException e) {
@@ -73,7 +132,17 @@ public class MarketController {
             String interval = queryParams.get("interval");
             String range = queryParams.get("range");
 
-            Map<String, Object> candles = marketDataService.getMarketCandles(symbol, interval, range);
+            String format = queryParams.get("format");
+            if (format != null && !FORMAT_COMPACT.equals(format)) {
+                return ResponseBuilder.badRequest("format must be " + FORMAT_COMPACT + " when given");
+            }
+
+            CandlesResponse candles = marketDataService.getMarketCandles(symbol, interval, range);
+            if (FORMAT_COMPACT.equals(format)) {
+                // A copy: concurrent requests can share the response a single fetch produced.
+                candles = new CandlesResponse(candles.getSymbol(), candles.getInterval(),
+                        candles.getCandles().compact(), candles.getFetchedAt(), candles.getStale());
+            }
 
             return ResponseBuilder.ok(candles);
         } catch (IllegalArgumentException e) {
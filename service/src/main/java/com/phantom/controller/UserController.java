@@ -4,18 +4,31 @@ import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.phantom.model.entity.Ghost;
 import com.phantom.model.entity.UserProfile;
+import com.phantom.model.response.BootstrapResponse;
+import com.phantom.model.response.DashboardSummaryResponse;
+import com.phantom.model.response.GhostListResponse;
+import com.phantom.model.response.GhostResponse;
+import com.phantom.model.response.UserProfileResponse;
+import com.phantom.repository.UserPartitionHead;
 import com.phantom.service.UserService;
+import com.phantom.util.Constants;
+import com.phantom.util.Json;
 import com.phantom.util.ResponseBuilder;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Slf4j
 public class UserController {
     
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final ObjectMapper objectMapper = Json.mapper();
+    private static final int DEFAULT_BOOTSTRAP_GHOSTS = 20;
+    private static final int MAX_BOOTSTRAP_GHOSTS = 50;
     
     private final UserService userService;
     
@@ -27,20 +40,45 @@ public class UserController {
         try {
             UserProfile profile = userService.getUserProfile(userId);
             
-            Map<String, Object> response = new HashMap<>();
-            response.put("userId", profile.getUserId());
-            response.put("createdAt", profile.getCreatedAt());
-            response.put("timezone", profile.getTimezone());
-            response.put("plan", profile.getPlan());
-            response.put("settings", profile.getSettings());
-            
-            return ResponseBuilder.ok(response);
+            return ResponseBuilder.ok(UserProfileResponse.from(profile));
         } catch (Exception e) {
             log.error("Error retrieving user profile", e);
             return ResponseBuilder.internalServerError("Failed to retrieve user profile");
         }
     }
     
+    public APIGatewayV2HTTPResponse getBootstrap(APIGatewayV2HTTPEvent event, String userId) {
+        try {
+            int ghostLimit = DEFAULT_BOOTSTRAP_GHOSTS;
+            Map<String, String> queryParams = event.getQueryStringParameters();
+            if (queryParams != null && queryParams.containsKey(Constants.REQUEST_KEY_LIMIT)) {
+                try {
+                    ghostLimit = Integer.parseInt(queryParams.get(Constants.REQUEST_KEY_LIMIT));
+                } catch (NumberFormatException e) {
+                    return ResponseBuilder.badRequest("limit must be an integer");
+                }
+                if (ghostLimit < 1 || ghostLimit > MAX_BOOTSTRAP_GHOSTS) {
+                    return ResponseBuilder.badRequest("limit must be between 1 and " + MAX_BOOTSTRAP_GHOSTS);
+                }
+            }
+            
+            UserPartitionHead head = userService.bootstrap(userId, ghostLimit);
+            
+            List<GhostResponse> ghosts = new ArrayList<>(head.getGhosts().getItems().size());
+            for (Ghost ghost : head.getGhosts().getItems()) {
+                ghosts.add(GhostResponse.from(ghost));
+            }
+            
+            return ResponseBuilder.ok(new BootstrapResponse(
+                    UserProfileResponse.from(head.getProfile()),
+                    DashboardSummaryResponse.from(head.getSummary()),
+                    new GhostListResponse(ghosts, head.getGhosts().getNextToken())));
+        } catch (Exception e) {
+            log.error("Error bootstrapping user", e);
+            return ResponseBuilder.internalServerError("Failed to load user");
+        }
+    }
+    
     public APIGatewayV2HTTPResponse updateUser(APIGatewayV2HTTPEvent event, String userId) {
         try {
             String body = event.getBody();
@@ -54,14 +92,7 @@ public class UserController {
             
             UserProfile profile = userService.updateUserProfile(userId, timezone, settings);
             
-            Map<String, Object> response = new HashMap<>();
-            response.put("userId", profile.getUserId());
-            response.put("createdAt", profile.getCreatedAt());
-            response.put("timezone", profile.getTimezone());
-            response.put("plan", profile.getPlan());
-            response.put("settings", profile.getSettings());
-            
-            return ResponseBuilder.ok(response);
+            return ResponseBuilder.ok(UserProfileResponse.from(profile));
         } catch (Exception e) {
             log.error("Error updating user profile", e);
             return ResponseBuilder.internalServerError("Failed to update user profile");
@@ -4,18 +4,11 @@ import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
-import com.phantom.controller.*;
-import com.phantom.repository.AppRepository;
-import com.phantom.repository.CacheRepository;
-import com.phantom.service.DashboardService;
-import com.phantom.service.DeepSeekClient;
-import com.phantom.service.GhostService;
-import com.phantom.service.InvestorDNAService;
-import com.phantom.service.MarketDataService;
-import com.phantom.service.UserService;
+import com.phantom.metrics.EmfPublisher;
+import com.phantom.metrics.RequestMetrics;
 import com.phantom.util.ResponseBuilder;
 import lombok.extern.slf4j.Slf4j;
-import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import org.crac.Core;
 
 import java.time.Instant;
 import java.util.HashMap;
@@ -24,91 +17,107 @@ import java.util.Map;
 @Slf4j
 public class ApiHandler implements RequestHandler<APIGatewayV2HTTPEvent, APIGatewayV2HTTPResponse> {
     
-    private final UserController userController;
-    private final GhostController ghostController;
-    private final DashboardController dashboardController;
-    private final MarketController marketController;
-    private final AchievementController achievementController;
-    private final StreakController streakController;
-    private final InvestorDNAController investorDNAController;
+    private static final RouteTable ROUTES = buildRoutes();
+    
+    private final boolean flushAfterEachRequest;
+    private final ColdStartReport coldStartReport;
+    // Held strongly: the CRaC global context only keeps weak references to resources.
+    private final PrimingResource primingResource;
+    private volatile AppComponents components;
 
     public ApiHandler() {
-        DynamoDbClient dynamoDbClient = DynamoDbClient.create();
-
-        AppRepository appRepository = new AppRepository(dynamoDbClient);
-        CacheRepository cacheRepository = new CacheRepository(dynamoDbClient);
-
-        UserService userService = new UserService(appRepository);
-        MarketDataService marketDataService = new MarketDataService(cacheRepository);
-        GhostService ghostService = new GhostService(appRepository, marketDataService);
-        DashboardService dashboardService = new DashboardService(appRepository);
-        DeepSeekClient deepSeekClient = new DeepSeekClient();
-        InvestorDNAService investorDNAService = new InvestorDNAService(appRepository, deepSeekClient);
-
-        this.userController = new UserController(userService);
-        this.ghostController = new GhostController(ghostService);
-        this.dashboardController = new DashboardController(dashboardService);
-        this.marketController = new MarketController(marketDataService);
-        this.achievementController = new AchievementController();
-        this.streakController = new StreakController();
-        this.investorDNAController = new InvestorDNAController(investorDNAService);
+        this(true);
+    }
+    
+    /**
+     * @param flushAfterEachRequest whether every invocation waits for
+     *        write-behind saves before returning. Lambda needs this because the
+     *        environment may be frozen as soon as the handler returns; a
+     *        long-lived host lets them drain in the background and flushes on
+     *        {@link #close()}.
+     */
+    public ApiHandler(boolean flushAfterEachRequest) {
+        this.flushAfterEachRequest = flushAfterEachRequest;
+        this.coldStartReport = new ColdStartReport();
+        this.components = AppComponents.create();
+        this.primingResource = new PrimingResource(this, coldStartReport);
+        Core.getGlobalContext().register(primingResource);
+        coldStartReport.initFinished();
+    }
+    
+    AppComponents components() {
+        return components;
+    }
+    
+    void useComponents(AppComponents components) {
+        this.components = components;
+    }
+    
+    /**
+     * Releases the clients behind the current object graph. Only long-lived
+     * hosts such as {@code com.phantom.server.PhantomServer} call this; Lambda
+     * simply freezes the environment.
+     */
+    public void close() {
+        components.close();
     }
     
     @Override
     public APIGatewayV2HTTPResponse handleRequest(APIGatewayV2HTTPEvent event, Context context) {
-        log.info("Received request: {} {}", event.getRequestContext().getHttp().getMethod(), 
-                event.getRawPath());
+        long startNanos = System.nanoTime();
+        String method = event.getRequestContext().getHttp().getMethod();
+        log.info("Received request: {} {}", method, event.getRawPath());
         
+        RequestMetrics metrics = RequestMetrics.start(method, event.getRawPath(),
+                event.getRequestContext().getRequestId());
+        int statusCode = 500;
         try {
-            String userId = extractUserId(event);
-            String path = event.getRawPath();
-            String method = event.getRequestContext().getHttp().getMethod();
-            
-            if (path.equals("/v1/health") && method.equals("GET")) {
-                return handleHealth();
-            }
-            
-            if (userId == null) {
-                return ResponseBuilder.badRequest("Missing user ID in request context");
+            APIGatewayV2HTTPResponse response = dispatch(components, event);
+            statusCode = response.getStatusCode();
+            return response;
+        } finally {
+            metrics.close();
+            if (!coldStartReport.isPriming()) {
+                EmfPublisher.publish(metrics, statusCode);
             }
-            
-            if (path.equals("/v1/me")) {
-                return handleUserRoutes(event, method, userId);
-            }
-            
-            if (path.startsWith("/v1/ghosts")) {
-                return handleGhostRoutes(event, method, path, userId);
-            }
-            
-            if (path.equals("/v1/dashboard/summary") && method.equals("GET")) {
-                return dashboardController.getDashboardSummary(event, userId);
+            coldStartReport.requestFinished(method, event.getRawPath(), startNanos);
+            if (flushAfterEachRequest) {
+                components.flushPendingWrites();
             }
+        }
+    }
+    
+    /**
+     * Routes one event against the given object graph. Batch sub-requests
+     * re-enter here directly, skipping the per-invocation bookkeeping in
+     * {@link #handleRequest}.
+     */
+    static APIGatewayV2HTTPResponse dispatch(AppComponents components, APIGatewayV2HTTPEvent event) {
+        try {
+            String method = event.getRequestContext().getHttp().getMethod();
+            RouteTable.Match match = ROUTES.match(method, event.getRawPath());
             
-            if (path.equals("/v1/achievements") && method.equals("GET")) {
-                return achievementController.getAchievements(event, userId);
+            switch (match.status()) {
+                case NOT_FOUND:
+                    return ResponseBuilder.notFound("Route not found");
+                case METHOD_NOT_ALLOWED:
+                    return ResponseBuilder.methodNotAllowed("Method not allowed", match.allowedMethods());
+                default:
+                    break;
             }
             
-            if (path.equals("/v1/streaks") && method.equals("GET")) {
-                return streakController.getStreaks(event, userId);
+            RouteTable.Operation operation = match.operation();
+            RequestMetrics.current().route(operation.name());
+            String userId = extractUserId(event);
+            if (operation.authRequired() && userId == null) {
+                return ResponseBuilder.badRequest("Missing user ID in request context");
             }
             
-            if (path.equals("/v1/market/validate") && method.equals("GET")) {
-                return marketController.validateTicker(event);
-            }
-
-            if (path.equals("/v1/market/quote") && method.equals("GET")) {
-                return marketController.getMarketQuote(event);
+            if (event.getPathParameters() == null) {
+                event.setPathParameters(match.pathParameters());
             }
             
-            if (path.equals("/v1/market/candles") && method.equals("GET")) {
-                return marketController.getMarketCandles(event);
-            }
-
-            if (path.equals("/v1/investor-dna") && method.equals("GET")) {
-                return investorDNAController.getInvestorDNA(event, userId);
-            }
-
-            return ResponseBuilder.notFound("Route not found");
+            return operation.handler().handle(components, event, userId);
             
         } catch (Exception e) {
             log.error("Error handling request", e);
@@ -116,53 +125,40 @@ public class ApiHandler implements RequestHandler<APIGatewayV2HTTPEvent, APIGate
         }
     }
     
-    private APIGatewayV2HTTPResponse handleHealth() {
+    private static RouteTable buildRoutes() {
+        Map<String, RouteTable.RouteHandler> handlers = new HashMap<>();
+        handlers.put("GetHealth", (c, event, userId) -> handleHealth());
+        handlers.put("GetUser", (c, event, userId) -> c.userController().getUser(event, userId));
+        handlers.put("UpdateUser", (c, event, userId) -> c.userController().updateUser(event, userId));
+        handlers.put("DeleteUser", (c, event, userId) -> c.userController().deleteUser(event, userId));
+        handlers.put("ListGhosts", (c, event, userId) -> c.ghostController().listGhosts(event, userId));
+        handlers.put("CreateGhost", (c, event, userId) -> c.ghostController().createGhost(event, userId));
+        handlers.put("GetGhost", (c, event, userId) -> c.ghostController().getGhost(event, userId));
+        handlers.put("UpdateGhost", (c, event, userId) -> c.ghostController().updateGhost(event, userId));
+        handlers.put("GetBootstrap", (c, event, userId) -> c.userController().getBootstrap(event, userId));
+        handlers.put("GetDashboardSummary", (c, event, userId) -> c.dashboardController().getDashboardSummary(event, userId));
+        handlers.put("GetAchievements", (c, event, userId) -> c.achievementController().getAchievements(event, userId));
+        handlers.put("GetStreaks", (c, event, userId) -> c.streakController().getStreaks(event, userId));
+        handlers.put("ValidateTicker", (c, event, userId) -> c.marketController().validateTicker(event));
+        handlers.put("GetMarketQuote", (c, event, userId) -> c.marketController().getMarketQuote(event));
+        handlers.put("GetMarketQuotes", (c, event, userId) -> c.marketController().getMarketQuotes(event));
+        handlers.put("GetMarketCandles", (c, event, userId) -> c.marketController().getMarketCandles(event));
+        handlers.put("GetInvestorDNA", (c, event, userId) -> c.investorDNAController().getInvestorDNA(event, userId));
+        handlers.put("ExecuteBatch", (c, event, userId) -> c.batchController().executeBatch(event, userId));
+        
+        RouteTable.Builder builder = RouteTable.builder(handlers);
+        GeneratedRoutes.register(builder);
+        return builder.build();
+    }
+    
+    private static APIGatewayV2HTTPResponse handleHealth() {
         Map<String, String> response = new HashMap<>();
         response.put("status", "healthy");
         response.put("timestamp", Instant.now().toString());
         return ResponseBuilder.ok(response);
     }
     
-    private APIGatewayV2HTTPResponse handleUserRoutes(APIGatewayV2HTTPEvent event, String method, String userId) {
-        switch (method) {
-            case "GET":
-                return userController.getUser(event, userId);
-            case "PATCH":
-                return userController.updateUser(event, userId);
-            case "DELETE":
-                return userController.deleteUser(event, userId);
-            default:
-                return ResponseBuilder.badRequest("Method not allowed");
-        }
-    }
-    
-    private APIGatewayV2HTTPResponse handleGhostRoutes(APIGatewayV2HTTPEvent event, String method, String path, String userId) {
-        if (path.equals("/v1/ghosts")) {
-            switch (method) {
-                case "GET":
-                    return ghostController.listGhosts(event, userId);
-                case "POST":
-                    return ghostController.createGhost(event, userId);
-                default:
-                    return ResponseBuilder.badRequest("Method not allowed");
-            }
-        }
-        
-        if (path.startsWith("/v1/ghosts/")) {
-            switch (method) {
-                case "GET":
-                    return ghostController.getGhost(event, userId);
-                case "PATCH":
-                    return ghostController.updateGhost(event, userId);
-                default:
-                    return ResponseBuilder.badRequest("Method not allowed");
-            }
-        }
-        
-        return ResponseBuilder.notFound("Route not found");
-    }
-    
-    private String extractUserId(APIGatewayV2HTTPEvent event) {
+    private static String extractUserId(APIGatewayV2HTTPEvent event) {
         if (event.getRequestContext() != null && 
             event.getRequestContext().getAuthorizer() != null &&
             event.getRequestContext().getAuthorizer().getJwt() != null &&
@@ -0,0 +1,190 @@
+package com.phantom.handler;
+
+import com.phantom.controller.*;
+import com.phantom.repository.AppRepository;
+import com.phantom.repository.CacheRepository;
+import com.phantom.repository.DynamoDbStorageEngine;
+import com.phantom.repository.HedgingStorageEngine;
+import com.phantom.repository.InMemoryStorageEngine;
+import com.phantom.repository.StorageEngine;
+import com.phantom.service.DashboardService;
+import com.phantom.service.DeepSeekClient;
+import com.phantom.service.GhostService;
+import com.phantom.service.InvestorDNAService;
+import com.phantom.service.MarketDataService;
+import com.phantom.service.UserService;
+import com.phantom.util.Lazy;
+import com.phantom.util.ThreadPools;
+import software.amazon.awssdk.core.retry.RetryMode;
+import software.amazon.awssdk.http.crt.AwsCrtAsyncHttpClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * Object graph behind {@link ApiHandler}. Every node is built on first use
+ * and memoized, so a container only pays for the controllers, services and
+ * clients reachable from the routes it actually serves.
+ */
+public class AppComponents {
+
+    private static final int DYNAMODB_MAX_CONCURRENCY = 50;
+
+    private final Lazy<StorageEngine> storage;
+    private final Lazy<HttpClient> marketHttpClient;
+    private final Lazy<HttpClient> llmHttpClient;
+    private final Lazy<ExecutorService> batchExecutor;
+
+    private final Lazy<AppRepository> appRepository;
+    private final Lazy<CacheRepository> cacheRepository;
+
+    private final Lazy<UserService> userService;
+    private final Lazy<MarketDataService> marketDataService;
+    private final Lazy<GhostService> ghostService;
+    private final Lazy<DashboardService> dashboardService;
+    private final Lazy<DeepSeekClient> deepSeekClient;
+    private final Lazy<InvestorDNAService> investorDNAService;
+
+    private final Lazy<UserController> userController;
+    private final Lazy<GhostController> ghostController;
+    private final Lazy<DashboardController> dashboardController;
+    private final Lazy<MarketController> marketController;
+    private final Lazy<AchievementController> achievementController;
+    private final Lazy<StreakController> streakController;
+    private final Lazy<InvestorDNAController> investorDNAController;
+    private final Lazy<BatchController> batchController;
+
+    public AppComponents(Supplier<StorageEngine> storage, Supplier<HttpClient> marketHttpClient,
+                         Supplier<HttpClient> llmHttpClient) {
+        this.storage = Lazy.of(storage);
+        this.marketHttpClient = Lazy.of(marketHttpClient);
+        this.llmHttpClient = Lazy.of(llmHttpClient);
+        this.batchExecutor = Lazy.of(() -> ThreadPools.newPerTaskExecutor("phantom-batch"));
+
+        this.appRepository = Lazy.of(() -> new AppRepository(this.storage.get()));
+        this.cacheRepository = Lazy.of(() -> new CacheRepository(this.storage.get()));
+
+        this.userService = Lazy.of(() -> new UserService(appRepository.get()));
+        this.marketDataService = Lazy.of(() -> new MarketDataService(cacheRepository.get(), this.marketHttpClient.get()));
+        this.ghostService = Lazy.of(() -> new GhostService(appRepository.get(), marketDataService.get()));
+        this.dashboardService = Lazy.of(() -> new DashboardService(appRepository.get()));
+        this.deepSeekClient = Lazy.of(() -> new DeepSeekClient(this.llmHttpClient.get()));
+        this.investorDNAService = Lazy.of(() -> new InvestorDNAService(appRepository.get(), deepSeekClient.get()));
+
+        this.userController = Lazy.of(() -> new UserController(userService.get()));
+        this.ghostController = Lazy.of(() -> new GhostController(ghostService.get()));
+        this.dashboardController = Lazy.of(() -> new DashboardController(dashboardService.get()));
+        this.marketController = Lazy.of(() -> new MarketController(marketDataService.get()));
+        this.achievementController = Lazy.of(AchievementController::new);
+        this.streakController = Lazy.of(StreakController::new);
+        this.investorDNAController = Lazy.of(() -> new InvestorDNAController(investorDNAService.get()));
+        this.batchController = Lazy.of(() -> new BatchController(
+                event -> ApiHandler.dispatch(this, event), batchExecutor.get()));
+    }
+
+    public AppComponents(DynamoDbAsyncClient dynamoDbClient, HttpClient marketHttpClient, HttpClient llmHttpClient) {
+        this(() -> new DynamoDbStorageEngine(dynamoDbClient), () -> marketHttpClient, () -> llmHttpClient);
+    }
+
+    public static AppComponents create() {
+        return new AppComponents(
+                AppComponents::newStorageEngine,
+                HttpClient::newHttpClient,
+                () -> HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build());
+    }
+
+    /**
+     * DynamoDB, with slow reads hedged, unless {@code STORAGE_ENGINE=memory},
+     * which keeps the tables in process and, if {@code STORAGE_SNAPSHOT_PATH}
+     * is set, persists them to that file.
+     */
+    private static StorageEngine newStorageEngine() {
+        String engine = System.getenv().getOrDefault("STORAGE_ENGINE", "dynamodb");
+        switch (engine) {
+            case "dynamodb":
+                return new HedgingStorageEngine(new DynamoDbStorageEngine(newDynamoDbClient()));
+            case "memory":
+                String snapshotPath = System.getenv("STORAGE_SNAPSHOT_PATH");
+                return InMemoryStorageEngine.forServiceTables(
+                        snapshotPath != null && !snapshotPath.isBlank() ? Path.of(snapshotPath) : null);
+            default:
+                throw new IllegalStateException("Unknown STORAGE_ENGINE " + engine + ", expected dynamodb or memory");
+        }
+    }
+
+    /**
+     * Async DynamoDB client on the AWS CRT HTTP stack, which starts faster and
+     * carries far fewer classes than the default Apache or Netty clients.
+     * Retries use the adaptive mode: a client-side token bucket that slows
+     * requests down while DynamoDB is throttling, instead of retrying
+     * straight into it.
+     */
+    private static DynamoDbAsyncClient newDynamoDbClient() {
+        return DynamoDbAsyncClient.builder()
+                .httpClientBuilder(AwsCrtAsyncHttpClient.builder()
+                        .maxConcurrency(DYNAMODB_MAX_CONCURRENCY)
+                        .connectionTimeout(Duration.ofSeconds(2)))
+                .overrideConfiguration(config -> config.retryPolicy(RetryMode.ADAPTIVE))
+                .build();
+    }
+
+    /**
+     * Closes the clients that have been built so far. Nodes never reached are
+     * left untouched rather than being created just to be closed.
+     */
+    public void close() {
+        batchExecutor.ifInitialized(ExecutorService::shutdown);
+        flushPendingWrites();
+        storage.ifInitialized(StorageEngine::close);
+    }
+
+    /**
+     * Waits for background market data refreshes, then for write-behind saves,
+     * including the ones those refreshes just queued. Nodes never used are
+     * skipped.
+     */
+    public void flushPendingWrites() {
+        marketDataService.ifInitialized(MarketDataService::awaitRefreshes);
+        cacheRepository.ifInitialized(CacheRepository::flush);
+    }
+
+    public StorageEngine storage() {
+        return storage.get();
+    }
+
+    public UserController userController() {
+        return userController.get();
+    }
+
+    public GhostController ghostController() {
+        return ghostController.get();
+    }
+
+    public DashboardController dashboardController() {
+        return dashboardController.get();
+    }
+
+    public MarketController marketController() {
+        return marketController.get();
+    }
+
+    public AchievementController achievementController() {
+        return achievementController.get();
+    }
+
+    public StreakController streakController() {
+        return streakController.get();
+    }
+
+    public InvestorDNAController investorDNAController() {
+        return investorDNAController.get();
+    }
+
+    public BatchController batchController() {
+        return batchController.get();
+    }
+}
@@ -0,0 +1,82 @@
+package com.phantom.handler;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Records how long a container took to become ready and how long its first
+ * real request took, then logs a single line so on-demand starts and
+ * snapshot restores can be compared in CloudWatch Logs Insights.
+ */
+@Slf4j
+class ColdStartReport {
+
+    private static final String MODE_ON_DEMAND = "on-demand";
+    private static final String MODE_SNAPSTART_RESTORE = "snapstart-restore";
+
+    private final long jvmStartEpochMs;
+    private final long initStartNanos;
+    private volatile long initMs = -1;
+    private volatile long jvmStartToReadyMs = -1;
+    private volatile long primingMs = -1;
+    private volatile long restoreMs = -1;
+    private volatile long readyAtNanos;
+    private volatile String mode = MODE_ON_DEMAND;
+    private volatile boolean priming;
+    private final AtomicBoolean reported = new AtomicBoolean(false);
+
+    ColdStartReport() {
+        this.initStartNanos = System.nanoTime();
+        this.jvmStartEpochMs = ProcessHandle.current().info().startInstant()
+                .map(Instant::toEpochMilli)
+                .orElse(-1L);
+    }
+
+    void initFinished() {
+        long now = System.nanoTime();
+        this.initMs = toMillis(now - initStartNanos);
+        this.readyAtNanos = now;
+        if (jvmStartEpochMs > 0) {
+            this.jvmStartToReadyMs = System.currentTimeMillis() - jvmStartEpochMs;
+        }
+    }
+
+    void primingStarted() {
+        this.priming = true;
+    }
+
+    void primingFinished(long durationNanos) {
+        this.primingMs = toMillis(durationNanos);
+        this.priming = false;
+    }
+
+    boolean isPriming() {
+        return priming;
+    }
+
+    void restored(long durationNanos) {
+        this.mode = MODE_SNAPSTART_RESTORE;
+        this.restoreMs = toMillis(durationNanos);
+        this.jvmStartToReadyMs = -1;
+        this.readyAtNanos = System.nanoTime();
+        this.reported.set(false);
+    }
+
+    void requestFinished(String method, String path, long startNanos) {
+        if (priming || !reported.compareAndSet(false, true)) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        log.info("Cold start report: mode={} jvmStartToReadyMs={} handlerInitMs={} primingMs={} restoreMs={} "
+                        + "readyToFirstRequestMs={} firstRequestMs={} firstRoute=\"{} {}\"",
+                mode, jvmStartToReadyMs, initMs, primingMs, restoreMs,
+                toMillis(startNanos - readyAtNanos), toMillis(now - startNanos), method, path);
+    }
+
+    private static long toMillis(long nanos) {
+        return nanos / 1_000_000;
+    }
+}
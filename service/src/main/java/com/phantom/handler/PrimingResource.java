@@ -0,0 +1,89 @@
+package com.phantom.handler;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.phantom.priming.StubDynamoDbAsyncClient;
+import com.phantom.priming.StubHttpClient;
+import com.phantom.util.Constants;
+import lombok.extern.slf4j.Slf4j;
+import org.crac.Resource;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SnapStart/CRaC hooks for {@link ApiHandler}.
+ *
+ * Before the snapshot every route is driven against stand-in clients so
+ * Jackson, the controllers and the repositories are class-loaded and warmed,
+ * and a single real DynamoDB read loads the SDK's marshalling and HTTP stack.
+ * After restore the live clients are rebuilt so no connection opened before
+ * the checkpoint is reused.
+ */
+@Slf4j
+class PrimingResource implements Resource {
+
+    private static final String PRIMING_USER_ID = "priming-user";
+    private static final String PRIMING_SK = "PRIMING";
+    private static final int ITERATIONS = Integer.parseInt(
+            System.getenv().getOrDefault("PRIMING_ITERATIONS", "25"));
+
+    private final ApiHandler handler;
+    private final ColdStartReport report;
+
+    PrimingResource(ApiHandler handler, ColdStartReport report) {
+        this.handler = handler;
+        this.report = report;
+    }
+
+    @Override
+    public void beforeCheckpoint(org.crac.Context<? extends Resource> context) {
+        long start = System.nanoTime();
+        report.primingStarted();
+
+        AppComponents live = handler.components();
+        Collection<APIGatewayV2HTTPEvent> events = SampleRequests.byOperation(PRIMING_USER_ID).values();
+        AppComponents stubs = new AppComponents(new StubDynamoDbAsyncClient(), new StubHttpClient(), new StubHttpClient());
+        handler.useComponents(stubs);
+        try {
+            for (int i = 0; i < ITERATIONS; i++) {
+                for (APIGatewayV2HTTPEvent event : events) {
+                    handler.handleRequest(event, null);
+                }
+            }
+            primeSdk(live);
+        } finally {
+            // Drop the connection opened by the SDK warm-up; afterRestore builds fresh clients.
+            live.close();
+            stubs.close();
+            handler.useComponents(AppComponents.create());
+            report.primingFinished(System.nanoTime() - start);
+        }
+
+        log.info("Primed {} routes x {} iterations in {} ms", events.size(), ITERATIONS,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void afterRestore(org.crac.Context<? extends Resource> context) {
+        long start = System.nanoTime();
+        handler.useComponents(AppComponents.create());
+        report.restored(System.nanoTime() - start);
+    }
+
+    /**
+     * Issues one real GetItem for a key that never exists so the SDK's
+     * marshallers, signer and HTTP client are loaded before the snapshot.
+     */
+    private void primeSdk(AppComponents live) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put(Constants.ATTR_PK, AttributeValue.builder().s(PRIMING_SK).build());
+        key.put(Constants.ATTR_SK, AttributeValue.builder().s(PRIMING_SK).build());
+        try {
+            live.storage().getItem(Constants.APP_TABLE_NAME, key).join();
+        } catch (Exception e) {
+            log.warn("SDK priming request failed, continuing with snapshot", e);
+        }
+    }
+}
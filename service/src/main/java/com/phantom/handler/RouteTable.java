@@ -0,0 +1,311 @@
+package com.phantom.handler;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Method + path-segment trie built once from the routes generated out of
+ * {@code model/phantom-api.smithy}. Lookups walk the raw path in place:
+ * static segments are hashed and compared against the node's children
+ * without splitting or copying the path, and only the values of
+ * {@code {label}} segments are copied out, so dispatch cost depends on path
+ * depth rather than on the number of routes. Static segments take precedence
+ * over {@code {label}} segments, and a lookup never backtracks from a static
+ * segment to try the label instead.
+ */
+final class RouteTable {
+
+    @FunctionalInterface
+    interface RouteHandler {
+        APIGatewayV2HTTPResponse handle(AppComponents components, APIGatewayV2HTTPEvent event, String userId)
+                throws Exception;
+    }
+
+    static final class Operation {
+        private final String name;
+        private final boolean authRequired;
+        private final RouteHandler handler;
+        private final String[] paramNames;
+
+        private Operation(String name, boolean authRequired, RouteHandler handler, String[] paramNames) {
+            this.name = name;
+            this.authRequired = authRequired;
+            this.handler = handler;
+            this.paramNames = paramNames;
+        }
+
+        String name() {
+            return name;
+        }
+
+        boolean authRequired() {
+            return authRequired;
+        }
+
+        RouteHandler handler() {
+            return handler;
+        }
+    }
+
+    enum Status {
+        FOUND, METHOD_NOT_ALLOWED, NOT_FOUND
+    }
+
+    static final class Match {
+        private static final Match NOT_FOUND = new Match(Status.NOT_FOUND, null, null, null);
+
+        private final Status status;
+        private final Operation operation;
+        private final String allowedMethods;
+        private final String[] paramValues;
+
+        private Match(Status status, Operation operation, String allowedMethods, String[] paramValues) {
+            this.status = status;
+            this.operation = operation;
+            this.allowedMethods = allowedMethods;
+            this.paramValues = paramValues;
+        }
+
+        Status status() {
+            return status;
+        }
+
+        Operation operation() {
+            return operation;
+        }
+
+        String allowedMethods() {
+            return allowedMethods;
+        }
+
+        /** Path parameters keyed by label name, or {@code null} when the route has none. */
+        Map<String, String> pathParameters() {
+            if (paramValues == null) {
+                return null;
+            }
+            String[] names = operation.paramNames;
+            if (names.length == 1) {
+                return Collections.singletonMap(names[0], paramValues[0]);
+            }
+            Map<String, String> params = new HashMap<>();
+            for (int i = 0; i < names.length; i++) {
+                params.put(names[i], paramValues[i]);
+            }
+            return params;
+        }
+    }
+
+    private final Node root;
+    private final int maxParams;
+
+    private RouteTable(Node root, int maxParams) {
+        this.root = root;
+        this.maxParams = maxParams;
+    }
+
+    static Builder builder(Map<String, RouteHandler> handlers) {
+        return new Builder(handlers);
+    }
+
+    Match match(String method, String path) {
+        if (path == null || path.isEmpty() || path.charAt(0) != '/') {
+            return Match.NOT_FOUND;
+        }
+
+        Node node = root;
+        String[] paramValues = null;
+        int paramCount = 0;
+        int length = path.length();
+        int start = 1;
+
+        while (start < length) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            if (end == start) {
+                return Match.NOT_FOUND;
+            }
+
+            Node next = node.lookup(path, start, end);
+            if (next == null) {
+                next = node.labelChild;
+                if (next == null) {
+                    return Match.NOT_FOUND;
+                }
+                if (paramValues == null) {
+                    paramValues = new String[maxParams];
+                }
+                paramValues[paramCount++] = path.substring(start, end);
+            }
+
+            node = next;
+            start = end + 1;
+            if (end == length - 1) {
+                // Trailing slash: "/v1/me/" is not "/v1/me".
+                return Match.NOT_FOUND;
+            }
+        }
+
+        if (node.operations.isEmpty()) {
+            return Match.NOT_FOUND;
+        }
+
+        ResolvedOperation resolved = node.operations.get(method);
+        if (resolved == null) {
+            return new Match(Status.METHOD_NOT_ALLOWED, null, node.allowedMethods, null);
+        }
+        if (paramCount == 0) {
+            return resolved.staticMatch;
+        }
+        return new Match(Status.FOUND, resolved.operation, null, paramValues);
+    }
+
+    static final class Builder {
+
+        private final Map<String, RouteHandler> handlers;
+        private final Set<String> bound = new HashSet<>();
+        private final BuildNode root = new BuildNode();
+        private int maxParams;
+
+        private Builder(Map<String, RouteHandler> handlers) {
+            this.handlers = handlers;
+        }
+
+        Builder add(String method, String uriPattern, String operationName, boolean authRequired) {
+            RouteHandler handler = handlers.get(operationName);
+            if (handler == null) {
+                throw new IllegalStateException("No handler bound for operation " + operationName);
+            }
+
+            BuildNode node = root;
+            List<String> paramNames = new ArrayList<>();
+            for (String segment : uriPattern.substring(1).split("/")) {
+                if (segment.startsWith("{") && segment.endsWith("}")) {
+                    String label = segment.substring(1, segment.length() - 1);
+                    if (node.labelChild == null) {
+                        node.labelChild = new BuildNode();
+                        node.labelName = label;
+                    } else if (!node.labelName.equals(label)) {
+                        throw new IllegalStateException("Conflicting labels {" + node.labelName + "} and {"
+                                + label + "} in " + uriPattern);
+                    }
+                    paramNames.add(label);
+                    node = node.labelChild;
+                } else {
+                    node = node.children.computeIfAbsent(segment, s -> new BuildNode());
+                }
+            }
+
+            if (node.operations.containsKey(method)) {
+                throw new IllegalStateException("Duplicate route " + method + " " + uriPattern);
+            }
+            node.operations.put(method, new Operation(operationName, authRequired, handler,
+                    paramNames.toArray(new String[0])));
+            maxParams = Math.max(maxParams, paramNames.size());
+            bound.add(operationName);
+            return this;
+        }
+
+        RouteTable build() {
+            Set<String> unbound = new TreeSet<>(handlers.keySet());
+            unbound.removeAll(bound);
+            if (!unbound.isEmpty()) {
+                throw new IllegalStateException("Handlers without a modeled route: " + unbound);
+            }
+            return new RouteTable(root.freeze(), maxParams);
+        }
+    }
+
+    private static final class BuildNode {
+        private final Map<String, BuildNode> children = new LinkedHashMap<>();
+        private final Map<String, Operation> operations = new LinkedHashMap<>();
+        private BuildNode labelChild;
+        private String labelName;
+
+        private Node freeze() {
+            Map<String, Node> frozenChildren = new LinkedHashMap<>();
+            for (Map.Entry<String, BuildNode> entry : children.entrySet()) {
+                frozenChildren.put(entry.getKey(), entry.getValue().freeze());
+            }
+            return new Node(frozenChildren, labelChild != null ? labelChild.freeze() : null, operations);
+        }
+    }
+
+    private static final class ResolvedOperation {
+        private final Operation operation;
+        private final Match staticMatch;
+
+        private ResolvedOperation(Operation operation) {
+            this.operation = operation;
+            this.staticMatch = new Match(Status.FOUND, operation, null, null);
+        }
+    }
+
+    /**
+     * Frozen trie node. Static children live in an open-addressed table keyed
+     * by the segment's {@link String#hashCode()}, computed directly over the
+     * path region so a lookup never materializes the segment.
+     */
+    private static final class Node {
+        private final String[] keys;
+        private final Node[] values;
+        private final int mask;
+        private final Node labelChild;
+        private final Map<String, ResolvedOperation> operations;
+        private final String allowedMethods;
+
+        private Node(Map<String, Node> children, Node labelChild, Map<String, Operation> operations) {
+            int capacity = Integer.highestOneBit(Math.max(1, children.size() * 2 - 1)) << 1;
+            this.keys = new String[capacity];
+            this.values = new Node[capacity];
+            this.mask = capacity - 1;
+            for (Map.Entry<String, Node> entry : children.entrySet()) {
+                int index = spread(entry.getKey().hashCode()) & mask;
+                while (keys[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = entry.getKey();
+                values[index] = entry.getValue();
+            }
+
+            this.labelChild = labelChild;
+            this.operations = new HashMap<>();
+            for (Map.Entry<String, Operation> entry : operations.entrySet()) {
+                this.operations.put(entry.getKey(), new ResolvedOperation(entry.getValue()));
+            }
+            this.allowedMethods = String.join(", ", operations.keySet());
+        }
+
+        private Node lookup(String path, int start, int end) {
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + path.charAt(i);
+            }
+            int length = end - start;
+            int index = spread(hash) & mask;
+            String key;
+            while ((key = keys[index]) != null) {
+                if (key.length() == length && path.regionMatches(start, key, 0, length)) {
+                    return values[index];
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
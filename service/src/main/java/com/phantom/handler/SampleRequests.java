@@ -0,0 +1,61 @@
+package com.phantom.handler;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.phantom.priming.StubDynamoDbAsyncClient;
+import com.phantom.util.Constants;
+import com.phantom.util.RequestBuilder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One representative request per modeled operation, shaped to hit the happy
+ * path against the priming stubs. Shared by SnapStart priming and the JMH
+ * benchmarks so both exercise the same request mix.
+ */
+final class SampleRequests {
+
+    private SampleRequests() {
+    }
+
+    /** Fresh events keyed by Smithy operation name, in route order. */
+    static Map<String, APIGatewayV2HTTPEvent> byOperation(String userId) {
+        String ghostPath = "/v1/ghosts/" + StubDynamoDbAsyncClient.GHOST_ID;
+        Map<String, String> symbol = Map.of("symbol", "AAPL");
+        Map<String, String> candles = Map.of("symbol", "AAPL", "interval", "1day", "range", "1y");
+
+        Map<String, APIGatewayV2HTTPEvent> events = new LinkedHashMap<>();
+        events.put("GetHealth", RequestBuilder.build("GET", "/v1/health", null, null, null));
+        events.put("GetUser", RequestBuilder.build("GET", "/v1/me", null, null, userId));
+        events.put("UpdateUser", RequestBuilder.build("PATCH", "/v1/me", null,
+                "{\"timezone\":\"America/New_York\",\"settings\":{\"notifications\":true}}", userId));
+        events.put("DeleteUser", RequestBuilder.build("DELETE", "/v1/me", null, null, userId));
+        events.put("ListGhosts", RequestBuilder.build("GET", "/v1/ghosts", Map.of(Constants.REQUEST_KEY_LIMIT, "20"),
+                null, userId));
+        events.put("CreateGhost", RequestBuilder.build("POST", "/v1/ghosts", null,
+                "{\"ticker\":\"AAPL\",\"direction\":\"BUY\",\"priceSource\":\"MANUAL\",\"intendedPrice\":187.5,"
+                        + "\"quantityType\":\"SHARES\",\"intendedShares\":10,\"hesitationTags\":[\"fomo\"],"
+                        + "\"noteText\":\"priming\",\"emotionStress\":0.4,\"emotionSentiment\":0.6}",
+                userId));
+        events.put("GetGhost", RequestBuilder.build("GET", ghostPath, null, null, userId));
+        events.put("UpdateGhost", RequestBuilder.build("PATCH", ghostPath, null, "{\"status\":\"CLOSED\",\"noteText\":\"done\"}",
+                userId));
+        events.put("GetDashboardSummary", RequestBuilder.build("GET", "/v1/dashboard/summary", null, null, userId));
+        events.put("GetBootstrap", RequestBuilder.build("GET", "/v1/bootstrap", Map.of(Constants.REQUEST_KEY_LIMIT, "20"),
+                null, userId));
+        events.put("GetAchievements", RequestBuilder.build("GET", "/v1/achievements", null, null, userId));
+        events.put("GetStreaks", RequestBuilder.build("GET", "/v1/streaks", null, null, userId));
+        events.put("ValidateTicker", RequestBuilder.build("GET", "/v1/market/validate", symbol, null, userId));
+        events.put("GetMarketQuote", RequestBuilder.build("GET", "/v1/market/quote", symbol, null, userId));
+        events.put("GetMarketQuotes", RequestBuilder.build("GET", "/v1/market/quotes",
+                Map.of("symbols", "AAPL,MSFT,SPY"), null, userId));
+        events.put("GetMarketCandles", RequestBuilder.build("GET", "/v1/market/candles", candles, null, userId));
+        events.put("GetInvestorDNA", RequestBuilder.build("GET", "/v1/investor-dna", null, null, userId));
+        events.put("ExecuteBatch", RequestBuilder.build("POST", "/v1/batch", null,
+                "{\"requests\":[{\"id\":\"me\",\"method\":\"GET\",\"path\":\"/v1/me\"},"
+                        + "{\"id\":\"ghosts\",\"method\":\"GET\",\"path\":\"/v1/ghosts\",\"query\":{\"limit\":\"20\"}},"
+                        + "{\"id\":\"streaks\",\"method\":\"GET\",\"path\":\"/v1/streaks\"}]}",
+                userId));
+        return events;
+    }
+}
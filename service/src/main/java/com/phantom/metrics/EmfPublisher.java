@@ -0,0 +1,110 @@
+package com.phantom.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+
+/**
+ * Writes a {@link RequestMetrics} as one CloudWatch Embedded Metric Format
+ * line. CloudWatch extracts the metrics from the log line itself, so per-route
+ * dashboards and alarms need no agent or PutMetricData calls. The line goes to
+ * the dedicated {@code EMF} logger, which log4j2.xml prints without a prefix
+ * because EMF requires each line to be a bare JSON object.
+ */
+public final class EmfPublisher {
+
+    private static final Logger emf = LoggerFactory.getLogger("EMF");
+    private static final String NAMESPACE = System.getenv().getOrDefault("METRICS_NAMESPACE", "Phantom");
+    private static final String UNMATCHED_ROUTE = "Unmatched";
+
+    private EmfPublisher() {
+    }
+
+    public static void publish(RequestMetrics metrics, int statusCode) {
+        if (!emf.isInfoEnabled()) {
+            return;
+        }
+        emf.info(format(metrics, statusCode));
+    }
+
+    static String format(RequestMetrics metrics, int statusCode) {
+        String route = metrics.route() != null ? metrics.route() : UNMATCHED_ROUTE;
+
+        StringBuilder definitions = new StringBuilder(256);
+        StringBuilder values = new StringBuilder(256);
+
+        appendMetric(definitions, values, "Latency", "Milliseconds", millis(metrics.elapsedNanos()));
+        for (RequestMetrics.Phase phase : RequestMetrics.Phase.values()) {
+            // Phases a route never touches are left out rather than reported as zero,
+            // so dependency percentiles only cover requests that used the dependency.
+            if (metrics.phaseCalls(phase) > 0) {
+                appendMetric(definitions, values, phase.metricName(), "Milliseconds",
+                        millis(metrics.phaseNanos(phase)));
+            }
+        }
+        if (metrics.cacheHits() + metrics.cacheMisses() > 0) {
+            appendMetric(definitions, values, "CacheHits", "Count", Long.toString(metrics.cacheHits()));
+            appendMetric(definitions, values, "CacheMisses", "Count", Long.toString(metrics.cacheMisses()));
+        }
+        if (metrics.localCacheHits() + metrics.localCacheMisses() > 0) {
+            appendMetric(definitions, values, "LocalCacheHits", "Count", Long.toString(metrics.localCacheHits()));
+            appendMetric(definitions, values, "LocalCacheMisses", "Count", Long.toString(metrics.localCacheMisses()));
+        }
+        if (metrics.localCacheEvictions() > 0) {
+            appendMetric(definitions, values, "LocalCacheEvictions", "Count", Long.toString(metrics.localCacheEvictions()));
+        }
+        if (metrics.hedgedReads() > 0) {
+            appendMetric(definitions, values, "HedgedReads", "Count", Long.toString(metrics.hedgedReads()));
+        }
+
+        StringBuilder line = new StringBuilder(512);
+        line.append("{\"_aws\":{\"Timestamp\":").append(metrics.startEpochMs())
+                .append(",\"CloudWatchMetrics\":[{\"Namespace\":");
+        appendString(line, NAMESPACE);
+        line.append(",\"Dimensions\":[[\"Route\"]],\"Metrics\":[").append(definitions).append("]}]}");
+        line.append(",\"Route\":");
+        appendString(line, route);
+        line.append(",\"StatusCode\":").append(statusCode);
+        line.append(",\"Method\":");
+        appendString(line, metrics.method());
+        line.append(",\"Path\":");
+        appendString(line, metrics.path());
+        line.append(",\"RequestId\":");
+        appendString(line, metrics.requestId());
+        line.append(values).append('}');
+        return line.toString();
+    }
+
+    private static void appendMetric(StringBuilder definitions, StringBuilder values, String name, String unit,
+                                     String value) {
+        if (definitions.length() > 0) {
+            definitions.append(',');
+        }
+        definitions.append("{\"Name\":\"").append(name).append("\",\"Unit\":\"").append(unit).append("\"}");
+        values.append(",\"").append(name).append("\":").append(value);
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    private static void appendString(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,203 @@
+package com.phantom.metrics;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Timing context for one API request. {@link #start} binds it to the calling
+ * thread, and code anywhere below the handler reaches it through
+ * {@link #current()} without it being passed along explicitly. Work handed to
+ * other threads either captures the context before it leaves (see
+ * {@link #timeAsync}) or carries it over with {@link #wrap}.
+ *
+ * Phase times are the sum of every call in that phase, so concurrent calls
+ * can add up to more than the request's wall-clock latency.
+ */
+public final class RequestMetrics {
+
+    public enum Phase {
+        DYNAMODB("DynamoDbTime"),
+        UPSTREAM_HTTP("UpstreamHttpTime"),
+        LLM("LlmTime"),
+        SERIALIZATION("SerializationTime");
+
+        private final String metricName;
+
+        Phase(String metricName) {
+            this.metricName = metricName;
+        }
+
+        public String metricName() {
+            return metricName;
+        }
+    }
+
+    private static final ThreadLocal<RequestMetrics> CURRENT = new ThreadLocal<>();
+    // Absorbs recordings made outside a request, e.g. during initialization.
+    private static final RequestMetrics DETACHED = new RequestMetrics(null, null, null);
+    private static final int PHASES = Phase.values().length;
+
+    private final String method;
+    private final String path;
+    private final String requestId;
+    private final long startNanos = System.nanoTime();
+    private final long startEpochMs = System.currentTimeMillis();
+    private final LongAdder[] phaseNanos = new LongAdder[PHASES];
+    private final LongAdder[] phaseCalls = new LongAdder[PHASES];
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder hedgedReads = new LongAdder();
+    private final LongAdder localCacheHits = new LongAdder();
+    private final LongAdder localCacheMisses = new LongAdder();
+    private final LongAdder localCacheEvictions = new LongAdder();
+    private volatile String route;
+
+    private RequestMetrics(String method, String path, String requestId) {
+        this.method = method;
+        this.path = path;
+        this.requestId = requestId;
+        for (int i = 0; i < PHASES; i++) {
+            phaseNanos[i] = new LongAdder();
+            phaseCalls[i] = new LongAdder();
+        }
+    }
+
+    public static RequestMetrics start(String method, String path, String requestId) {
+        RequestMetrics metrics = new RequestMetrics(method, path, requestId);
+        CURRENT.set(metrics);
+        return metrics;
+    }
+
+    public static RequestMetrics current() {
+        RequestMetrics metrics = CURRENT.get();
+        return metrics != null ? metrics : DETACHED;
+    }
+
+    /** Unbinds this context from the calling thread. */
+    public void close() {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Names the matched route. The first caller wins, so batch sub-requests
+     * dispatched under a batch's context don't relabel it.
+     */
+    public void route(String route) {
+        if (this.route == null) {
+            this.route = route;
+        }
+    }
+
+    public void record(Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()].add(nanos);
+        phaseCalls[phase.ordinal()].increment();
+    }
+
+    public <T> CompletableFuture<T> timeAsync(Phase phase, Supplier<CompletableFuture<T>> call) {
+        long start = System.nanoTime();
+        return call.get().whenComplete((result, error) -> record(phase, System.nanoTime() - start));
+    }
+
+    public void cacheHit() {
+        cacheHits.increment();
+    }
+
+    public void cacheMiss() {
+        cacheMisses.increment();
+    }
+
+    /** Counts a read served by the in-process tier in front of the cache table. */
+    public void localCacheHit() {
+        localCacheHits.increment();
+    }
+
+    public void localCacheMiss() {
+        localCacheMisses.increment();
+    }
+
+    public void localCacheEvictions(int count) {
+        localCacheEvictions.add(count);
+    }
+
+    /** Counts a backup read sent because the first one was slow. */
+    public void hedgedRead() {
+        hedgedReads.increment();
+    }
+
+    /** Runs {@code task} with this context bound to whichever thread executes it. */
+    public <T> Callable<T> wrap(Callable<T> task) {
+        return () -> {
+            RequestMetrics previous = CURRENT.get();
+            CURRENT.set(this);
+            try {
+                return task.call();
+            } finally {
+                if (previous != null) {
+                    CURRENT.set(previous);
+                } else {
+                    CURRENT.remove();
+                }
+            }
+        };
+    }
+
+    String method() {
+        return method;
+    }
+
+    String path() {
+        return path;
+    }
+
+    String requestId() {
+        return requestId;
+    }
+
+    String route() {
+        return route;
+    }
+
+    long startEpochMs() {
+        return startEpochMs;
+    }
+
+    long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    long phaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()].sum();
+    }
+
+    long phaseCalls(Phase phase) {
+        return phaseCalls[phase.ordinal()].sum();
+    }
+
+    long cacheHits() {
+        return cacheHits.sum();
+    }
+
+    long cacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    long localCacheHits() {
+        return localCacheHits.sum();
+    }
+
+    long localCacheMisses() {
+        return localCacheMisses.sum();
+    }
+
+    long localCacheEvictions() {
+        return localCacheEvictions.sum();
+    }
+
+    long hedgedReads() {
+        return hedgedReads.sum();
+    }
+}
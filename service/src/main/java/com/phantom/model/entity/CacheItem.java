@@ -7,6 +7,13 @@ import lombok.NoArgsConstructor;
 
 import java.util.Map;
 
+/**
+ * Cached upstream response with two lifetimes, both in epoch seconds:
+ * until {@code staleAt} the payload is fresh; between {@code staleAt} and
+ * {@code expiresAt} it may still be served while a refresh runs; after
+ * {@code expiresAt} it is gone (the table's TTL attribute). Items written
+ * without {@code staleAt} are fresh until they expire.
+ */
 @Data
 @Builder
 @NoArgsConstructor
@@ -16,6 +23,16 @@ public class CacheItem {
     private String sk;
     private Map<String, Object> payload;
     private String fetchedAt;
+    private Long staleAt;
     private Long expiresAt;
     private String source;
+
+    public boolean isFresh(long nowEpochSeconds) {
+        Long freshUntil = staleAt != null ? staleAt : expiresAt;
+        return freshUntil != null && nowEpochSeconds < freshUntil;
+    }
+
+    public boolean isUsable(long nowEpochSeconds) {
+        return expiresAt != null && nowEpochSeconds < expiresAt;
+    }
 }
@@ -1,9 +1,11 @@
 package com.phantom.model.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.util.List;
 import java.util.Map;
@@ -34,4 +36,32 @@ public class Ghost {
     private Map<String, Object> loggedQuote;
     private Double emotionStress;     // 0.0 = calm, 1.0 = high stress
     private Double emotionSentiment;  // 0.0 = fear, 1.0 = greed
+    private Long version;             // bumped on every update; absent on ghosts written before versioning
+    @JsonIgnore
+    @ToString.Exclude
+    private transient PackedGhostAttributes packed;  // not yet decoded; plain attributes take precedence
+
+    public String getNoteText() {
+        unpack();
+        return noteText;
+    }
+
+    public Map<String, Object> getLoggedQuote() {
+        unpack();
+        return loggedQuote;
+    }
+
+    private void unpack() {
+        if (packed == null) {
+            return;
+        }
+        PackedGhostAttributes attributes = packed;
+        packed = null;
+        if (noteText == null) {
+            noteText = attributes.noteText();
+        }
+        if (loggedQuote == null) {
+            loggedQuote = attributes.loggedQuote();
+        }
+    }
 }
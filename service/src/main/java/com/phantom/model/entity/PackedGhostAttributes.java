@@ -0,0 +1,14 @@
+package com.phantom.model.entity;
+
+import java.util.Map;
+
+/**
+ * Ghost attributes read from storage in compressed form. Decoding is
+ * deferred until {@link Ghost} first needs one of them.
+ */
+public interface PackedGhostAttributes {
+
+    Map<String, Object> loggedQuote();
+
+    String noteText();
+}
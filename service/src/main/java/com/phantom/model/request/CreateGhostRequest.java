@@ -0,0 +1,96 @@
+package com.phantom.model.request;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.phantom.util.Constants;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Body of {@code POST /v1/ghosts}. Required fields and their combinations are
+ * checked in the creator, so a request that binds successfully is ready for
+ * {@code GhostService} and a bad one is rejected before any market data or
+ * DynamoDB call.
+ */
+@Getter
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CreateGhostRequest {
+
+    private static final Set<String> DIRECTIONS = Set.of(Constants.DIRECTION_BUY, Constants.DIRECTION_SELL);
+    private static final Set<String> PRICE_SOURCES = Set.of(Constants.PRICE_SOURCE_MARKET_CURRENT,
+            Constants.PRICE_SOURCE_MARKET_HISTORICAL, Constants.PRICE_SOURCE_MANUAL);
+
+    private final String ticker;
+    private final String direction;
+    private final String priceSource;
+    private final String quantityType;
+    private final Double intendedSize;
+    private final Double intendedPrice;
+    private final Long consideredAtEpochMs;
+    private final List<String> hesitationTags;
+    private final String noteText;
+    private final String voiceKey;
+    private final Double emotionStress;
+    private final Double emotionSentiment;
+
+    @JsonCreator
+    public CreateGhostRequest(
+            @JsonProperty(Constants.REQUEST_KEY_TICKER) String ticker,
+            @JsonProperty(Constants.REQUEST_KEY_DIRECTION) String direction,
+            @JsonProperty(Constants.REQUEST_KEY_PRICE_SOURCE) String priceSource,
+            @JsonProperty(Constants.REQUEST_KEY_QUANTITY_TYPE) String quantityType,
+            @JsonProperty(Constants.REQUEST_KEY_INTENDED_SHARES) Double intendedShares,
+            @JsonProperty(Constants.REQUEST_KEY_INTENDED_DOLLARS) Double intendedDollars,
+            @JsonProperty(Constants.REQUEST_KEY_INTENDED_PRICE) Double intendedPrice,
+            @JsonProperty(Constants.REQUEST_KEY_CONSIDERED_AT) Long consideredAtEpochMs,
+            @JsonProperty(Constants.REQUEST_KEY_HESITATION_TAGS) List<String> hesitationTags,
+            @JsonProperty(Constants.REQUEST_KEY_NOTE_TEXT) String noteText,
+            @JsonProperty(Constants.REQUEST_KEY_VOICE_KEY) String voiceKey,
+            @JsonProperty(Constants.REQUEST_KEY_EMOTION_STRESS) Double emotionStress,
+            @JsonProperty(Constants.REQUEST_KEY_EMOTION_SENTIMENT) Double emotionSentiment) {
+        if (ticker == null || ticker.isBlank()) {
+            throw new IllegalArgumentException("ticker is required");
+        }
+        if (!DIRECTIONS.contains(direction)) {
+            throw new IllegalArgumentException("Invalid direction: " + direction);
+        }
+        if (!PRICE_SOURCES.contains(priceSource)) {
+            throw new IllegalArgumentException("Invalid priceSource: " + priceSource);
+        }
+        if (Constants.PRICE_SOURCE_MARKET_HISTORICAL.equals(priceSource) && consideredAtEpochMs == null) {
+            throw new IllegalArgumentException("consideredAtEpochMs required for MARKET_HISTORICAL");
+        }
+        if (Constants.PRICE_SOURCE_MANUAL.equals(priceSource) && intendedPrice == null) {
+            throw new IllegalArgumentException("intendedPrice required for MANUAL price source");
+        }
+
+        if (Constants.QUANTITY_TYPE_SHARES.equals(quantityType)) {
+            if (intendedShares == null) {
+                throw new IllegalArgumentException("intendedShares required when quantityType is SHARES");
+            }
+            this.intendedSize = intendedShares;
+        } else if (Constants.QUANTITY_TYPE_DOLLARS.equals(quantityType)) {
+            if (intendedDollars == null) {
+                throw new IllegalArgumentException("intendedDollars required when quantityType is DOLLARS");
+            }
+            this.intendedSize = intendedDollars;
+        } else {
+            throw new IllegalArgumentException("Invalid quantityType: " + quantityType);
+        }
+
+        this.ticker = ticker;
+        this.direction = direction;
+        this.priceSource = priceSource;
+        this.quantityType = quantityType;
+        this.intendedPrice = intendedPrice;
+        this.consideredAtEpochMs = consideredAtEpochMs;
+        this.hesitationTags = hesitationTags;
+        this.noteText = noteText;
+        this.voiceKey = voiceKey;
+        this.emotionStress = emotionStress;
+        this.emotionSentiment = emotionSentiment;
+    }
+}
@@ -0,0 +1,36 @@
+package com.phantom.model.request;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.phantom.util.Constants;
+import lombok.Getter;
+
+/**
+ * Body of {@code PATCH /v1/ghosts/{ghostId}}. Every field is optional; absent
+ * fields are left unchanged.
+ */
+@Getter
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class UpdateGhostRequest {
+
+    private final String status;
+    private final String noteText;
+    private final Double emotionStress;
+    private final Double emotionSentiment;
+
+    @JsonCreator
+    public UpdateGhostRequest(
+            @JsonProperty(Constants.REQUEST_KEY_STATUS) String status,
+            @JsonProperty(Constants.REQUEST_KEY_NOTE_TEXT) String noteText,
+            @JsonProperty(Constants.REQUEST_KEY_EMOTION_STRESS) Double emotionStress,
+            @JsonProperty(Constants.REQUEST_KEY_EMOTION_SENTIMENT) Double emotionSentiment) {
+        if (status != null && !Constants.STATUS_OPEN.equals(status) && !Constants.STATUS_CLOSED.equals(status)) {
+            throw new IllegalArgumentException("Invalid status: " + status);
+        }
+        this.status = status;
+        this.noteText = noteText;
+        this.emotionStress = emotionStress;
+        this.emotionSentiment = emotionSentiment;
+    }
+}
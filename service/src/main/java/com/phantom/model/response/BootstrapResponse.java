@@ -0,0 +1,18 @@
+package com.phantom.model.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Everything the app shows at launch: the same views as {@code /v1/me},
+ * {@code /v1/dashboard/summary} and the first page of {@code /v1/ghosts}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BootstrapResponse {
+    private UserProfileResponse user;
+    private DashboardSummaryResponse dashboard;
+    private GhostListResponse ghosts;
+}
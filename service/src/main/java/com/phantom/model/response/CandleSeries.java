@@ -0,0 +1,230 @@
+package com.phantom.model.response;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.phantom.util.Constants;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OHLCV bars held column by column in primitive arrays, so a series of a
+ * thousand bars is six arrays rather than a thousand objects of boxed fields.
+ * {@link CandleSeriesSerializer} streams it as the usual array of candle
+ * objects or, for clients that ask, as compact
+ * {@code [epochMs, open, high, low, close, volume]} rows.
+ *
+ * Instances are not modified once built and may be shared.
+ */
+@JsonSerialize(using = CandleSeriesSerializer.class)
+public final class CandleSeries {
+
+    private static final String COLUMN_EPOCH_MS = "epochMs";
+
+    private final int size;
+    private final long[] epochMs;
+    private final double[] open;
+    private final double[] high;
+    private final double[] low;
+    private final double[] close;
+    private final long[] volume;
+    private final boolean compact;
+
+    private CandleSeries(int size, long[] epochMs, double[] open, double[] high, double[] low, double[] close,
+                         long[] volume, boolean compact) {
+        this.size = size;
+        this.epochMs = epochMs;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+        this.compact = compact;
+    }
+
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    public static CandleSeries empty() {
+        return builder(0).build();
+    }
+
+    /** The same bars, serialized as compact rows. */
+    public CandleSeries compact() {
+        return compact ? this : new CandleSeries(size, epochMs, open, high, low, close, volume, true);
+    }
+
+    public boolean isCompact() {
+        return compact;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long epochMs(int index) {
+        return epochMs[index];
+    }
+
+    public double open(int index) {
+        return open[index];
+    }
+
+    public double high(int index) {
+        return high[index];
+    }
+
+    public double low(int index) {
+        return low[index];
+    }
+
+    public double close(int index) {
+        return close[index];
+    }
+
+    public long volume(int index) {
+        return volume[index];
+    }
+
+    /**
+     * Map form stored in the cache item payload: one list per column, which
+     * spares DynamoDB the per-bar attribute names of a list of maps.
+     */
+    Map<String, Object> toPayload() {
+        List<Object> epochMsColumn = new ArrayList<>(size);
+        List<Object> openColumn = new ArrayList<>(size);
+        List<Object> highColumn = new ArrayList<>(size);
+        List<Object> lowColumn = new ArrayList<>(size);
+        List<Object> closeColumn = new ArrayList<>(size);
+        List<Object> volumeColumn = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            epochMsColumn.add(epochMs[i]);
+            openColumn.add(open[i]);
+            highColumn.add(high[i]);
+            lowColumn.add(low[i]);
+            closeColumn.add(close[i]);
+            volumeColumn.add(volume[i]);
+        }
+
+        Map<String, Object> payload = new HashMap<>();
+        payload.put(COLUMN_EPOCH_MS, epochMsColumn);
+        payload.put(Constants.CANDLE_KEY_OPEN, openColumn);
+        payload.put(Constants.CANDLE_KEY_HIGH, highColumn);
+        payload.put(Constants.CANDLE_KEY_LOW, lowColumn);
+        payload.put(Constants.CANDLE_KEY_CLOSE, closeColumn);
+        payload.put(Constants.CANDLE_KEY_VOLUME, volumeColumn);
+        return payload;
+    }
+
+    static CandleSeries fromPayload(Map<?, ?> payload) {
+        List<?> epochMsColumn = column(payload, COLUMN_EPOCH_MS);
+        List<?> openColumn = column(payload, Constants.CANDLE_KEY_OPEN);
+        List<?> highColumn = column(payload, Constants.CANDLE_KEY_HIGH);
+        List<?> lowColumn = column(payload, Constants.CANDLE_KEY_LOW);
+        List<?> closeColumn = column(payload, Constants.CANDLE_KEY_CLOSE);
+        List<?> volumeColumn = column(payload, Constants.CANDLE_KEY_VOLUME);
+
+        Builder builder = builder(epochMsColumn.size());
+        for (int i = 0; i < epochMsColumn.size(); i++) {
+            builder.add(number(epochMsColumn, i).longValue(),
+                    number(openColumn, i).doubleValue(),
+                    number(highColumn, i).doubleValue(),
+                    number(lowColumn, i).doubleValue(),
+                    number(closeColumn, i).doubleValue(),
+                    number(volumeColumn, i).longValue());
+        }
+        return builder.build();
+    }
+
+    /** Reads the list-of-candle-maps payload cached before series were columnar. */
+    static CandleSeries fromCandlePayloads(List<?> candles) {
+        Builder builder = builder(candles.size());
+        for (Object candle : candles) {
+            if (candle instanceof Map) {
+                Map<?, ?> fields = (Map<?, ?>) candle;
+                Object datetime = fields.get(Constants.CANDLE_KEY_DATETIME);
+                builder.add(datetime instanceof String ? Instant.parse((String) datetime).toEpochMilli() : 0,
+                        number(fields.get(Constants.CANDLE_KEY_OPEN)).doubleValue(),
+                        number(fields.get(Constants.CANDLE_KEY_HIGH)).doubleValue(),
+                        number(fields.get(Constants.CANDLE_KEY_LOW)).doubleValue(),
+                        number(fields.get(Constants.CANDLE_KEY_CLOSE)).doubleValue(),
+                        number(fields.get(Constants.CANDLE_KEY_VOLUME)).longValue());
+            }
+        }
+        return builder.build();
+    }
+
+    private static List<?> column(Map<?, ?> payload, String name) {
+        Object column = payload.get(name);
+        return column instanceof List ? (List<?>) column : List.of();
+    }
+
+    private static Number number(List<?> column, int index) {
+        return index < column.size() ? number(column.get(index)) : 0;
+    }
+
+    private static Number number(Object value) {
+        return value instanceof Number ? (Number) value : 0;
+    }
+
+    /** Appends bars to growing columns; {@link #build()} trims them to size. */
+    public static final class Builder {
+        private int size;
+        private long[] epochMs;
+        private double[] open;
+        private double[] high;
+        private double[] low;
+        private double[] close;
+        private long[] volume;
+
+        private Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 0);
+            this.epochMs = new long[capacity];
+            this.open = new double[capacity];
+            this.high = new double[capacity];
+            this.low = new double[capacity];
+            this.close = new double[capacity];
+            this.volume = new long[capacity];
+        }
+
+        public Builder add(long epochMs, double open, double high, double low, double close, long volume) {
+            if (size == this.epochMs.length) {
+                grow();
+            }
+            this.epochMs[size] = epochMs;
+            this.open[size] = open;
+            this.high[size] = high;
+            this.low[size] = low;
+            this.close[size] = close;
+            this.volume[size] = volume;
+            size++;
+            return this;
+        }
+
+        public CandleSeries build() {
+            if (size < epochMs.length) {
+                epochMs = Arrays.copyOf(epochMs, size);
+                open = Arrays.copyOf(open, size);
+                high = Arrays.copyOf(high, size);
+                low = Arrays.copyOf(low, size);
+                close = Arrays.copyOf(close, size);
+                volume = Arrays.copyOf(volume, size);
+            }
+            return new CandleSeries(size, epochMs, open, high, low, close, volume, false);
+        }
+
+        private void grow() {
+            int capacity = Math.max(16, epochMs.length * 2);
+            epochMs = Arrays.copyOf(epochMs, capacity);
+            open = Arrays.copyOf(open, capacity);
+            high = Arrays.copyOf(high, capacity);
+            low = Arrays.copyOf(low, capacity);
+            close = Arrays.copyOf(close, capacity);
+            volume = Arrays.copyOf(volume, capacity);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.phantom.model.response;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.phantom.util.Constants;
+
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Writes a {@link CandleSeries} straight from its columns, with no
+ * per-bar objects and no bean introspection. The default shape matches the
+ * candle objects the API has always returned:
+ * {@code {"datetime","open","high","low","close","volume"}}. Compact series
+ * are written as {@code [epochMs, open, high, low, close, volume]} rows.
+ */
+public final class CandleSeriesSerializer extends StdSerializer<CandleSeries> {
+
+    private static final SerializedString DATETIME = new SerializedString(Constants.CANDLE_KEY_DATETIME);
+    private static final SerializedString OPEN = new SerializedString(Constants.CANDLE_KEY_OPEN);
+    private static final SerializedString HIGH = new SerializedString(Constants.CANDLE_KEY_HIGH);
+    private static final SerializedString LOW = new SerializedString(Constants.CANDLE_KEY_LOW);
+    private static final SerializedString CLOSE = new SerializedString(Constants.CANDLE_KEY_CLOSE);
+    private static final SerializedString VOLUME = new SerializedString(Constants.CANDLE_KEY_VOLUME);
+
+    public CandleSeriesSerializer() {
+        super(CandleSeries.class);
+    }
+
+    @Override
+    public void serialize(CandleSeries series, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        int size = series.size();
+        gen.writeStartArray(series, size);
+        if (series.isCompact()) {
+            for (int i = 0; i < size; i++) {
+                gen.writeStartArray(null, 6);
+                gen.writeNumber(series.epochMs(i));
+                gen.writeNumber(series.open(i));
+                gen.writeNumber(series.high(i));
+                gen.writeNumber(series.low(i));
+                gen.writeNumber(series.close(i));
+                gen.writeNumber(series.volume(i));
+                gen.writeEndArray();
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                gen.writeStartObject();
+                gen.writeFieldName(DATETIME);
+                gen.writeString(Instant.ofEpochMilli(series.epochMs(i)).toString());
+                gen.writeFieldName(OPEN);
+                gen.writeNumber(series.open(i));
+                gen.writeFieldName(HIGH);
+                gen.writeNumber(series.high(i));
+                gen.writeFieldName(LOW);
+                gen.writeNumber(series.low(i));
+                gen.writeFieldName(CLOSE);
+                gen.writeNumber(series.close(i));
+                gen.writeFieldName(VOLUME);
+                gen.writeNumber(series.volume(i));
+                gen.writeEndObject();
+            }
+        }
+        gen.writeEndArray();
+    }
+}
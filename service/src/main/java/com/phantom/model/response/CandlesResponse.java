@@ -0,0 +1,60 @@
+package com.phantom.model.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.phantom.util.Constants;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonPropertyOrder({"symbol", "interval", "candles", "fetchedAt", "stale"})
+public class CandlesResponse {
+    private String symbol;
+    private String interval;
+    private CandleSeries candles;
+    private String fetchedAt;
+    /** Set when served past the cache TTL while a refresh runs; omitted otherwise. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean stale;
+
+    public CandlesResponse(String symbol, String interval, CandleSeries candles, String fetchedAt) {
+        this(symbol, interval, candles, fetchedAt, null);
+    }
+
+    /** Map form stored as the cache item payload. */
+    public Map<String, Object> toPayload() {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put(Constants.QUOTE_KEY_SYMBOL, symbol);
+        payload.put(Constants.CANDLE_KEY_INTERVAL, interval);
+        payload.put(Constants.CANDLE_KEY_SERIES, candles.toPayload());
+        payload.put(Constants.QUOTE_KEY_FETCHED_AT, fetchedAt);
+        return payload;
+    }
+
+    /** Reads both the columnar payload and the list of candle maps cached before it. */
+    public static CandlesResponse fromPayload(Map<String, Object> payload) {
+        CandleSeries candles;
+        Object series = payload.get(Constants.CANDLE_KEY_SERIES);
+        Object candlePayloads = payload.get(Constants.CANDLE_KEY_CANDLES);
+        if (series instanceof Map) {
+            candles = CandleSeries.fromPayload((Map<?, ?>) series);
+        } else if (candlePayloads instanceof List) {
+            candles = CandleSeries.fromCandlePayloads((List<?>) candlePayloads);
+        } else {
+            candles = CandleSeries.empty();
+        }
+
+        return new CandlesResponse(
+                (String) payload.get(Constants.QUOTE_KEY_SYMBOL),
+                (String) payload.get(Constants.CANDLE_KEY_INTERVAL),
+                candles,
+                (String) payload.get(Constants.QUOTE_KEY_FETCHED_AT));
+    }
+}
@@ -0,0 +1,29 @@
+package com.phantom.model.response;
+
+import com.phantom.model.entity.DashboardSummary;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DashboardSummaryResponse {
+    private Integer ghostCountTotal;
+    private Integer ghostCount30d;
+    private Long lastGhostAtEpochMs;
+    private Integer streakDays;
+    private List<Map<String, Object>> topHesitationTags30d;
+
+    public static DashboardSummaryResponse from(DashboardSummary summary) {
+        return new DashboardSummaryResponse(
+                summary.getGhostCountTotal(),
+                summary.getGhostCount30d(),
+                summary.getLastGhostAtEpochMs(),
+                summary.getStreakDays(),
+                summary.getTopHesitationTags30d());
+    }
+}
@@ -0,0 +1,17 @@
+package com.phantom.model.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GhostListResponse {
+    private List<GhostResponse> ghosts;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextToken;
+}
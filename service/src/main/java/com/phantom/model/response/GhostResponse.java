@@ -0,0 +1,63 @@
+package com.phantom.model.response;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.phantom.model.entity.Ghost;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonPropertyOrder({"ghostId", "userId", "createdAtEpochMs", "ticker", "direction", "priceSource", "quantityType",
+        "intendedPrice", "intendedShares", "intendedDollars", "consideredAtEpochMs", "hesitationTags", "noteText",
+        "voiceKey", "status", "loggedQuote", "emotionStress", "emotionSentiment", "version"})
+public class GhostResponse {
+    private String ghostId;
+    private String userId;
+    private Long createdAtEpochMs;
+    private String ticker;
+    private String direction;
+    private String priceSource;
+    private String quantityType;
+    private Double intendedPrice;
+    private Double intendedShares;
+    private Double intendedDollars;
+    private Long consideredAtEpochMs;
+    private List<String> hesitationTags;
+    private String noteText;
+    private String voiceKey;
+    private String status;
+    private Map<String, Object> loggedQuote;
+    private Double emotionStress;
+    private Double emotionSentiment;
+    private Long version;
+
+    public static GhostResponse from(Ghost ghost) {
+        return new GhostResponse(
+                ghost.getGhostId(),
+                ghost.getUserId(),
+                ghost.getCreatedAtEpochMs(),
+                ghost.getTicker(),
+                ghost.getDirection(),
+                ghost.getPriceSource(),
+                ghost.getQuantityType(),
+                ghost.getIntendedPrice(),
+                ghost.getIntendedShares(),
+                ghost.getIntendedDollars(),
+                ghost.getConsideredAtEpochMs(),
+                ghost.getHesitationTags(),
+                ghost.getNoteText(),
+                ghost.getVoiceKey(),
+                ghost.getStatus(),
+                ghost.getLoggedQuote(),
+                ghost.getEmotionStress(),
+                ghost.getEmotionSentiment(),
+                ghost.getVersion());
+    }
+}
@@ -0,0 +1,23 @@
+package com.phantom.model.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonPropertyOrder({"symbol", "price", "providerTs", "fetchedAt", "stale"})
+public class QuoteResponse {
+    private String symbol;
+    private Double price;
+    private String providerTs;
+    private String fetchedAt;
+    /** Set when served past the cache TTL while a refresh runs; omitted otherwise. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean stale;
+}
@@ -0,0 +1,20 @@
+package com.phantom.model.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Quotes for several symbols in the order requested, each shaped like a
+ * {@code /v1/market/quote} response. Symbols with no quote are listed in
+ * {@code missing} instead.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuotesResponse {
+    private List<QuoteResponse> quotes;
+    private List<String> missing;
+}
@@ -0,0 +1,28 @@
+package com.phantom.model.response;
+
+import com.phantom.model.entity.UserProfile;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserProfileResponse {
+    private String userId;
+    private String createdAt;
+    private String timezone;
+    private String plan;
+    private Map<String, Object> settings;
+
+    public static UserProfileResponse from(UserProfile profile) {
+        return new UserProfileResponse(
+                profile.getUserId(),
+                profile.getCreatedAt(),
+                profile.getTimezone(),
+                profile.getPlan(),
+                profile.getSettings());
+    }
+}
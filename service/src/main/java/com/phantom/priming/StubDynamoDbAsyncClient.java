@@ -0,0 +1,187 @@
+package com.phantom.priming;
+
+import com.phantom.util.Constants;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * In-process stand-in for {@link DynamoDbAsyncClient} that answers every call with
+ * canned items shaped like the real tables. Used to drive the repositories'
+ * request-building and mapping code without touching the network.
+ */
+public class StubDynamoDbAsyncClient implements DynamoDbAsyncClient {
+
+    public static final String GHOST_ID = "00000000-0000-0000-0000-000000000001";
+    private static final long CREATED_AT_EPOCH_MS = 1_700_000_000_000L;
+    private static final int GHOSTS_PER_QUERY = 20;
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public CompletableFuture<GetItemResponse> getItem(GetItemRequest request) {
+        String pk = request.key().get(Constants.ATTR_PK).s();
+        String sk = request.key().get(Constants.ATTR_SK).s();
+
+        Map<String, AttributeValue> item;
+        if (Constants.SK_PROFILE.equals(sk)) {
+            item = userProfileItem(pk);
+        } else if (Constants.SK_DASHBOARD_SUMMARY.equals(sk)) {
+            item = dashboardSummaryItem(pk);
+        } else if (sk.startsWith(Constants.SK_GHOST_PREFIX)) {
+            item = ghostItem(pk, GHOST_ID, CREATED_AT_EPOCH_MS);
+        } else {
+            // Cache misses keep the market data path going through its fetch branch.
+            return CompletableFuture.completedFuture(GetItemResponse.builder().build());
+        }
+        return CompletableFuture.completedFuture(GetItemResponse.builder().item(item).build());
+    }
+
+    @Override
+    public CompletableFuture<PutItemResponse> putItem(PutItemRequest request) {
+        return CompletableFuture.completedFuture(PutItemResponse.builder().build());
+    }
+
+    @Override
+    public CompletableFuture<UpdateItemResponse> updateItem(UpdateItemRequest request) {
+        if (request.returnValues() == ReturnValue.ALL_NEW) {
+            String pk = request.key().get(Constants.ATTR_PK).s();
+            return CompletableFuture.completedFuture(UpdateItemResponse.builder()
+                    .attributes(ghostItem(pk, GHOST_ID, CREATED_AT_EPOCH_MS))
+                    .build());
+        }
+        return CompletableFuture.completedFuture(UpdateItemResponse.builder().build());
+    }
+
+    @Override
+    public CompletableFuture<DeleteItemResponse> deleteItem(DeleteItemRequest request) {
+        return CompletableFuture.completedFuture(DeleteItemResponse.builder().build());
+    }
+
+    @Override
+    public CompletableFuture<BatchGetItemResponse> batchGetItem(BatchGetItemRequest request) {
+        // Nothing cached, matching the getItem cache-miss path.
+        return CompletableFuture.completedFuture(BatchGetItemResponse.builder().build());
+    }
+
+    @Override
+    public CompletableFuture<BatchWriteItemResponse> batchWriteItem(BatchWriteItemRequest request) {
+        return CompletableFuture.completedFuture(BatchWriteItemResponse.builder().build());
+    }
+
+    @Override
+    public CompletableFuture<TransactWriteItemsResponse> transactWriteItems(TransactWriteItemsRequest request) {
+        return CompletableFuture.completedFuture(TransactWriteItemsResponse.builder().build());
+    }
+
+    @Override
+    public CompletableFuture<QueryResponse> query(QueryRequest request) {
+        if (Constants.GSI_GHOST_ID.equals(request.indexName())) {
+            // Exact-key index lookup: ghostId as the hash key, the user's pk as the range key.
+            String ghostId = request.expressionAttributeValues().get(":h").s();
+            String pk = request.expressionAttributeValues().get(":r").s();
+            Map<String, AttributeValue> item = ghostItem(pk, ghostId, CREATED_AT_EPOCH_MS);
+            return CompletableFuture.completedFuture(QueryResponse.builder().items(List.of(item)).count(1).build());
+        }
+
+        String pk = request.expressionAttributeValues().get(":pk").s();
+
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        if (!request.expressionAttributeValues().containsKey(":sk")) {
+            // An unprefixed query reads the head of the partition, where the profile sorts first.
+            items.add(userProfileItem(pk));
+        }
+        items.add(ghostItem(pk, GHOST_ID, CREATED_AT_EPOCH_MS));
+        for (int i = 1; i < GHOSTS_PER_QUERY; i++) {
+            items.add(ghostItem(pk, String.format("00000000-0000-0000-0000-%012d", i + 1), CREATED_AT_EPOCH_MS - i * 60_000L));
+        }
+        return CompletableFuture.completedFuture(QueryResponse.builder().items(items).count(items.size()).build());
+    }
+
+    private static Map<String, AttributeValue> userProfileItem(String pk) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put(Constants.ATTR_PK, s(pk));
+        item.put(Constants.ATTR_SK, s(Constants.SK_PROFILE));
+        item.put(Constants.ATTR_ENTITY_TYPE, s(Constants.ENTITY_TYPE_USER_PROFILE));
+        item.put(Constants.ATTR_USER_ID, s(pk.substring(Constants.PK_USER_PREFIX.length())));
+        item.put("createdAt", s("2024-01-01T00:00:00Z"));
+        item.put("plan", s(Constants.PLAN_FREE));
+        item.put("timezone", s("America/New_York"));
+
+        Map<String, AttributeValue> settings = new HashMap<>();
+        settings.put("notifications", AttributeValue.builder().bool(true).build());
+        item.put("settings", AttributeValue.builder().m(settings).build());
+        return item;
+    }
+
+    private static Map<String, AttributeValue> dashboardSummaryItem(String pk) {
+        Map<String, AttributeValue> tag = new HashMap<>();
+        tag.put("tag", s("fomo"));
+        tag.put("count", n(3));
+
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put(Constants.ATTR_PK, s(pk));
+        item.put(Constants.ATTR_SK, s(Constants.SK_DASHBOARD_SUMMARY));
+        item.put(Constants.ATTR_ENTITY_TYPE, s(Constants.ENTITY_TYPE_DASH_SUMMARY));
+        item.put("ghostCountTotal", n(GHOSTS_PER_QUERY));
+        item.put("ghostCount30d", n(GHOSTS_PER_QUERY));
+        item.put("lastGhostAtEpochMs", n(CREATED_AT_EPOCH_MS));
+        item.put("streakDays", n(2));
+        item.put("topHesitationTags30d", AttributeValue.builder()
+                .l(AttributeValue.builder().m(tag).build())
+                .build());
+        return item;
+    }
+
+    private static Map<String, AttributeValue> ghostItem(String pk, String ghostId, long createdAtEpochMs) {
+        Map<String, AttributeValue> quote = new HashMap<>();
+        quote.put(Constants.QUOTE_KEY_SYMBOL, s("AAPL"));
+        quote.put(Constants.QUOTE_KEY_PRICE, n(187.5));
+        quote.put(Constants.QUOTE_KEY_PROVIDER_TS, s("2024-01-01T15:30:00Z"));
+        quote.put(Constants.QUOTE_KEY_CAPTURED_AT, n(createdAtEpochMs));
+        quote.put(Constants.QUOTE_KEY_SOURCE, s(Constants.SOURCE_ALPACA));
+
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put(Constants.ATTR_PK, s(pk));
+        item.put(Constants.ATTR_SK, s(Constants.SK_GHOST_PREFIX + createdAtEpochMs + "#" + ghostId));
+        item.put(Constants.ATTR_ENTITY_TYPE, s(Constants.ENTITY_TYPE_GHOST));
+        item.put(Constants.ATTR_GHOST_ID, s(ghostId));
+        item.put(Constants.ATTR_USER_ID, s(pk.substring(Constants.PK_USER_PREFIX.length())));
+        item.put(Constants.ATTR_CREATED_AT_EPOCH_MS, n(createdAtEpochMs));
+        item.put(Constants.ATTR_TICKER, s("AAPL"));
+        item.put(Constants.ATTR_DIRECTION, s(Constants.DIRECTION_BUY));
+        item.put(Constants.ATTR_PRICE_SOURCE, s(Constants.PRICE_SOURCE_MARKET_CURRENT));
+        item.put(Constants.ATTR_QUANTITY_TYPE, s(Constants.QUANTITY_TYPE_SHARES));
+        item.put(Constants.ATTR_INTENDED_PRICE, n(187.5));
+        item.put(Constants.ATTR_INTENDED_SHARES, n(10));
+        item.put(Constants.ATTR_INTENDED_DOLLARS, n(1875.0));
+        item.put(Constants.ATTR_CONSIDERED_AT, n(createdAtEpochMs));
+        item.put(Constants.ATTR_HESITATION_TAGS, AttributeValue.builder().l(s("fomo"), s("news")).build());
+        item.put(Constants.ATTR_NOTE_TEXT, s("Waited for earnings"));
+        item.put(Constants.ATTR_STATUS, s(Constants.STATUS_OPEN));
+        item.put(Constants.ATTR_LOGGED_QUOTE, AttributeValue.builder().m(quote).build());
+        item.put(Constants.ATTR_EMOTION_STRESS, n(0.7));
+        item.put(Constants.ATTR_EMOTION_SENTIMENT, n(0.3));
+        return item;
+    }
+
+    private static AttributeValue s(String value) {
+        return AttributeValue.builder().s(value).build();
+    }
+
+    private static AttributeValue n(Number value) {
+        return AttributeValue.builder().n(value.toString()).build();
+    }
+}
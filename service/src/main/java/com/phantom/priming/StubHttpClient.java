@@ -0,0 +1,249 @@
+package com.phantom.priming;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
+import java.io.IOException;
+import java.net.Authenticator;
+import java.net.CookieHandler;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+
+/**
+ * In-process stand-in for {@link HttpClient} that answers Alpaca and DeepSeek
+ * requests with canned payloads. Responses are fed through the caller's
+ * {@link HttpResponse.BodyHandler} so the real body decoding path runs.
+ */
+public class StubHttpClient extends HttpClient {
+
+    private static final int CANDLE_BARS = 250;
+    private static final HttpHeaders JSON_HEADERS = HttpHeaders.of(
+            Map.of("Content-Type", List.of("application/json")), (name, value) -> true);
+
+    @Override
+    public Optional<CookieHandler> cookieHandler() {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<Duration> connectTimeout() {
+        return Optional.empty();
+    }
+
+    @Override
+    public Redirect followRedirects() {
+        return Redirect.NEVER;
+    }
+
+    @Override
+    public Optional<ProxySelector> proxy() {
+        return Optional.empty();
+    }
+
+    @Override
+    public SSLContext sslContext() {
+        return null;
+    }
+
+    @Override
+    public SSLParameters sslParameters() {
+        return new SSLParameters();
+    }
+
+    @Override
+    public Optional<Authenticator> authenticator() {
+        return Optional.empty();
+    }
+
+    @Override
+    public Version version() {
+        return Version.HTTP_1_1;
+    }
+
+    @Override
+    public Optional<Executor> executor() {
+        return Optional.empty();
+    }
+
+    @Override
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler)
+            throws IOException {
+        String body = cannedBody(request.uri());
+        return respond(request, 200, body, responseBodyHandler);
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request,
+                                                            HttpResponse.BodyHandler<T> responseBodyHandler) {
+        try {
+            return CompletableFuture.completedFuture(send(request, responseBodyHandler));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request,
+                                                            HttpResponse.BodyHandler<T> responseBodyHandler,
+                                                            HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
+        return sendAsync(request, responseBodyHandler);
+    }
+
+    private static String cannedBody(URI uri) {
+        String path = uri.getPath();
+        if (uri.getHost() != null && uri.getHost().contains("deepseek")) {
+            return deepSeekCompletion();
+        }
+        if (path.startsWith("/v2/assets/")) {
+            String symbol = path.substring("/v2/assets/".length());
+            return "{\"symbol\":\"" + symbol + "\",\"name\":\"Primed Asset\",\"exchange\":\"NASDAQ\",\"tradable\":true}";
+        }
+        if (path.endsWith("/snapshot")) {
+            return "{\"latestTrade\":{\"p\":187.5,\"t\":\"" + Instant.now() + "\"}}";
+        }
+        if (path.endsWith("/snapshots")) {
+            return snapshots(uri.getQuery());
+        }
+        if (path.endsWith("/bars")) {
+            return bars();
+        }
+        return "{}";
+    }
+
+    private static String snapshots(String query) {
+        String symbols = query != null && query.startsWith("symbols=") ? query.substring("symbols=".length()) : "";
+        StringBuilder sb = new StringBuilder("{");
+        for (String symbol : symbols.split(",")) {
+            if (symbol.isEmpty()) {
+                continue;
+            }
+            if (sb.length() > 1) {
+                sb.append(',');
+            }
+            sb.append('"').append(symbol).append("\":{\"latestTrade\":{\"p\":187.5,\"t\":\"")
+                    .append(Instant.now()).append("\"}}");
+        }
+        return sb.append('}').toString();
+    }
+
+    private static String bars() {
+        StringBuilder sb = new StringBuilder("{\"bars\":[");
+        Instant start = Instant.parse("2024-01-02T05:00:00Z");
+        for (int i = 0; i < CANDLE_BARS; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            double open = 180.0 + (i % 17);
+            sb.append("{\"t\":\"").append(start.plus(Duration.ofDays(i))).append('"')
+                    .append(",\"o\":").append(open)
+                    .append(",\"h\":").append(open + 2.25)
+                    .append(",\"l\":").append(open - 1.75)
+                    .append(",\"c\":").append(open + 0.5)
+                    .append(",\"v\":").append(1_000_000 + i * 1_000L)
+                    .append('}');
+        }
+        return sb.append("],\"symbol\":\"AAPL\",\"next_page_token\":null}").toString();
+    }
+
+    private static String deepSeekCompletion() {
+        String insights = "{\\\"intensity\\\":\\\"i\\\",\\\"momentum\\\":\\\"m\\\",\\\"conviction\\\":\\\"c\\\","
+                + "\\\"caution\\\":\\\"c\\\",\\\"deliberation\\\":\\\"d\\\",\\\"sensitivity\\\":\\\"s\\\"}";
+        return "{\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\"" + insights + "\"}}]}";
+    }
+
+    private static <T> HttpResponse<T> respond(HttpRequest request, int statusCode, String body,
+                                               HttpResponse.BodyHandler<T> handler) throws IOException {
+        HttpResponse.ResponseInfo info = new HttpResponse.ResponseInfo() {
+            @Override
+            public int statusCode() {
+                return statusCode;
+            }
+
+            @Override
+            public HttpHeaders headers() {
+                return JSON_HEADERS;
+            }
+
+            @Override
+            public Version version() {
+                return Version.HTTP_1_1;
+            }
+        };
+
+        HttpResponse.BodySubscriber<T> subscriber = handler.apply(info);
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        subscriber.onNext(List.of(ByteBuffer.wrap(body.getBytes(StandardCharsets.UTF_8))));
+        subscriber.onComplete();
+
+        T decoded;
+        try {
+            decoded = subscriber.getBody().toCompletableFuture().get();
+        } catch (Exception e) {
+            throw new IOException("Failed to decode stub response body", e);
+        }
+
+        return new HttpResponse<>() {
+            @Override
+            public int statusCode() {
+                return statusCode;
+            }
+
+            @Override
+            public HttpRequest request() {
+                return request;
+            }
+
+            @Override
+            public Optional<HttpResponse<T>> previousResponse() {
+                return Optional.empty();
+            }
+
+            @Override
+            public HttpHeaders headers() {
+                return JSON_HEADERS;
+            }
+
+            @Override
+            public T body() {
+                return decoded;
+            }
+
+            @Override
+            public Optional<SSLSession> sslSession() {
+                return Optional.empty();
+            }
+
+            @Override
+            public URI uri() {
+                return request.uri();
+            }
+
+            @Override
+            public Version version() {
+                return Version.HTTP_1_1;
+            }
+        };
+    }
+}
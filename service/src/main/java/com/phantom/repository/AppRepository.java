@@ -3,29 +3,53 @@ package com.phantom.repository;
 import com.phantom.model.entity.DashboardSummary;
 import com.phantom.model.entity.Ghost;
 import com.phantom.model.entity.UserProfile;
+import com.phantom.repository.StorageEngine.QueryResult;
+import com.phantom.repository.StorageEngine.WriteOp;
 import com.phantom.util.Constants;
-import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 public class AppRepository extends DynamoDbRepository {
     
-    public AppRepository(DynamoDbClient dynamoDbClient) {
-        super(dynamoDbClient, Constants.APP_TABLE_NAME);
+    private static final int HISTORY_PAGE_SIZE = 100;
+    private static final String ATTR_GHOST_COUNT_TOTAL = "ghostCountTotal";
+    private static final String ATTR_GHOST_COUNT_30D = "ghostCount30d";
+    private static final String ATTR_LAST_GHOST_AT = "lastGhostAtEpochMs";
+    // Shorter notes don't compress enough to be worth moving out of their own attribute.
+    private static final int PACKED_NOTE_MIN_CHARS = 256;
+    
+    private final boolean packAttributes;
+    
+    public AppRepository(StorageEngine storage) {
+        this(storage, Constants.PACK_GHOST_ATTRIBUTES);
+    }
+    
+    /**
+     * @param packAttributes whether new ghost items store the logged quote and
+     *        long notes in one compressed attribute; items in either layout are
+     *        always readable
+     */
+    public AppRepository(StorageEngine storage, boolean packAttributes) {
+        super(storage, Constants.APP_TABLE_NAME);
+        this.packAttributes = packAttributes;
     }
     
     public UserProfile getUserProfile(String userId) {
+        return join(getUserProfileAsync(userId));
+    }
+    
+    public CompletableFuture<UserProfile> getUserProfileAsync(String userId) {
         String pk = Constants.PK_USER_PREFIX + userId;
         String sk = Constants.SK_PROFILE;
         
-        Map<String, AttributeValue> item = getItem(pk, sk);
-        if (item == null) {
-            return null;
-        }
-        
-        return mapToUserProfile(item);
+        return getItemAsync(pk, sk).thenApply(item -> item != null ? mapToUserProfile(item) : null);
     }
     
     public void saveUserProfile(UserProfile profile) {
@@ -54,18 +78,124 @@ public class AppRepository extends DynamoDbRepository {
         deleteItem(pk, sk);
     }
     
+    /**
+     * Deletes every item in the user's partition: profile, ghosts and
+     * dashboard summary. Only keys are read, a page at a time, and each page
+     * is batch-deleted before the next is read, so memory stays at one page.
+     *
+     * @return the number of items deleted
+     */
+    public int purgeUser(String userId) {
+        String pk = Constants.PK_USER_PREFIX + userId;
+        
+        int deleted = 0;
+        Map<String, AttributeValue> startKey = null;
+        do {
+            QueryResult page = join(queryKeysAsync(pk, HISTORY_PAGE_SIZE, startKey));
+            if (!page.items().isEmpty()) {
+                batchWrite(List.of(), page.items());
+                deleted += page.items().size();
+            }
+            startKey = page.lastEvaluatedKey();
+        } while (startKey != null);
+        return deleted;
+    }
+    
     public Ghost getGhost(String userId, String sk) {
+        return join(getGhostAsync(userId, sk));
+    }
+    
+    public CompletableFuture<Ghost> getGhostAsync(String userId, String sk) {
         String pk = Constants.PK_USER_PREFIX + userId;
         
-        Map<String, AttributeValue> item = getItem(pk, sk);
-        if (item == null) {
-            return null;
-        }
+        return getItemAsync(pk, sk).thenApply(item -> item != null ? mapToGhost(item) : null);
+    }
+    
+    public Ghost getGhostById(String userId, String ghostId) {
+        return join(getGhostByIdAsync(userId, ghostId));
+    }
+    
+    /**
+     * Looks a ghost up by id through {@code GhostIdIndex} (ghostId, pk). The
+     * index projects every attribute, so this is one key read no matter how
+     * many ghosts the user has; the pk range key keeps it scoped to the user.
+     */
+    public CompletableFuture<Ghost> getGhostByIdAsync(String userId, String ghostId) {
+        String pk = Constants.PK_USER_PREFIX + userId;
         
-        return mapToGhost(item);
+        return getIndexItemAsync(Constants.GSI_GHOST_ID, Constants.ATTR_GHOST_ID, ghostId, Constants.ATTR_PK, pk)
+                .thenApply(item -> item != null ? mapToGhost(item) : null);
     }
     
     public void saveGhost(Ghost ghost) {
+        join(saveGhostAsync(ghost));
+    }
+    
+    public CompletableFuture<Void> saveGhostAsync(Ghost ghost) {
+        return putItemAsync(ghostItem(ghost));
+    }
+    
+    /**
+     * Stores many ghosts with batch writes, e.g. for imports. Unlike
+     * {@link #saveNewGhost}, this does not touch the dashboard counters.
+     */
+    public void saveGhosts(List<Ghost> ghosts) {
+        List<Map<String, AttributeValue>> items = new ArrayList<>(ghosts.size());
+        for (Ghost ghost : ghosts) {
+            items.add(ghostItem(ghost));
+        }
+        batchWrite(items, List.of());
+    }
+    
+    /**
+     * Writes a newly created ghost and bumps the user's dashboard counters in
+     * one transaction, so the counts never drift from the ghosts actually
+     * stored and concurrent creates don't lose increments.
+     */
+    public void saveNewGhost(Ghost ghost) {
+        join(saveNewGhostAsync(ghost));
+    }
+    
+    public CompletableFuture<Void> saveNewGhostAsync(Ghost ghost) {
+        // Concurrent creates for one user all update DASH#SUMMARY, so DynamoDB may
+        // cancel all but one of them with TransactionConflict; those are retried.
+        return retryTransactionConflicts(() -> transactWriteAsync(newGhostWrites(ghost, true))
+                .exceptionallyCompose(e -> {
+                    if (lastGhostConditionFailed(e)) {
+                        // A newer ghost already set lastGhostAtEpochMs; keep it and only count this one.
+                        return transactWriteAsync(newGhostWrites(ghost, false));
+                    }
+                    return CompletableFuture.failedFuture(e);
+                }));
+    }
+    
+    private List<WriteOp> newGhostWrites(Ghost ghost, boolean setLastGhostAt) {
+        AttributeValue createdAt = AttributeValue.builder().n(ghost.getCreatedAtEpochMs().toString()).build();
+        
+        ItemUpdate summary = ItemUpdate.forKey(ghost.getPk(), Constants.SK_DASHBOARD_SUMMARY)
+                .setIfAbsent(Constants.ATTR_ENTITY_TYPE,
+                        AttributeValue.builder().s(Constants.ENTITY_TYPE_DASH_SUMMARY).build())
+                .add(ATTR_GHOST_COUNT_TOTAL, 1)
+                .add(ATTR_GHOST_COUNT_30D, 1);
+        if (setLastGhostAt) {
+            summary.set(ATTR_LAST_GHOST_AT, createdAt)
+                    .condition(Condition.attributeNotExists(ATTR_LAST_GHOST_AT)
+                            .or(Condition.lessThan(ATTR_LAST_GHOST_AT, createdAt)));
+        }
+        
+        return List.of(transactPut(ghostItem(ghost)), transactUpdate(summary));
+    }
+    
+    private static boolean lastGhostConditionFailed(Throwable e) {
+        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+        if (!(cause instanceof TransactionCanceledException)) {
+            return false;
+        }
+        List<CancellationReason> reasons = ((TransactionCanceledException) cause).cancellationReasons();
+        return reasons.size() > 1 && "ConditionalCheckFailed".equals(reasons.get(1).code());
+    }
+    
+    private Map<String, AttributeValue> ghostItem(Ghost ghost) {
         Map<String, AttributeValue> item = new HashMap<>();
         item.put(Constants.ATTR_PK, AttributeValue.builder().s(ghost.getPk()).build());
         item.put(Constants.ATTR_SK, AttributeValue.builder().s(ghost.getSk()).build());
@@ -82,7 +212,13 @@ public class AppRepository extends DynamoDbRepository {
         item.put(Constants.ATTR_INTENDED_DOLLARS, AttributeValue.builder().n(ghost.getIntendedDollars().toString()).build());
         item.put(Constants.ATTR_CONSIDERED_AT, AttributeValue.builder().n(ghost.getConsideredAtEpochMs().toString()).build());
         item.put(Constants.ATTR_STATUS, AttributeValue.builder().s(ghost.getStatus()).build());
-        item.put(Constants.ATTR_LOGGED_QUOTE, convertMapToAttributeValue(ghost.getLoggedQuote()));
+        String noteText = ghost.getNoteText();
+        boolean packNote = packAttributes && noteText != null && noteText.length() >= PACKED_NOTE_MIN_CHARS;
+        if (packAttributes) {
+            item.put(Constants.ATTR_PACKED, GhostAttributeCodec.encode(ghost.getLoggedQuote(), packNote ? noteText : null));
+        } else {
+            item.put(Constants.ATTR_LOGGED_QUOTE, convertMapToAttributeValue(ghost.getLoggedQuote()));
+        }
         
         if (ghost.getHesitationTags() != null && !ghost.getHesitationTags().isEmpty()) {
             List<AttributeValue> tags = ghost.getHesitationTags().stream()
@@ -91,8 +227,8 @@ public class AppRepository extends DynamoDbRepository {
             item.put(Constants.ATTR_HESITATION_TAGS, AttributeValue.builder().l(tags).build());
         }
         
-        if (ghost.getNoteText() != null) {
-            item.put(Constants.ATTR_NOTE_TEXT, AttributeValue.builder().s(ghost.getNoteText()).build());
+        if (noteText != null && !packNote) {
+            item.put(Constants.ATTR_NOTE_TEXT, AttributeValue.builder().s(noteText).build());
         }
         
         if (ghost.getVoiceKey() != null) {
@@ -107,56 +243,172 @@ public class AppRepository extends DynamoDbRepository {
             item.put(Constants.ATTR_EMOTION_SENTIMENT, AttributeValue.builder().n(ghost.getEmotionSentiment().toString()).build());
         }
 
-        putItem(item);
+        if (ghost.getVersion() != null) {
+            item.put(Constants.ATTR_VERSION, AttributeValue.builder().n(ghost.getVersion().toString()).build());
+        }
+
+        return item;
     }
     
-    public List<Ghost> listGhosts(String userId, int limit) {
-        String pk = Constants.PK_USER_PREFIX + userId;
-        
-        List<Map<String, AttributeValue>> items = query(pk, Constants.SK_GHOST_PREFIX);
-        
-        return items.stream()
-                .limit(limit)
-                .map(this::mapToGhost)
-                .collect(Collectors.toList());
+    public Ghost updateGhostFields(String userId, String sk, String status, String noteText,
+                                   Double emotionStress, Double emotionSentiment, Long expectedVersion) {
+        return join(updateGhostFieldsAsync(userId, sk, status, noteText, emotionStress, emotionSentiment,
+                expectedVersion));
     }
     
-    public DashboardSummary getDashboardSummary(String userId) {
+    /**
+     * Patches the given fields of a ghost with one {@code UpdateItem}, leaving
+     * every other attribute untouched, and bumps its version.
+     *
+     * @param expectedVersion the version the caller last saw, or {@code null}
+     *        to apply the patch whatever the current version; ghosts written
+     *        before versioning count as version 0
+     * @return the updated ghost, or {@code null} if it does not exist
+     * @throws VersionConflictException if the ghost's version is not
+     *         {@code expectedVersion}
+     */
+    public CompletableFuture<Ghost> updateGhostFieldsAsync(String userId, String sk, String status, String noteText,
+                                                           Double emotionStress, Double emotionSentiment,
+                                                           Long expectedVersion) {
         String pk = Constants.PK_USER_PREFIX + userId;
-        String sk = Constants.SK_DASHBOARD_SUMMARY;
         
-        Map<String, AttributeValue> item = getItem(pk, sk);
-        if (item == null) {
-            return null;
+        ItemUpdate update = ItemUpdate.forKey(pk, sk);
+        if (status != null) {
+            update.set(Constants.ATTR_STATUS, status);
         }
+        if (noteText != null) {
+            update.set(Constants.ATTR_NOTE_TEXT, noteText);
+        }
+        if (emotionStress != null) {
+            update.set(Constants.ATTR_EMOTION_STRESS, AttributeValue.builder().n(emotionStress.toString()).build());
+        }
+        if (emotionSentiment != null) {
+            update.set(Constants.ATTR_EMOTION_SENTIMENT, AttributeValue.builder().n(emotionSentiment.toString()).build());
+        }
+        update.add(Constants.ATTR_VERSION, 1);
         
-        return mapToDashboardSummary(item);
+        Condition condition = Condition.attributeExists(Constants.ATTR_PK);
+        if (expectedVersion != null) {
+            Condition versionMatches = Condition.equalTo(Constants.ATTR_VERSION,
+                    AttributeValue.builder().n(expectedVersion.toString()).build());
+            if (expectedVersion == 0) {
+                versionMatches = Condition.attributeNotExists(Constants.ATTR_VERSION).or(versionMatches);
+            }
+            condition = condition.and(versionMatches);
+        }
+        update.condition(condition);
+        
+        return updateItemReturningAsync(update).handle((item, error) -> {
+            if (error == null) {
+                return mapToGhost(item);
+            }
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            if (cause instanceof ConditionalCheckFailedException) {
+                Map<String, AttributeValue> current = ((ConditionalCheckFailedException) cause).item();
+                if (current == null || current.isEmpty()) {
+                    return null;
+                }
+                Long currentVersion = getLongAttribute(current, Constants.ATTR_VERSION);
+                throw new VersionConflictException(currentVersion != null ? currentVersion : 0L);
+            }
+            throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+        });
     }
     
-    public void saveDashboardSummary(DashboardSummary summary) {
-        Map<String, AttributeValue> item = new HashMap<>();
-        item.put("pk", AttributeValue.builder().s(summary.getPk()).build());
-        item.put("sk", AttributeValue.builder().s(summary.getSk()).build());
-        item.put("entityType", AttributeValue.builder().s(summary.getEntityType()).build());
-        item.put("ghostCountTotal", AttributeValue.builder().n(summary.getGhostCountTotal().toString()).build());
-        item.put("ghostCount30d", AttributeValue.builder().n(summary.getGhostCount30d().toString()).build());
-        
-        if (summary.getLastGhostAtEpochMs() != null) {
-            item.put("lastGhostAtEpochMs", AttributeValue.builder().n(summary.getLastGhostAtEpochMs().toString()).build());
-        }
+    public List<Ghost> listGhosts(String userId, int limit) {
+        return listGhostsPage(userId, limit, null).getItems();
+    }
+    
+    public Page<Ghost> listGhostsPage(String userId, int limit, String nextToken) {
+        return join(listGhostsPageAsync(userId, limit, nextToken));
+    }
+    
+    public CompletableFuture<Page<Ghost>> listGhostsPageAsync(String userId, int limit, String nextToken) {
+        String pk = Constants.PK_USER_PREFIX + userId;
         
-        if (summary.getStreakDays() != null) {
-            item.put("streakDays", AttributeValue.builder().n(summary.getStreakDays().toString()).build());
-        }
+        return queryPageAsync(pk, Constants.SK_GHOST_PREFIX, limit, nextToken)
+                .thenApply(page -> page.map(this::mapToGhost));
+    }
+    
+    /**
+     * Every ghost the user has logged, newest first, read lazily one page at a
+     * time.
+     */
+    public Iterator<Ghost> iterateGhosts(String userId) {
+        String pk = Constants.PK_USER_PREFIX + userId;
+        Iterator<Map<String, AttributeValue>> items = queryAll(pk, Constants.SK_GHOST_PREFIX, HISTORY_PAGE_SIZE);
         
-        if (summary.getTopHesitationTags30d() != null && !summary.getTopHesitationTags30d().isEmpty()) {
-            List<AttributeValue> tags = summary.getTopHesitationTags30d().stream()
-                    .map(this::convertMapToAttributeValue)
-                    .collect(Collectors.toList());
-            item.put("topHesitationTags30d", AttributeValue.builder().l(tags).build());
-        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return items.hasNext();
+            }
+            
+            @Override
+            public Ghost next() {
+                return mapToGhost(items.next());
+            }
+        };
+    }
+    
+    public UserPartitionHead getUserPartitionHead(String userId, int ghostLimit) {
+        return join(getUserPartitionHeadAsync(userId, ghostLimit));
+    }
+
+    /**
+     * Reads the profile, the dashboard summary and the newest
+     * {@code ghostLimit} ghosts with two requests issued together, so the
+     * caller waits for a single round trip.
+     *
+     * Sort keys descend PROFILE, GHOST#..., DASH#SUMMARY, so one unprefixed
+     * query from the top of the partition returns the profile followed by the
+     * newest ghosts, and the items are told apart by entity type. The summary
+     * sorts below every ghost and is fetched by key alongside the query. The
+     * returned ghost cursor resumes {@link #listGhostsPage}.
+     */
+    public CompletableFuture<UserPartitionHead> getUserPartitionHeadAsync(String userId, int ghostLimit) {
+        String pk = Constants.PK_USER_PREFIX + userId;
+
+        // One extra item leaves room for the profile ahead of the ghosts.
+        CompletableFuture<Page<Map<String, AttributeValue>>> head = queryPageAsync(pk, null, ghostLimit + 1, null);
+        CompletableFuture<DashboardSummary> summary = getDashboardSummaryAsync(userId);
+
+        return head.thenCombine(summary, (page, dashboardSummary) -> {
+            UserProfile profile = null;
+            List<Ghost> ghosts = new ArrayList<>(ghostLimit + 1);
+            boolean reachedEnd = !page.hasMore();
+            for (Map<String, AttributeValue> item : page.getItems()) {
+                String entityType = getStringAttribute(item, Constants.ATTR_ENTITY_TYPE);
+                if (Constants.ENTITY_TYPE_USER_PROFILE.equals(entityType)) {
+                    profile = mapToUserProfile(item);
+                } else if (Constants.ENTITY_TYPE_GHOST.equals(entityType)) {
+                    ghosts.add(mapToGhost(item));
+                } else if (Constants.ENTITY_TYPE_DASH_SUMMARY.equals(entityType)) {
+                    // Only follows the last ghost, so there are no more to page through.
+                    reachedEnd = true;
+                }
+            }
+
+            boolean hasMore = ghosts.size() > ghostLimit || !reachedEnd;
+            if (ghosts.size() > ghostLimit) {
+                ghosts = ghosts.subList(0, ghostLimit);
+            }
+            String nextToken = hasMore && !ghosts.isEmpty()
+                    ? PageCursors.encode(pk, key(pk, ghosts.get(ghosts.size() - 1).getSk()))
+                    : null;
+            return new UserPartitionHead(profile, dashboardSummary, new Page<>(ghosts, nextToken));
+        });
+    }
+
+    public DashboardSummary getDashboardSummary(String userId) {
+        return join(getDashboardSummaryAsync(userId));
+    }
+    
+    public CompletableFuture<DashboardSummary> getDashboardSummaryAsync(String userId) {
+        String pk = Constants.PK_USER_PREFIX + userId;
+        String sk = Constants.SK_DASHBOARD_SUMMARY;
         
-        putItem(item);
+        return getItemAsync(pk, sk).thenApply(item -> item != null ? mapToDashboardSummary(item) : null);
     }
     
     private UserProfile mapToUserProfile(Map<String, AttributeValue> item) {
@@ -193,8 +445,14 @@ public class AppRepository extends DynamoDbRepository {
         ghost.setVoiceKey(getStringAttribute(item, Constants.ATTR_VOICE_KEY));
         ghost.setStatus(getStringAttribute(item, Constants.ATTR_STATUS));
         ghost.setLoggedQuote(getMapAttribute(item, Constants.ATTR_LOGGED_QUOTE));
+        AttributeValue packed = item.get(Constants.ATTR_PACKED);
+        if (packed != null && packed.b() != null) {
+            // A note patched after packing is stored plainly and wins over the packed one.
+            ghost.setPacked(GhostAttributeCodec.decodeLazily(packed.b()));
+        }
         ghost.setEmotionStress(getDoubleAttribute(item, Constants.ATTR_EMOTION_STRESS));
         ghost.setEmotionSentiment(getDoubleAttribute(item, Constants.ATTR_EMOTION_SENTIMENT));
+        ghost.setVersion(getLongAttribute(item, Constants.ATTR_VERSION));
         return ghost;
     }
     
@@ -229,21 +487,4 @@ public class AppRepository extends DynamoDbRepository {
         
         return summary;
     }
-    
-    private AttributeValue convertMapToAttributeValue(Map<String, Object> map) {
-        Map<String, AttributeValue> attributeMap = new HashMap<>();
-        
-        for (Map.Entry<String, Object> entry : map.entrySet()) {
-            Object value = entry.getValue();
-            if (value instanceof String) {
-                attributeMap.put(entry.getKey(), AttributeValue.builder().s((String) value).build());
-            } else if (value instanceof Number) {
-                attributeMap.put(entry.getKey(), AttributeValue.builder().n(value.toString()).build());
-            } else if (value instanceof Boolean) {
-                attributeMap.put(entry.getKey(), AttributeValue.builder().bool((Boolean) value).build());
-            }
-        }
-        
-        return AttributeValue.builder().m(attributeMap).build();
-    }
 }
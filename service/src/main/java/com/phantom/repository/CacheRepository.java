@@ -1,41 +1,105 @@
 package com.phantom.repository;
 
+import com.phantom.metrics.RequestMetrics;
 import com.phantom.model.entity.CacheItem;
 import com.phantom.util.Constants;
-import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * Upstream market data cached in the cache table. Saves are write-behind:
+ * they return at once and reach the table in batches shortly after, so a
+ * cache miss costs the upstream call alone. Reads see saves still waiting to
+ * be written.
+ *
+ * In front of the table sits a bounded in-process tier holding items until
+ * their own {@code expiresAt}, so a warm container answers repeat reads of a
+ * hot symbol without a network hop.
+ */
 public class CacheRepository extends DynamoDbRepository {
     
-    public CacheRepository(DynamoDbClient dynamoDbClient) {
-        super(dynamoDbClient, Constants.CACHE_TABLE_NAME);
+    private static final int WRITE_BEHIND_CAPACITY = 100;
+    private static final long WRITE_BEHIND_LINGER_MS = 50;
+    
+    private final WriteBehindQueue writeBehind;
+    private final LocalCache<String, CacheItem> localCache;
+    
+    public CacheRepository(StorageEngine storage) {
+        this(storage, Constants.LOCAL_CACHE_MAX_WEIGHT);
+    }
+    
+    /** @param localCacheMaxWeight bound on the in-process tier; {@code 0} disables it */
+    public CacheRepository(StorageEngine storage, long localCacheMaxWeight) {
+        super(storage, Constants.CACHE_TABLE_NAME);
+        this.writeBehind = new WriteBehindQueue(items -> batchWriteAsync(items, List.of()),
+                WRITE_BEHIND_CAPACITY, WRITE_BEHIND_LINGER_MS);
+        this.localCache = new LocalCache<>(localCacheMaxWeight, CacheRepository::weigh);
     }
     
     public CacheItem getCacheItem(String pk, String sk) {
-        Map<String, AttributeValue> item = getItem(pk, sk);
-        if (item == null) {
-            return null;
+        return join(getCacheItemAsync(pk, sk));
+    }
+    
+    public CompletableFuture<CacheItem> getCacheItemAsync(String pk, String sk) {
+        RequestMetrics metrics = RequestMetrics.current();
+        CacheItem local = getLocal(pk, sk, metrics);
+        if (local != null) {
+            return CompletableFuture.completedFuture(local);
         }
-        
-        return mapToCacheItem(item);
+        Map<String, AttributeValue> pending = writeBehind.pending(pk, sk);
+        if (pending != null) {
+            return CompletableFuture.completedFuture(mapToCacheItem(pending));
+        }
+        return getItemAsync(pk, sk).thenApply(item -> {
+            if (item == null) {
+                return null;
+            }
+            CacheItem cacheItem = mapToCacheItem(item);
+            putLocal(cacheItem, metrics);
+            return cacheItem;
+        });
     }
     
     public void saveCacheItem(CacheItem cacheItem) {
+        putLocal(cacheItem, RequestMetrics.current());
+        writeBehind.enqueue(toItem(cacheItem));
+    }
+    
+    public void saveCacheItems(List<CacheItem> cacheItems) {
+        RequestMetrics metrics = RequestMetrics.current();
+        for (CacheItem cacheItem : cacheItems) {
+            putLocal(cacheItem, metrics);
+            writeBehind.enqueue(toItem(cacheItem));
+        }
+    }
+    
+    /** Writes every buffered save and waits for it to land. */
+    public void flush() {
+        writeBehind.flush();
+    }
+    
+    private Map<String, AttributeValue> toItem(CacheItem cacheItem) {
         Map<String, AttributeValue> item = new HashMap<>();
         item.put("pk", AttributeValue.builder().s(cacheItem.getPk()).build());
         item.put("sk", AttributeValue.builder().s(cacheItem.getSk()).build());
         item.put("fetchedAt", AttributeValue.builder().s(cacheItem.getFetchedAt()).build());
         item.put("expiresAt", AttributeValue.builder().n(cacheItem.getExpiresAt().toString()).build());
+        if (cacheItem.getStaleAt() != null) {
+            item.put("staleAt", AttributeValue.builder().n(cacheItem.getStaleAt().toString()).build());
+        }
         item.put("source", AttributeValue.builder().s(cacheItem.getSource()).build());
         
         if (cacheItem.getPayload() != null) {
             item.put("payload", convertMapToAttributeValue(cacheItem.getPayload()));
         }
         
-        putItem(item);
+        return item;
     }
     
     public CacheItem getLatestPrice(String symbol) {
@@ -45,6 +109,38 @@ public class CacheRepository extends DynamoDbRepository {
         return getCacheItem(pk, sk);
     }
     
+    /**
+     * Cached latest prices for several symbols in as few round trips as the
+     * batch limits allow, keyed by upper-cased symbol. Symbols with no cached
+     * price are absent from the result; expiry is left to the caller.
+     */
+    public Map<String, CacheItem> getLatestPrices(Collection<String> symbols) {
+        RequestMetrics metrics = RequestMetrics.current();
+        Map<String, CacheItem> prices = new HashMap<>();
+        List<Map<String, AttributeValue>> keys = new ArrayList<>(symbols.size());
+        for (String symbol : symbols) {
+            String pk = Constants.PK_MARKET_DATA_PREFIX + symbol.toUpperCase();
+            CacheItem local = getLocal(pk, Constants.SK_PRICE_LATEST, metrics);
+            if (local != null) {
+                prices.put(symbol.toUpperCase(), local);
+                continue;
+            }
+            Map<String, AttributeValue> pending = writeBehind.pending(pk, Constants.SK_PRICE_LATEST);
+            if (pending != null) {
+                prices.put(symbol.toUpperCase(), mapToCacheItem(pending));
+            } else {
+                keys.add(key(pk, Constants.SK_PRICE_LATEST));
+            }
+        }
+        
+        for (Map<String, AttributeValue> item : batchGet(keys)) {
+            CacheItem cacheItem = mapToCacheItem(item);
+            putLocal(cacheItem, metrics);
+            prices.put(cacheItem.getPk().substring(Constants.PK_MARKET_DATA_PREFIX.length()), cacheItem);
+        }
+        return prices;
+    }
+    
     public CacheItem getTimeSeries(String symbol, String interval, String range) {
         String pk = Constants.PK_MARKET_DATA_PREFIX + symbol.toUpperCase();
         String sk = Constants.SK_TIMESERIES_PREFIX + interval + "#" + range;
@@ -59,31 +155,69 @@ public class CacheRepository extends DynamoDbRepository {
         return getCacheItem(pk, sk);
     }
     
+    private CacheItem getLocal(String pk, String sk, RequestMetrics metrics) {
+        CacheItem cached = localCache.get(localKey(pk, sk));
+        if (cached != null) {
+            metrics.localCacheHit();
+        } else {
+            metrics.localCacheMiss();
+        }
+        return cached;
+    }
+    
+    private void putLocal(CacheItem cacheItem, RequestMetrics metrics) {
+        if (cacheItem.getExpiresAt() == null) {
+            return;
+        }
+        int evicted = localCache.put(localKey(cacheItem.getPk(), cacheItem.getSk()), cacheItem,
+                cacheItem.getExpiresAt() * 1000);
+        if (evicted > 0) {
+            metrics.localCacheEvictions(evicted);
+        }
+    }
+    
+    private static String localKey(String pk, String sk) {
+        return pk + '\u0000' + sk;
+    }
+    
+    /**
+     * One unit per item plus one per row of each list in the payload, e.g. per
+     * candle. A map of parallel columns counts as its longest column.
+     */
+    private static int weigh(CacheItem cacheItem) {
+        int weight = 1;
+        if (cacheItem.getPayload() != null) {
+            for (Object value : cacheItem.getPayload().values()) {
+                weight += rows(value);
+            }
+        }
+        return weight;
+    }
+    
+    private static int rows(Object value) {
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).size();
+        }
+        int rows = 0;
+        if (value instanceof Map) {
+            for (Object column : ((Map<?, ?>) value).values()) {
+                if (column instanceof Collection) {
+                    rows = Math.max(rows, ((Collection<?>) column).size());
+                }
+            }
+        }
+        return rows;
+    }
+    
     private CacheItem mapToCacheItem(Map<String, AttributeValue> item) {
         CacheItem cacheItem = new CacheItem();
         cacheItem.setPk(getStringAttribute(item, "pk"));
         cacheItem.setSk(getStringAttribute(item, "sk"));
         cacheItem.setFetchedAt(getStringAttribute(item, "fetchedAt"));
+        cacheItem.setStaleAt(getLongAttribute(item, "staleAt"));
         cacheItem.setExpiresAt(getLongAttribute(item, "expiresAt"));
         cacheItem.setSource(getStringAttribute(item, "source"));
         cacheItem.setPayload(getMapAttribute(item, "payload"));
         return cacheItem;
     }
-    
-    private AttributeValue convertMapToAttributeValue(Map<String, Object> map) {
-        Map<String, AttributeValue> attributeMap = new HashMap<>();
-        
-        for (Map.Entry<String, Object> entry : map.entrySet()) {
-            Object value = entry.getValue();
-            if (value instanceof String) {
-                attributeMap.put(entry.getKey(), AttributeValue.builder().s((String) value).build());
-            } else if (value instanceof Number) {
-                attributeMap.put(entry.getKey(), AttributeValue.builder().n(value.toString()).build());
-            } else if (value instanceof Boolean) {
-                attributeMap.put(entry.getKey(), AttributeValue.builder().bool((Boolean) value).build());
-            }
-        }
-        
-        return AttributeValue.builder().m(attributeMap).build();
-    }
 }
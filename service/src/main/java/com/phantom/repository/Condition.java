@@ -0,0 +1,87 @@
+package com.phantom.repository;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A DynamoDB condition expression built from typed parts, rendered against the
+ * placeholders of the request it is attached to. The same condition can be
+ * evaluated directly against an item, which is how
+ * {@link InMemoryStorageEngine} applies it.
+ */
+public final class Condition {
+
+    private final Function<ExpressionPlaceholders, String> renderer;
+    private final Predicate<Map<String, AttributeValue>> predicate;
+
+    private Condition(Function<ExpressionPlaceholders, String> renderer,
+                      Predicate<Map<String, AttributeValue>> predicate) {
+        this.renderer = renderer;
+        this.predicate = predicate;
+    }
+
+    public static Condition attributeExists(String attribute) {
+        return new Condition(p -> "attribute_exists(" + p.name(attribute) + ")",
+                item -> item != null && item.containsKey(attribute));
+    }
+
+    public static Condition attributeNotExists(String attribute) {
+        return new Condition(p -> "attribute_not_exists(" + p.name(attribute) + ")",
+                item -> item == null || !item.containsKey(attribute));
+    }
+
+    public static Condition equalTo(String attribute, AttributeValue value) {
+        return compare(attribute, "=", value, c -> c == 0);
+    }
+
+    public static Condition lessThan(String attribute, AttributeValue value) {
+        return compare(attribute, "<", value, c -> c < 0);
+    }
+
+    public Condition and(Condition other) {
+        return new Condition(p -> "(" + render(p) + ") AND (" + other.render(p) + ")",
+                predicate.and(other.predicate));
+    }
+
+    public Condition or(Condition other) {
+        return new Condition(p -> "(" + render(p) + ") OR (" + other.render(p) + ")",
+                predicate.or(other.predicate));
+    }
+
+    String render(ExpressionPlaceholders placeholders) {
+        return renderer.apply(placeholders);
+    }
+
+    /** Evaluates the condition against an item, {@code null} when there is none. */
+    boolean test(Map<String, AttributeValue> item) {
+        return predicate.test(item);
+    }
+
+    private static Condition compare(String attribute, String operator, AttributeValue value,
+                                     Predicate<Integer> outcome) {
+        return new Condition(p -> p.name(attribute) + " " + operator + " " + p.value(value), item -> {
+            AttributeValue actual = item != null ? item.get(attribute) : null;
+            Integer order = actual != null ? compareValues(actual, value) : null;
+            return order != null && outcome.test(order);
+        });
+    }
+
+    /**
+     * Orders two values the way DynamoDB comparisons do: numbers numerically,
+     * strings by code point. Values of different types are not comparable,
+     * which makes the comparison false.
+     */
+    private static Integer compareValues(AttributeValue actual, AttributeValue expected) {
+        if (actual.n() != null && expected.n() != null) {
+            return new BigDecimal(actual.n()).compareTo(new BigDecimal(expected.n()));
+        }
+        if (actual.s() != null && expected.s() != null) {
+            return actual.s().compareTo(expected.s());
+        }
+        return actual.equals(expected) ? 0 : null;
+    }
+}
@@ -1,114 +1,386 @@
 package com.phantom.repository;
 
-import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import com.phantom.metrics.RequestMetrics;
+import com.phantom.metrics.RequestMetrics.Phase;
+import com.phantom.repository.StorageEngine.QueryResult;
+import com.phantom.repository.StorageEngine.WriteOp;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * Base class for single-table repositories. Every operation is issued on the
+ * {@link StorageEngine} and exposed as a {@link CompletableFuture}, so callers
+ * can overlap independent round trips; the blocking variants simply wait on
+ * the async ones. Timing, pagination cursors and batch retries live here, so
+ * they behave the same on every engine.
+ */
 public abstract class DynamoDbRepository {
     
-    protected final DynamoDbClient dynamoDbClient;
+    private static final int BATCH_GET_LIMIT = 100;
+    private static final int BATCH_WRITE_LIMIT = 25;
+    private static final int MAX_BATCH_ATTEMPTS = 8;
+    private static final long BATCH_BACKOFF_BASE_MS = 25;
+    private static final long BATCH_BACKOFF_CAP_MS = 1_000;
+    private static final int MAX_TRANSACTION_ATTEMPTS = 4;
+    private static final String TRANSACTION_CONFLICT = "TransactionConflict";
+    
+    protected final StorageEngine storage;
     protected final String tableName;
     
-    protected DynamoDbRepository(DynamoDbClient dynamoDbClient, String tableName) {
-        this.dynamoDbClient = dynamoDbClient;
+    protected DynamoDbRepository(StorageEngine storage, String tableName) {
+        this.storage = storage;
         this.tableName = tableName;
     }
     
     protected Map<String, AttributeValue> getItem(String pk, String sk) {
-        Map<String, AttributeValue> key = new HashMap<>();
-        key.put("pk", AttributeValue.builder().s(pk).build());
-        key.put("sk", AttributeValue.builder().s(sk).build());
-        
-        GetItemRequest request = GetItemRequest.builder()
-                .tableName(tableName)
-                .key(key)
-                .build();
-        
-        GetItemResponse response = dynamoDbClient.getItem(request);
-        return response.hasItem() ? response.item() : null;
+        return join(getItemAsync(pk, sk));
+    }
+    
+    protected CompletableFuture<Map<String, AttributeValue>> getItemAsync(String pk, String sk) {
+        return RequestMetrics.current().timeAsync(Phase.DYNAMODB, () -> storage.getItem(tableName, key(pk, sk)));
     }
     
     protected void putItem(Map<String, AttributeValue> item) {
-        PutItemRequest request = PutItemRequest.builder()
-                .tableName(tableName)
-                .item(item)
-                .build();
-        
-        dynamoDbClient.putItem(request);
+        join(putItemAsync(item));
+    }
+    
+    protected CompletableFuture<Void> putItemAsync(Map<String, AttributeValue> item) {
+        return RequestMetrics.current().timeAsync(Phase.DYNAMODB, () -> storage.putItem(tableName, item));
     }
     
     protected void updateItem(String pk, String sk, Map<String, String> updates) {
-        Map<String, AttributeValue> key = new HashMap<>();
-        key.put("pk", AttributeValue.builder().s(pk).build());
-        key.put("sk", AttributeValue.builder().s(sk).build());
-        
-        StringBuilder updateExpression = new StringBuilder("SET ");
-        Map<String, AttributeValue> expressionValues = new HashMap<>();
-        Map<String, String> expressionNames = new HashMap<>();
-        
-        int i = 0;
+        join(updateItemAsync(pk, sk, updates));
+    }
+    
+    protected CompletableFuture<Void> updateItemAsync(String pk, String sk, Map<String, String> updates) {
+        ItemUpdate update = ItemUpdate.forKey(pk, sk);
         for (Map.Entry<String, String> entry : updates.entrySet()) {
-            String placeholder = "#attr" + i;
-            String valuePlaceholder = ":val" + i;
-            
-            if (i > 0) {
-                updateExpression.append(", ");
+            update.set(entry.getKey(), entry.getValue());
+        }
+        return updateItemAsync(update);
+    }
+    
+    protected void updateItem(ItemUpdate update) {
+        join(updateItemAsync(update));
+    }
+    
+    protected CompletableFuture<Void> updateItemAsync(ItemUpdate update) {
+        return RequestMetrics.current().timeAsync(Phase.DYNAMODB, () -> storage.updateItem(tableName, update, false))
+                .thenApply(item -> null);
+    }
+    
+    /**
+     * Applies the update and returns the item as it is afterwards
+     * ({@code ALL_NEW}). When a condition fails, the
+     * {@link ConditionalCheckFailedException} carries the item as it was
+     * ({@code ALL_OLD}), or no item if it did not exist, so callers can tell a
+     * missing item from a lost race without another read.
+     */
+    protected CompletableFuture<Map<String, AttributeValue>> updateItemReturningAsync(ItemUpdate update) {
+        return RequestMetrics.current().timeAsync(Phase.DYNAMODB, () -> storage.updateItem(tableName, update, true));
+    }
+    
+    /**
+     * Applies the given writes atomically. If any condition fails the whole
+     * transaction is cancelled and the future fails with
+     * {@link TransactionCanceledException}, whose cancellation reasons are in
+     * the same order as {@code writes}.
+     */
+    protected CompletableFuture<Void> transactWriteAsync(List<WriteOp> writes) {
+        return RequestMetrics.current().timeAsync(Phase.DYNAMODB, () -> storage.transactWrite(tableName, writes));
+    }
+    
+    /**
+     * Runs {@code transaction}, running it again after a jittered backoff
+     * while DynamoDB cancels it because a concurrent transaction was writing
+     * the same item. Such a cancellation says nothing was written, so the
+     * whole transaction, including any fallback it composes, starts over.
+     */
+    protected static <T> CompletableFuture<T> retryTransactionConflicts(Supplier<CompletableFuture<T>> transaction) {
+        return retryTransactionConflicts(transaction, 0);
+    }
+    
+    private static <T> CompletableFuture<T> retryTransactionConflicts(Supplier<CompletableFuture<T>> transaction,
+                                                                      int attempt) {
+        return transaction.get().exceptionallyCompose(e -> {
+            if (attempt + 1 >= MAX_TRANSACTION_ATTEMPTS || !transactionConflict(e)) {
+                return CompletableFuture.failedFuture(e);
             }
-            updateExpression.append(placeholder).append(" = ").append(valuePlaceholder);
-            
-            expressionNames.put(placeholder, entry.getKey());
-            expressionValues.put(valuePlaceholder, AttributeValue.builder().s(entry.getValue()).build());
-            i++;
+            return CompletableFuture.supplyAsync(() -> retryTransactionConflicts(transaction, attempt + 1),
+                    backoffDelay(attempt)).thenCompose(Function.identity());
+        });
+    }
+    
+    private static boolean transactionConflict(Throwable e) {
+        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+        if (!(cause instanceof TransactionCanceledException)) {
+            return false;
         }
-        
-        UpdateItemRequest request = UpdateItemRequest.builder()
-                .tableName(tableName)
-                .key(key)
-                .updateExpression(updateExpression.toString())
-                .expressionAttributeNames(expressionNames)
-                .expressionAttributeValues(expressionValues)
-                .build();
-        
-        dynamoDbClient.updateItem(request);
+        for (CancellationReason reason : ((TransactionCanceledException) cause).cancellationReasons()) {
+            if (TRANSACTION_CONFLICT.equals(reason.code())) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    protected WriteOp transactPut(Map<String, AttributeValue> item) {
+        return WriteOp.put(item);
+    }
+    
+    protected WriteOp transactUpdate(ItemUpdate update) {
+        return WriteOp.update(update);
     }
     
     protected void deleteItem(String pk, String sk) {
-        Map<String, AttributeValue> key = new HashMap<>();
-        key.put("pk", AttributeValue.builder().s(pk).build());
-        key.put("sk", AttributeValue.builder().s(sk).build());
+        join(deleteItemAsync(pk, sk));
+    }
+    
+    protected CompletableFuture<Void> deleteItemAsync(String pk, String sk) {
+        return RequestMetrics.current().timeAsync(Phase.DYNAMODB, () -> storage.deleteItem(tableName, key(pk, sk)));
+    }
+    
+    /**
+     * Reads many items by key. Keys are de-duplicated, split into requests of
+     * {@value #BATCH_GET_LIMIT} issued concurrently, and any unprocessed keys
+     * are retried with jittered exponential backoff. Missing items are simply
+     * absent from the result, which is unordered.
+     */
+    protected List<Map<String, AttributeValue>> batchGet(Collection<Map<String, AttributeValue>> keys) {
+        return join(batchGetAsync(keys));
+    }
+    
+    protected CompletableFuture<List<Map<String, AttributeValue>>> batchGetAsync(
+            Collection<Map<String, AttributeValue>> keys) {
+        // Retries run on other threads, so the caller's metrics are carried along explicitly.
+        RequestMetrics metrics = RequestMetrics.current();
+        List<Map<String, AttributeValue>> distinct = new ArrayList<>(new LinkedHashSet<>(keys));
+        List<CompletableFuture<List<Map<String, AttributeValue>>>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += BATCH_GET_LIMIT) {
+            List<Map<String, AttributeValue>> chunk = distinct.subList(from, Math.min(from + BATCH_GET_LIMIT, distinct.size()));
+            chunks.add(batchGetChunk(chunk, new ArrayList<>(), 0, metrics));
+        }
         
-        DeleteItemRequest request = DeleteItemRequest.builder()
-                .tableName(tableName)
-                .key(key)
-                .build();
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> {
+                    List<Map<String, AttributeValue>> items = new ArrayList<>(distinct.size());
+                    for (CompletableFuture<List<Map<String, AttributeValue>>> chunk : chunks) {
+                        items.addAll(chunk.join());
+                    }
+                    return items;
+                });
+    }
+    
+    private CompletableFuture<List<Map<String, AttributeValue>>> batchGetChunk(
+            List<Map<String, AttributeValue>> keys, List<Map<String, AttributeValue>> found, int attempt,
+            RequestMetrics metrics) {
+        return metrics.timeAsync(Phase.DYNAMODB, () -> storage.batchGet(tableName, keys))
+                .thenCompose(result -> {
+                    found.addAll(result.items());
+                    List<Map<String, AttributeValue>> unprocessed = result.unprocessedKeys();
+                    if (unprocessed.isEmpty()) {
+                        return CompletableFuture.completedFuture(found);
+                    }
+                    return retryAfterBackoff(attempt, "BatchGetItem", unprocessed.size(),
+                            () -> batchGetChunk(unprocessed, found, attempt + 1, metrics));
+                });
+    }
+    
+    /**
+     * Puts and deletes many items, split into requests of
+     * {@value #BATCH_WRITE_LIMIT} issued concurrently, retrying any
+     * unprocessed items with jittered exponential backoff. Writes are not
+     * atomic across items; use {@link #transactWriteAsync} for that.
+     */
+    protected void batchWrite(List<Map<String, AttributeValue>> puts, Collection<Map<String, AttributeValue>> deleteKeys) {
+        join(batchWriteAsync(puts, deleteKeys));
+    }
+    
+    protected CompletableFuture<Void> batchWriteAsync(List<Map<String, AttributeValue>> puts,
+                                                      Collection<Map<String, AttributeValue>> deleteKeys) {
+        List<WriteRequest> writes = new ArrayList<>(puts.size() + deleteKeys.size());
+        for (Map<String, AttributeValue> item : puts) {
+            writes.add(WriteRequest.builder().putRequest(PutRequest.builder().item(item).build()).build());
+        }
+        for (Map<String, AttributeValue> key : deleteKeys) {
+            writes.add(WriteRequest.builder().deleteRequest(DeleteRequest.builder().key(key).build()).build());
+        }
         
-        dynamoDbClient.deleteItem(request);
+        RequestMetrics metrics = RequestMetrics.current();
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (int from = 0; from < writes.size(); from += BATCH_WRITE_LIMIT) {
+            chunks.add(batchWriteChunk(writes.subList(from, Math.min(from + BATCH_WRITE_LIMIT, writes.size())), 0, metrics));
+        }
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[0]));
+    }
+    
+    private CompletableFuture<Void> batchWriteChunk(List<WriteRequest> writes, int attempt, RequestMetrics metrics) {
+        return metrics.timeAsync(Phase.DYNAMODB, () -> storage.batchWrite(tableName, writes))
+                .thenCompose(unprocessed -> {
+                    if (unprocessed.isEmpty()) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    return retryAfterBackoff(attempt, "BatchWriteItem", unprocessed.size(),
+                            () -> batchWriteChunk(unprocessed, attempt + 1, metrics));
+                });
+    }
+    
+    /**
+     * Schedules {@code retry} after a "full jitter" backoff: a uniform delay
+     * between zero and an exponentially growing, capped ceiling, so throttled
+     * chunks don't all retry in lock-step.
+     */
+    private static <T> CompletableFuture<T> retryAfterBackoff(int attempt, String operation, int remaining,
+                                                              Supplier<CompletableFuture<T>> retry) {
+        if (attempt + 1 >= MAX_BATCH_ATTEMPTS) {
+            return CompletableFuture.failedFuture(new IllegalStateException(
+                    operation + " left " + remaining + " items unprocessed after " + MAX_BATCH_ATTEMPTS + " attempts"));
+        }
+        return CompletableFuture.supplyAsync(retry, backoffDelay(attempt)).thenCompose(Function.identity());
     }
     
-    protected List<Map<String, AttributeValue>> query(String pk, String skPrefix) {
-        Map<String, AttributeValue> expressionValues = new HashMap<>();
-        expressionValues.put(":pk", AttributeValue.builder().s(pk).build());
+    private static Executor backoffDelay(int attempt) {
+        long ceilingMs = Math.min(BATCH_BACKOFF_CAP_MS, BATCH_BACKOFF_BASE_MS << attempt);
+        long delayMs = ThreadLocalRandom.current().nextLong(ceilingMs + 1);
+        return CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Reads one page of items under {@code pk}, newest first. The engine is
+     * asked for at most {@code limit} items, so the read cost follows the page
+     * size rather than the size of the partition.
+     *
+     * @param nextToken cursor from a previous page, or {@code null} to start
+     * @throws IllegalArgumentException if {@code nextToken} is not a cursor
+     *         issued for this partition
+     */
+    protected Page<Map<String, AttributeValue>> queryPage(String pk, String skPrefix, int limit, String nextToken) {
+        return join(queryPageAsync(pk, skPrefix, limit, nextToken));
+    }
+    
+    protected CompletableFuture<Page<Map<String, AttributeValue>>> queryPageAsync(String pk, String skPrefix,
+                                                                                  int limit, String nextToken) {
+        Map<String, AttributeValue> startKey = PageCursors.decode(pk, nextToken);
         
-        String keyConditionExpression = "pk = :pk";
+        return RequestMetrics.current()
+                .timeAsync(Phase.DYNAMODB, () -> storage.query(tableName, pk, skPrefix, limit, startKey))
+                .thenApply(result -> new Page<>(result.items(),
+                        result.lastEvaluatedKey() != null ? PageCursors.encode(pk, result.lastEvaluatedKey()) : null));
+    }
+    
+    /**
+     * One page of the keys under {@code pk}, newest first, without the
+     * items' other attributes.
+     */
+    protected CompletableFuture<QueryResult> queryKeysAsync(String pk, int limit,
+                                                            Map<String, AttributeValue> exclusiveStartKey) {
+        return RequestMetrics.current()
+                .timeAsync(Phase.DYNAMODB, () -> storage.queryKeys(tableName, pk, null, limit, exclusiveStartKey));
+    }
+    
+    /**
+     * Streams every item under {@code pk}, newest first, fetching further pages
+     * of {@code pageSize} items only as the iterator advances. Intended for
+     * internal consumers that need a user's full history.
+     */
+    protected Iterator<Map<String, AttributeValue>> queryAll(String pk, String skPrefix, int pageSize) {
+        return new QueryIterator(pk, skPrefix, pageSize);
+    }
+    
+    protected Map<String, AttributeValue> getIndexItem(String indexName, String hashAttribute, String hashValue,
+                                                       String rangeAttribute, String rangeValue) {
+        return join(getIndexItemAsync(indexName, hashAttribute, hashValue, rangeAttribute, rangeValue));
+    }
+    
+    /**
+     * Reads the single item with the given full key on a secondary index, or
+     * {@code null}. Index reads are eventually consistent.
+     */
+    protected CompletableFuture<Map<String, AttributeValue>> getIndexItemAsync(String indexName,
+                                                                               String hashAttribute, String hashValue,
+                                                                               String rangeAttribute, String rangeValue) {
+        return RequestMetrics.current().timeAsync(Phase.DYNAMODB, () -> storage.getIndexItem(tableName, indexName,
+                hashAttribute, hashValue, rangeAttribute, rangeValue));
+    }
+    
+    private final class QueryIterator implements Iterator<Map<String, AttributeValue>> {
+        private final String pk;
+        private final String skPrefix;
+        private final int pageSize;
+        private Iterator<Map<String, AttributeValue>> current = Collections.emptyIterator();
+        private Map<String, AttributeValue> startKey;
+        private boolean exhausted;
         
-        if (skPrefix != null && !skPrefix.isEmpty()) {
-            keyConditionExpression += " AND begins_with(sk, :sk)";
-            expressionValues.put(":sk", AttributeValue.builder().s(skPrefix).build());
+        private QueryIterator(String pk, String skPrefix, int pageSize) {
+            this.pk = pk;
+            this.skPrefix = skPrefix;
+            this.pageSize = pageSize;
         }
         
-        QueryRequest request = QueryRequest.builder()
-                .tableName(tableName)
-                .keyConditionExpression(keyConditionExpression)
-                .expressionAttributeValues(expressionValues)
-                .scanIndexForward(false)
-                .build();
+        @Override
+        public boolean hasNext() {
+            // A page can come back empty while LastEvaluatedKey is still set.
+            while (!current.hasNext() && !exhausted) {
+                Map<String, AttributeValue> from = startKey;
+                QueryResult result = join(RequestMetrics.current()
+                        .timeAsync(Phase.DYNAMODB, () -> storage.query(tableName, pk, skPrefix, pageSize, from)));
+                current = result.items().iterator();
+                startKey = result.lastEvaluatedKey();
+                exhausted = startKey == null;
+            }
+            return current.hasNext();
+        }
         
-        QueryResponse response = dynamoDbClient.query(request);
-        return response.items();
+        @Override
+        public Map<String, AttributeValue> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+    }
+    
+    /**
+     * Waits for an async call and rethrows its failure unwrapped, so blocking
+     * callers see the same SDK exceptions the sync client used to throw.
+     */
+    protected static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+    
+    static Map<String, AttributeValue> key(String pk, String sk) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("pk", AttributeValue.builder().s(pk).build());
+        key.put("sk", AttributeValue.builder().s(sk).build());
+        return key;
     }
     
     protected String getStringAttribute(Map<String, AttributeValue> item, String attributeName) {
@@ -149,18 +421,70 @@ public abstract class DynamoDbRepository {
         return null;
     }
     
+    protected AttributeValue convertMapToAttributeValue(Map<String, Object> map) {
+        Map<String, AttributeValue> attributeMap = new HashMap<>();
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            AttributeValue value = toAttributeValue(entry.getValue());
+            if (value != null) {
+                attributeMap.put(entry.getKey(), value);
+            }
+        }
+        return AttributeValue.builder().m(attributeMap).build();
+    }
+    
+    @SuppressWarnings("unchecked")
+    private AttributeValue toAttributeValue(Object value) {
+        if (value instanceof String) {
+            return AttributeValue.builder().s((String) value).build();
+        } else if (value instanceof Number) {
+            return AttributeValue.builder().n(value.toString()).build();
+        } else if (value instanceof Boolean) {
+            return AttributeValue.builder().bool((Boolean) value).build();
+        } else if (value instanceof Map) {
+            return convertMapToAttributeValue((Map<String, Object>) value);
+        } else if (value instanceof List) {
+            List<AttributeValue> list = new ArrayList<>();
+            for (Object element : (List<?>) value) {
+                AttributeValue converted = toAttributeValue(element);
+                if (converted != null) {
+                    list.add(converted);
+                }
+            }
+            return AttributeValue.builder().l(list).build();
+        }
+        return null;
+    }
+    
     private Map<String, Object> convertAttributeValueMapToMap(Map<String, AttributeValue> attributeMap) {
         Map<String, Object> result = new HashMap<>();
         for (Map.Entry<String, AttributeValue> entry : attributeMap.entrySet()) {
-            AttributeValue val = entry.getValue();
-            if (val.s() != null) {
-                result.put(entry.getKey(), val.s());
-            } else if (val.n() != null) {
-                result.put(entry.getKey(), Double.parseDouble(val.n()));
-            } else if (val.bool() != null) {
-                result.put(entry.getKey(), val.bool());
+            Object value = fromAttributeValue(entry.getValue());
+            if (value != null) {
+                result.put(entry.getKey(), value);
             }
         }
         return result;
     }
+    
+    private Object fromAttributeValue(AttributeValue val) {
+        if (val.s() != null) {
+            return val.s();
+        } else if (val.n() != null) {
+            return Double.parseDouble(val.n());
+        } else if (val.bool() != null) {
+            return val.bool();
+        } else if (val.hasM()) {
+            return convertAttributeValueMapToMap(val.m());
+        } else if (val.hasL()) {
+            List<Object> list = new ArrayList<>(val.l().size());
+            for (AttributeValue element : val.l()) {
+                Object converted = fromAttributeValue(element);
+                if (converted != null) {
+                    list.add(converted);
+                }
+            }
+            return list;
+        }
+        return null;
+    }
 }
@@ -0,0 +1,227 @@
+package com.phantom.repository;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * {@link StorageEngine} backed by DynamoDB through the async client. Each
+ * operation is a single API call; retries of unprocessed batch items are left
+ * to {@link DynamoDbRepository}.
+ */
+public class DynamoDbStorageEngine implements StorageEngine {
+
+    private final DynamoDbAsyncClient client;
+
+    public DynamoDbStorageEngine(DynamoDbAsyncClient client) {
+        this.client = client;
+    }
+
+    public DynamoDbAsyncClient client() {
+        return client;
+    }
+
+    @Override
+    public CompletableFuture<Map<String, AttributeValue>> getItem(String table, Map<String, AttributeValue> key) {
+        GetItemRequest request = GetItemRequest.builder()
+                .tableName(table)
+                .key(key)
+                .build();
+
+        return cancellable(client.getItem(request),
+                response -> response.hasItem() ? response.item() : null);
+    }
+
+    @Override
+    public CompletableFuture<Void> putItem(String table, Map<String, AttributeValue> item) {
+        PutItemRequest request = PutItemRequest.builder()
+                .tableName(table)
+                .item(item)
+                .build();
+
+        return client.putItem(request).thenApply(response -> null);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteItem(String table, Map<String, AttributeValue> key) {
+        DeleteItemRequest request = DeleteItemRequest.builder()
+                .tableName(table)
+                .key(key)
+                .build();
+
+        return client.deleteItem(request).thenApply(response -> null);
+    }
+
+    /**
+     * When {@code returnNew} is set, a failed condition's
+     * {@link ConditionalCheckFailedException} also carries the item as it was
+     * ({@code ALL_OLD}), or no item if it did not exist.
+     */
+    @Override
+    public CompletableFuture<Map<String, AttributeValue>> updateItem(String table, ItemUpdate update, boolean returnNew) {
+        UpdateItemRequest.Builder request = UpdateItemRequest.builder()
+                .tableName(table)
+                .key(update.key())
+                .updateExpression(update.updateExpression())
+                .conditionExpression(update.conditionExpression())
+                .expressionAttributeNames(update.expressionAttributeNames())
+                .expressionAttributeValues(update.expressionAttributeValues());
+        if (returnNew) {
+            request.returnValues(ReturnValue.ALL_NEW)
+                    .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD);
+        }
+
+        return client.updateItem(request.build())
+                .thenApply(response -> returnNew ? response.attributes() : null);
+    }
+
+    @Override
+    public CompletableFuture<QueryResult> query(String table, String pk, String skPrefix, int limit,
+                                                Map<String, AttributeValue> exclusiveStartKey) {
+        return query(table, pk, skPrefix, limit, exclusiveStartKey, null);
+    }
+
+    @Override
+    public CompletableFuture<QueryResult> queryKeys(String table, String pk, String skPrefix, int limit,
+                                                    Map<String, AttributeValue> exclusiveStartKey) {
+        return query(table, pk, skPrefix, limit, exclusiveStartKey, "pk, sk");
+    }
+
+    private CompletableFuture<QueryResult> query(String table, String pk, String skPrefix, int limit,
+                                                 Map<String, AttributeValue> exclusiveStartKey,
+                                                 String projectionExpression) {
+        Map<String, AttributeValue> expressionValues = new HashMap<>();
+        expressionValues.put(":pk", AttributeValue.builder().s(pk).build());
+
+        String keyConditionExpression = "pk = :pk";
+
+        if (skPrefix != null && !skPrefix.isEmpty()) {
+            keyConditionExpression += " AND begins_with(sk, :sk)";
+            expressionValues.put(":sk", AttributeValue.builder().s(skPrefix).build());
+        }
+
+        QueryRequest request = QueryRequest.builder()
+                .tableName(table)
+                .keyConditionExpression(keyConditionExpression)
+                .expressionAttributeValues(expressionValues)
+                .scanIndexForward(false)
+                .limit(limit)
+                .exclusiveStartKey(exclusiveStartKey)
+                .projectionExpression(projectionExpression)
+                .build();
+
+        return cancellable(client.query(request),
+                response -> new QueryResult(response.items(),
+                        response.hasLastEvaluatedKey() ? response.lastEvaluatedKey() : null));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, AttributeValue>> getIndexItem(String table, String indexName,
+                                                                       String hashAttribute, String hashValue,
+                                                                       String rangeAttribute, String rangeValue) {
+        Map<String, String> expressionNames = new HashMap<>();
+        expressionNames.put("#h", hashAttribute);
+        expressionNames.put("#r", rangeAttribute);
+
+        Map<String, AttributeValue> expressionValues = new HashMap<>();
+        expressionValues.put(":h", AttributeValue.builder().s(hashValue).build());
+        expressionValues.put(":r", AttributeValue.builder().s(rangeValue).build());
+
+        QueryRequest request = QueryRequest.builder()
+                .tableName(table)
+                .indexName(indexName)
+                .keyConditionExpression("#h = :h AND #r = :r")
+                .expressionAttributeNames(expressionNames)
+                .expressionAttributeValues(expressionValues)
+                .limit(1)
+                .build();
+
+        return cancellable(client.query(request),
+                response -> response.hasItems() && !response.items().isEmpty() ? response.items().get(0) : null);
+    }
+
+    @Override
+    public CompletableFuture<BatchGetResult> batchGet(String table, List<Map<String, AttributeValue>> keys) {
+        BatchGetItemRequest request = BatchGetItemRequest.builder()
+                .requestItems(Map.of(table, KeysAndAttributes.builder().keys(keys).build()))
+                .build();
+
+        return client.batchGetItem(request)
+                .thenApply(response -> {
+                    KeysAndAttributes unprocessed = response.unprocessedKeys().get(table);
+                    return new BatchGetResult(response.responses().getOrDefault(table, List.of()),
+                            unprocessed != null ? unprocessed.keys() : null);
+                });
+    }
+
+    @Override
+    public CompletableFuture<List<WriteRequest>> batchWrite(String table, List<WriteRequest> writes) {
+        BatchWriteItemRequest request = BatchWriteItemRequest.builder()
+                .requestItems(Map.of(table, writes))
+                .build();
+
+        return client.batchWriteItem(request)
+                .thenApply(response -> response.unprocessedItems().getOrDefault(table, List.of()));
+    }
+
+    /**
+     * Issues one {@code TransactWriteItems} call. If any condition fails the
+     * future fails with {@link TransactionCanceledException}, whose
+     * cancellation reasons are in the same order as {@code writes}.
+     */
+    @Override
+    public CompletableFuture<Void> transactWrite(String table, List<WriteOp> writes) {
+        List<TransactWriteItem> items = new ArrayList<>(writes.size());
+        for (WriteOp write : writes) {
+            items.add(write.update() != null
+                    ? transactUpdate(table, write.update())
+                    : TransactWriteItem.builder()
+                            .put(Put.builder().tableName(table).item(write.item()).build())
+                            .build());
+        }
+        TransactWriteItemsRequest request = TransactWriteItemsRequest.builder()
+                .transactItems(items)
+                .build();
+
+        return client.transactWriteItems(request).thenApply(response -> null);
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+
+    private static TransactWriteItem transactUpdate(String table, ItemUpdate update) {
+        return TransactWriteItem.builder()
+                .update(Update.builder()
+                        .tableName(table)
+                        .key(update.key())
+                        .updateExpression(update.updateExpression())
+                        .conditionExpression(update.conditionExpression())
+                        .expressionAttributeNames(update.expressionAttributeNames())
+                        .expressionAttributeValues(update.expressionAttributeValues())
+                        .build())
+                .build();
+    }
+
+    /**
+     * Maps the call's response, passing cancellation of the mapped future back
+     * to the call so the SDK abandons the request instead of finishing it for
+     * nobody. {@link HedgingStorageEngine} relies on this for the losing read.
+     */
+    private static <R, T> CompletableFuture<T> cancellable(CompletableFuture<R> call, Function<R, T> mapper) {
+        CompletableFuture<T> mapped = call.thenApply(mapper);
+        mapped.whenComplete((result, error) -> {
+            if (mapped.isCancelled()) {
+                call.cancel(true);
+            }
+        });
+        return mapped;
+    }
+}
@@ -0,0 +1,39 @@
+package com.phantom.repository;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Allocates {@code #name} and {@code :value} placeholders for one request, so
+ * the update and condition expressions of an item share a single namespace.
+ */
+final class ExpressionPlaceholders {
+
+    private final Map<String, String> names = new HashMap<>();
+    private final Map<String, String> nameByAttribute = new HashMap<>();
+    private final Map<String, AttributeValue> values = new HashMap<>();
+
+    String name(String attribute) {
+        return nameByAttribute.computeIfAbsent(attribute, a -> {
+            String placeholder = "#n" + names.size();
+            names.put(placeholder, a);
+            return placeholder;
+        });
+    }
+
+    String value(AttributeValue value) {
+        String placeholder = ":v" + values.size();
+        values.put(placeholder, value);
+        return placeholder;
+    }
+
+    Map<String, String> names() {
+        return names;
+    }
+
+    Map<String, AttributeValue> values() {
+        return values;
+    }
+}
@@ -0,0 +1,139 @@
+package com.phantom.repository;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.phantom.model.entity.PackedGhostAttributes;
+import com.phantom.util.Json;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Packs a ghost's bulky attributes, the logged quote and a long note, into one
+ * binary attribute. That saves the per-item attribute names of the quote map
+ * and compresses the text.
+ *
+ * Layout: one format-version byte, then a zlib-deflated JSON object with
+ * optional {@code q} (logged quote) and {@code n} (note) members. Readers
+ * reject versions they do not know rather than guess.
+ */
+final class GhostAttributeCodec {
+
+    private static final byte FORMAT_V1 = 1;
+    private static final ObjectMapper objectMapper = Json.mapper();
+    private static final TypeReference<Map<String, Object>> CONTENTS_TYPE = new TypeReference<>() {
+    };
+
+    private GhostAttributeCodec() {
+    }
+
+    static AttributeValue encode(Map<String, Object> loggedQuote, String noteText) {
+        Map<String, Object> contents = new HashMap<>(4);
+        if (loggedQuote != null) {
+            contents.put("q", loggedQuote);
+        }
+        if (noteText != null) {
+            contents.put("n", noteText);
+        }
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            bytes.write(FORMAT_V1);
+            try (DeflaterOutputStream out = new DeflaterOutputStream(bytes, deflater)) {
+                objectMapper.writeValue(out, contents);
+            }
+            return AttributeValue.builder().b(SdkBytes.fromByteArrayUnsafe(bytes.toByteArray())).build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /** Returns a view that inflates {@code packed} the first time it is read. */
+    static PackedGhostAttributes decodeLazily(SdkBytes packed) {
+        return new LazyAttributes(packed);
+    }
+
+    private static Map<String, Object> decode(SdkBytes packed) {
+        byte[] bytes = packed.asByteArrayUnsafe();
+        if (bytes.length == 0 || bytes[0] != FORMAT_V1) {
+            throw new IllegalStateException("Unsupported packed ghost format " + (bytes.length == 0 ? "(empty)" : bytes[0]));
+        }
+
+        Inflater inflater = new Inflater();
+        try (InflaterInputStream in = new InflaterInputStream(
+                new ByteArrayInputStream(bytes, 1, bytes.length - 1), inflater)) {
+            return objectMapper.readValue(in, CONTENTS_TYPE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * JSON brings back whole numbers as integers; the unpacked map attribute
+     * reads every number as a double, so the two paths return the same shape.
+     */
+    @SuppressWarnings("unchecked")
+    private static Object normalizeNumbers(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        } else if (value instanceof Map) {
+            Map<String, Object> map = (Map<String, Object>) value;
+            map.replaceAll((key, element) -> normalizeNumbers(element));
+            return map;
+        } else if (value instanceof List) {
+            List<Object> list = new ArrayList<>((List<Object>) value);
+            list.replaceAll(GhostAttributeCodec::normalizeNumbers);
+            return list;
+        }
+        return value;
+    }
+
+    private static final class LazyAttributes implements PackedGhostAttributes {
+        private final SdkBytes packed;
+        private Map<String, Object> contents;
+
+        private LazyAttributes(SdkBytes packed) {
+            this.packed = packed;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map<String, Object> loggedQuote() {
+            return (Map<String, Object>) contents().get("q");
+        }
+
+        @Override
+        public String noteText() {
+            return (String) contents().get("n");
+        }
+
+        private Map<String, Object> contents() {
+            if (contents == null) {
+                Map<String, Object> decoded = decode(packed);
+                Object quote = decoded.get("q");
+                if (quote != null) {
+                    decoded.put("q", normalizeNumbers(quote));
+                }
+                contents = decoded;
+            }
+            return contents;
+        }
+    }
+}
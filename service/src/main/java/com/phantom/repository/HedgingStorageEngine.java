@@ -0,0 +1,216 @@
+package com.phantom.repository;
+
+import com.phantom.metrics.RequestMetrics;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cuts the tail latency of idempotent reads by hedging: when a
+ * {@code getItem}, {@code query} or {@code getIndexItem} has been outstanding
+ * for longer than the recent p95 of that operation on that table, the same
+ * read is sent again, the first answer wins and the other call is cancelled.
+ * Writes, batches and transactions pass straight through.
+ *
+ * Hedges are paid for from a shared budget that every read tops up by a
+ * twentieth of a hedge, so backup reads add at most about 5% to the load on
+ * the delegate, even when the whole backend slows down at once.
+ */
+public final class HedgingStorageEngine implements StorageEngine {
+
+    private static final double HEDGE_PERCENTILE = 0.95;
+    private static final long HISTOGRAM_WINDOW_MS = 10_000;
+    private static final int MIN_SAMPLES = 50;
+    // Budget in thousandths of a hedge: 50 per read caps hedges at 5% of reads.
+    private static final long BUDGET_PER_READ = 50;
+    private static final long BUDGET_PER_HEDGE = 1_000;
+    private static final long MAX_BUDGET = 10 * BUDGET_PER_HEDGE;
+
+    private final StorageEngine delegate;
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private final AtomicLong budget = new AtomicLong();
+    private final ScheduledExecutorService timer;
+
+    public HedgingStorageEngine(StorageEngine delegate) {
+        this.delegate = delegate;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "storage-hedge");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Map<String, AttributeValue>> getItem(String table, Map<String, AttributeValue> key) {
+        return hedged("GetItem", table, () -> delegate.getItem(table, key));
+    }
+
+    @Override
+    public CompletableFuture<Void> putItem(String table, Map<String, AttributeValue> item) {
+        return delegate.putItem(table, item);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteItem(String table, Map<String, AttributeValue> key) {
+        return delegate.deleteItem(table, key);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, AttributeValue>> updateItem(String table, ItemUpdate update, boolean returnNew) {
+        return delegate.updateItem(table, update, returnNew);
+    }
+
+    @Override
+    public CompletableFuture<QueryResult> query(String table, String pk, String skPrefix, int limit,
+                                                Map<String, AttributeValue> exclusiveStartKey) {
+        return hedged("Query", table, () -> delegate.query(table, pk, skPrefix, limit, exclusiveStartKey));
+    }
+
+    @Override
+    public CompletableFuture<QueryResult> queryKeys(String table, String pk, String skPrefix, int limit,
+                                                    Map<String, AttributeValue> exclusiveStartKey) {
+        return hedged("Query", table, () -> delegate.queryKeys(table, pk, skPrefix, limit, exclusiveStartKey));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, AttributeValue>> getIndexItem(String table, String indexName,
+                                                                       String hashAttribute, String hashValue,
+                                                                       String rangeAttribute, String rangeValue) {
+        return hedged("QueryIndex", table, () -> delegate.getIndexItem(table, indexName,
+                hashAttribute, hashValue, rangeAttribute, rangeValue));
+    }
+
+    @Override
+    public CompletableFuture<BatchGetResult> batchGet(String table, List<Map<String, AttributeValue>> keys) {
+        return delegate.batchGet(table, keys);
+    }
+
+    @Override
+    public CompletableFuture<List<WriteRequest>> batchWrite(String table, List<WriteRequest> writes) {
+        return delegate.batchWrite(table, writes);
+    }
+
+    @Override
+    public CompletableFuture<Void> transactWrite(String table, List<WriteOp> writes) {
+        return delegate.transactWrite(table, writes);
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        delegate.close();
+    }
+
+    private <T> CompletableFuture<T> hedged(String operation, String table, Supplier<CompletableFuture<T>> read) {
+        LatencyHistogram latency = latencies.computeIfAbsent(operation + ' ' + table,
+                name -> new LatencyHistogram(HISTOGRAM_WINDOW_MS, MIN_SAMPLES));
+        budget.updateAndGet(balance -> Math.min(MAX_BUDGET, balance + BUDGET_PER_READ));
+        long hedgeAfterNanos = latency.percentile(HEDGE_PERCENTILE);
+
+        long start = System.nanoTime();
+        CompletableFuture<T> primary = read.get();
+        // Reads cut short by a faster hedge still took at least this long, so
+        // their elapsed time keeps the percentile from drifting down.
+        primary.whenComplete((result, error) -> {
+            if (error == null || unwrap(error) instanceof CancellationException) {
+                latency.record(System.nanoTime() - start);
+            }
+        });
+        if (hedgeAfterNanos < 0) {
+            return primary;
+        }
+
+        Race<T> race = new Race<>(primary);
+        RequestMetrics metrics = RequestMetrics.current();
+        ScheduledFuture<?> hedge = timer.schedule(() -> {
+            if (!race.result.isDone() && spendBudget()) {
+                race.hedge(read, metrics);
+            }
+        }, hedgeAfterNanos, TimeUnit.NANOSECONDS);
+        race.result.whenComplete((result, error) -> hedge.cancel(false));
+        return race.result;
+    }
+
+    private boolean spendBudget() {
+        while (true) {
+            long balance = budget.get();
+            if (balance < BUDGET_PER_HEDGE) {
+                return false;
+            }
+            if (budget.compareAndSet(balance, balance - BUDGET_PER_HEDGE)) {
+                return true;
+            }
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * The primary read and, once sent, its hedge. The result takes the first
+     * success; it fails only once every call sent has failed.
+     */
+    private static final class Race<T> {
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final CompletableFuture<T> primary;
+        private final AtomicInteger outstanding = new AtomicInteger(1);
+        private volatile CompletableFuture<T> backup;
+
+        private Race(CompletableFuture<T> primary) {
+            this.primary = primary;
+            primary.whenComplete(this::onComplete);
+        }
+
+        private void hedge(Supplier<CompletableFuture<T>> read, RequestMetrics metrics) {
+            // Once every call has failed the race is over; don't reopen it.
+            if (outstanding.getAndUpdate(count -> count == 0 ? 0 : count + 1) == 0) {
+                return;
+            }
+            metrics.hedgedRead();
+            CompletableFuture<T> call;
+            try {
+                call = read.get();
+            } catch (RuntimeException e) {
+                call = CompletableFuture.failedFuture(e);
+            }
+            backup = call;
+            call.whenComplete(this::onComplete);
+            if (result.isDone()) {
+                // The primary won while this call was being sent.
+                call.cancel(true);
+            }
+        }
+
+        private void onComplete(T value, Throwable error) {
+            if (error == null) {
+                if (result.complete(value)) {
+                    cancelLosers();
+                }
+            } else if (outstanding.decrementAndGet() == 0) {
+                result.completeExceptionally(unwrap(error));
+            }
+        }
+
+        private void cancelLosers() {
+            primary.cancel(true);
+            CompletableFuture<T> call = backup;
+            if (call != null) {
+                call.cancel(true);
+            }
+        }
+    }
+}
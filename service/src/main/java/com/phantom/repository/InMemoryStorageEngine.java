@@ -0,0 +1,743 @@
+package com.phantom.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.phantom.util.Constants;
+import com.phantom.util.Json;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * {@link StorageEngine} that keeps the tables in process, for the standalone
+ * server, load tests and benchmarks. It mirrors the parts of DynamoDB the
+ * repositories rely on:
+ * <ul>
+ *   <li>each partition is a sorted map of sort key to item, queried in
+ *       descending order with an optional {@code begins_with} prefix</li>
+ *   <li>conditional updates and all-or-nothing transactions, failing with the
+ *       same SDK exceptions as DynamoDB</li>
+ *   <li>secondary indexes on a hash and range attribute</li>
+ *   <li>a TTL attribute in epoch seconds; expired items are invisible to
+ *       reads and conditions and purged in the background</li>
+ * </ul>
+ *
+ * Reads are lock-free: stored items are immutable and partitions are
+ * concurrent maps. Writes take one of a fixed set of striped locks chosen by
+ * table and partition key, so writers to different users rarely contend; a
+ * transaction takes the locks of all its partitions in stripe order.
+ *
+ * With a snapshot path, the tables are loaded from it at start and written
+ * back periodically while dirty and on {@link #close()}, via a temporary file
+ * and an atomic rename.
+ */
+@Slf4j
+public class InMemoryStorageEngine implements StorageEngine {
+
+    private static final int LOCK_STRIPES = 64;
+    private static final long MAINTENANCE_INTERVAL_SECONDS = 30;
+    private static final ObjectMapper objectMapper = Json.mapper();
+
+    private final Map<String, Table> tables = new HashMap<>();
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final Path snapshotPath;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final ScheduledExecutorService maintenance;
+
+    public InMemoryStorageEngine(List<TableDefinition> definitions, Path snapshotPath) {
+        for (TableDefinition definition : definitions) {
+            tables.put(definition.name, new Table(definition));
+        }
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.snapshotPath = snapshotPath;
+        if (snapshotPath != null && Files.exists(snapshotPath)) {
+            load(snapshotPath);
+        }
+
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "storage-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(this::runMaintenance,
+                MAINTENANCE_INTERVAL_SECONDS, MAINTENANCE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * The service's two tables: the app table with its ghost-id index, and
+     * the cache table with its {@code expiresAt} TTL.
+     *
+     * @param snapshotPath file to load from and persist to, or {@code null} to
+     *        keep the data in memory only
+     */
+    public static InMemoryStorageEngine forServiceTables(Path snapshotPath) {
+        return new InMemoryStorageEngine(List.of(
+                new TableDefinition(Constants.APP_TABLE_NAME, null,
+                        List.of(new IndexDefinition(Constants.GSI_GHOST_ID, Constants.ATTR_GHOST_ID, Constants.ATTR_PK))),
+                new TableDefinition(Constants.CACHE_TABLE_NAME, "expiresAt", List.of())),
+                snapshotPath);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, AttributeValue>> getItem(String table, Map<String, AttributeValue> key) {
+        return complete(() -> {
+            Table t = table(table);
+            return t.live(t.get(keyString(key, Constants.ATTR_PK), keyString(key, Constants.ATTR_SK)), nowEpochSeconds());
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> putItem(String table, Map<String, AttributeValue> item) {
+        return complete(() -> {
+            Table t = table(table);
+            String pk = keyString(item, Constants.ATTR_PK);
+            ReentrantLock lock = lockFor(table, pk);
+            lock.lock();
+            try {
+                t.write(pk, keyString(item, Constants.ATTR_SK), item);
+            } finally {
+                lock.unlock();
+            }
+            dirty.set(true);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteItem(String table, Map<String, AttributeValue> key) {
+        return complete(() -> {
+            Table t = table(table);
+            String pk = keyString(key, Constants.ATTR_PK);
+            ReentrantLock lock = lockFor(table, pk);
+            lock.lock();
+            try {
+                t.write(pk, keyString(key, Constants.ATTR_SK), null);
+            } finally {
+                lock.unlock();
+            }
+            dirty.set(true);
+            return null;
+        });
+    }
+
+    /**
+     * A failed condition fails the future with
+     * {@link ConditionalCheckFailedException}, carrying the current item when
+     * {@code returnNew} is set, as DynamoDB does for {@code ALL_OLD}.
+     */
+    @Override
+    public CompletableFuture<Map<String, AttributeValue>> updateItem(String table, ItemUpdate update, boolean returnNew) {
+        return complete(() -> {
+            Table t = table(table);
+            ReentrantLock lock = lockFor(table, update.pk());
+            lock.lock();
+            try {
+                Map<String, AttributeValue> current = t.live(t.get(update.pk(), update.sk()), nowEpochSeconds());
+                if (!update.conditionHolds(current)) {
+                    throw ConditionalCheckFailedException.builder()
+                            .message("The conditional request failed")
+                            .item(returnNew ? current : null)
+                            .build();
+                }
+                Map<String, AttributeValue> updated = t.write(update.pk(), update.sk(), update.applyTo(current));
+                dirty.set(true);
+                return returnNew ? updated : null;
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<QueryResult> query(String table, String pk, String skPrefix, int limit,
+                                                Map<String, AttributeValue> exclusiveStartKey) {
+        return complete(() -> {
+            Table t = table(table);
+            NavigableMap<String, Map<String, AttributeValue>> partition = t.partitions.get(pk);
+            if (partition == null) {
+                return new QueryResult(Collections.emptyList(), null);
+            }
+            if (skPrefix != null && !skPrefix.isEmpty()) {
+                partition = partition.subMap(skPrefix, true, skPrefix + Character.MAX_VALUE, false);
+            }
+            partition = partition.descendingMap();
+            if (exclusiveStartKey != null) {
+                partition = partition.tailMap(keyString(exclusiveStartKey, Constants.ATTR_SK), false);
+            }
+
+            long now = nowEpochSeconds();
+            List<Map<String, AttributeValue>> items = new ArrayList<>(Math.min(limit, 64));
+            Map<String, AttributeValue> lastEvaluatedKey = null;
+            for (Map<String, AttributeValue> item : partition.values()) {
+                if (t.live(item, now) == null) {
+                    continue;
+                }
+                if (items.size() == limit) {
+                    // Only hand out a cursor when there really is another item.
+                    Map<String, AttributeValue> last = items.get(items.size() - 1);
+                    lastEvaluatedKey = DynamoDbRepository.key(pk, keyString(last, Constants.ATTR_SK));
+                    break;
+                }
+                items.add(item);
+            }
+            return new QueryResult(items, lastEvaluatedKey);
+        });
+    }
+
+    @Override
+    public CompletableFuture<QueryResult> queryKeys(String table, String pk, String skPrefix, int limit,
+                                                    Map<String, AttributeValue> exclusiveStartKey) {
+        return query(table, pk, skPrefix, limit, exclusiveStartKey).thenApply(result -> {
+            List<Map<String, AttributeValue>> keys = new ArrayList<>(result.items().size());
+            for (Map<String, AttributeValue> item : result.items()) {
+                keys.add(DynamoDbRepository.key(pk, keyString(item, Constants.ATTR_SK)));
+            }
+            return new QueryResult(keys, result.lastEvaluatedKey());
+        });
+    }
+
+    @Override
+    public CompletableFuture<Map<String, AttributeValue>> getIndexItem(String table, String indexName,
+                                                                       String hashAttribute, String hashValue,
+                                                                       String rangeAttribute, String rangeValue) {
+        return complete(() -> {
+            Table t = table(table);
+            Index index = t.indexes.get(indexName);
+            if (index == null || !index.definition.hashAttribute.equals(hashAttribute)
+                    || !index.definition.rangeAttribute.equals(rangeAttribute)) {
+                throw ResourceNotFoundException.builder()
+                        .message("Table " + table + " has no index " + indexName + " on " + hashAttribute + ", " + rangeAttribute)
+                        .build();
+            }
+            ItemKey key = index.entries.get(Index.entryKey(hashValue, rangeValue));
+            return key != null ? t.live(t.get(key.pk, key.sk), nowEpochSeconds()) : null;
+        });
+    }
+
+    /** Never leaves keys unprocessed. */
+    @Override
+    public CompletableFuture<BatchGetResult> batchGet(String table, List<Map<String, AttributeValue>> keys) {
+        return complete(() -> {
+            Table t = table(table);
+            long now = nowEpochSeconds();
+            List<Map<String, AttributeValue>> items = new ArrayList<>(keys.size());
+            for (Map<String, AttributeValue> key : keys) {
+                Map<String, AttributeValue> item = t.live(
+                        t.get(keyString(key, Constants.ATTR_PK), keyString(key, Constants.ATTR_SK)), now);
+                if (item != null) {
+                    items.add(item);
+                }
+            }
+            return new BatchGetResult(items, null);
+        });
+    }
+
+    /** Never leaves writes unprocessed. Each write is atomic on its own, as in DynamoDB. */
+    @Override
+    public CompletableFuture<List<WriteRequest>> batchWrite(String table, List<WriteRequest> writes) {
+        return complete(() -> {
+            Table t = table(table);
+            for (WriteRequest write : writes) {
+                Map<String, AttributeValue> item = write.putRequest() != null
+                        ? write.putRequest().item()
+                        : write.deleteRequest().key();
+                String pk = keyString(item, Constants.ATTR_PK);
+                ReentrantLock lock = lockFor(table, pk);
+                lock.lock();
+                try {
+                    t.write(pk, keyString(item, Constants.ATTR_SK), write.putRequest() != null ? item : null);
+                } finally {
+                    lock.unlock();
+                }
+            }
+            dirty.set(true);
+            return Collections.<WriteRequest>emptyList();
+        });
+    }
+
+    /**
+     * Evaluates every condition before applying anything. If one fails the
+     * future fails with {@link TransactionCanceledException}, with one
+     * cancellation reason per write in order: {@code ConditionalCheckFailed}
+     * for the failed ones and {@code None} for the rest.
+     */
+    @Override
+    public CompletableFuture<Void> transactWrite(String table, List<WriteOp> writes) {
+        return complete(() -> {
+            Table t = table(table);
+            TreeSet<Integer> stripes = new TreeSet<>();
+            for (WriteOp write : writes) {
+                stripes.add(stripe(table, pkOf(write)));
+            }
+            for (int stripe : stripes) {
+                locks[stripe].lock();
+            }
+            try {
+                long now = nowEpochSeconds();
+                List<CancellationReason> reasons = new ArrayList<>(writes.size());
+                boolean cancelled = false;
+                for (WriteOp write : writes) {
+                    ItemUpdate update = write.update();
+                    boolean holds = update == null
+                            || update.conditionHolds(t.live(t.get(update.pk(), update.sk()), now));
+                    cancelled |= !holds;
+                    reasons.add(CancellationReason.builder()
+                            .code(holds ? "None" : "ConditionalCheckFailed")
+                            .message(holds ? null : "The conditional request failed")
+                            .build());
+                }
+                if (cancelled) {
+                    throw TransactionCanceledException.builder()
+                            .message("Transaction cancelled")
+                            .cancellationReasons(reasons)
+                            .build();
+                }
+
+                for (WriteOp write : writes) {
+                    ItemUpdate update = write.update();
+                    if (update == null) {
+                        t.write(pkOf(write), keyString(write.item(), Constants.ATTR_SK), write.item());
+                    } else {
+                        t.write(update.pk(), update.sk(), update.applyTo(t.live(t.get(update.pk(), update.sk()), now)));
+                    }
+                }
+                dirty.set(true);
+                return null;
+            } finally {
+                for (int stripe : stripes.descendingSet()) {
+                    locks[stripe].unlock();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        maintenance.shutdownNow();
+        if (snapshotPath != null) {
+            snapshot();
+        }
+    }
+
+    private void runMaintenance() {
+        try {
+            int purged = purgeExpired();
+            if (purged > 0) {
+                log.debug("Purged {} expired items", purged);
+            }
+            if (snapshotPath != null && dirty.get()) {
+                snapshot();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Storage maintenance failed", e);
+        }
+    }
+
+    private int purgeExpired() {
+        int purged = 0;
+        long now = nowEpochSeconds();
+        for (Table t : tables.values()) {
+            if (t.definition.ttlAttribute == null) {
+                continue;
+            }
+            for (Map.Entry<String, ConcurrentSkipListMap<String, Map<String, AttributeValue>>> partition : t.partitions.entrySet()) {
+                for (Map.Entry<String, Map<String, AttributeValue>> entry : partition.getValue().entrySet()) {
+                    if (t.live(entry.getValue(), now) != null) {
+                        continue;
+                    }
+                    ReentrantLock lock = lockFor(t.definition.name, partition.getKey());
+                    lock.lock();
+                    try {
+                        // Re-check under the lock: the item may have been rewritten since.
+                        if (t.live(t.get(partition.getKey(), entry.getKey()), now) == null) {
+                            t.write(partition.getKey(), entry.getKey(), null);
+                            purged++;
+                        }
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }
+        }
+        if (purged > 0) {
+            dirty.set(true);
+        }
+        return purged;
+    }
+
+    /**
+     * Writes every table to the snapshot file. All stripes are held only while
+     * collecting item references, so the file reflects a single point in time
+     * without blocking writers during serialization.
+     */
+    private synchronized void snapshot() {
+        Map<String, List<Map<String, AttributeValue>>> contents = new HashMap<>();
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+        try {
+            dirty.set(false);
+            for (Table t : tables.values()) {
+                List<Map<String, AttributeValue>> items = new ArrayList<>();
+                for (ConcurrentSkipListMap<String, Map<String, AttributeValue>> partition : t.partitions.values()) {
+                    items.addAll(partition.values());
+                }
+                contents.put(t.definition.name, items);
+            }
+        } finally {
+            for (int i = locks.length - 1; i >= 0; i--) {
+                locks[i].unlock();
+            }
+        }
+
+        ObjectNode root = objectMapper.createObjectNode();
+        ObjectNode tablesNode = root.putObject("tables");
+        int count = 0;
+        for (Map.Entry<String, List<Map<String, AttributeValue>>> table : contents.entrySet()) {
+            ArrayNode items = tablesNode.putArray(table.getKey());
+            for (Map<String, AttributeValue> item : table.getValue()) {
+                items.add(toJson(item));
+            }
+            count += table.getValue().size();
+        }
+
+        try {
+            Path directory = snapshotPath.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, snapshotPath.getFileName().toString(), ".tmp");
+            try {
+                objectMapper.writeValue(temp.toFile(), root);
+                Files.move(temp, snapshotPath, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            log.debug("Wrote {} items to {}", count, snapshotPath);
+        } catch (IOException e) {
+            dirty.set(true);
+            log.warn("Failed to write storage snapshot to {}", snapshotPath, e);
+        }
+    }
+
+    private void load(Path path) {
+        try {
+            JsonNode root = objectMapper.readTree(path.toFile());
+            int count = 0;
+            Iterator<Map.Entry<String, JsonNode>> tableNodes = root.path("tables").fields();
+            while (tableNodes.hasNext()) {
+                Map.Entry<String, JsonNode> tableNode = tableNodes.next();
+                Table t = tables.get(tableNode.getKey());
+                if (t == null) {
+                    log.warn("Ignoring unknown table {} in snapshot {}", tableNode.getKey(), path);
+                    continue;
+                }
+                for (JsonNode itemNode : tableNode.getValue()) {
+                    Map<String, AttributeValue> item = fromJson(itemNode);
+                    t.write(keyString(item, Constants.ATTR_PK), keyString(item, Constants.ATTR_SK), item);
+                    count++;
+                }
+            }
+            log.info("Loaded {} items from {}", count, path);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read storage snapshot " + path, e);
+        }
+    }
+
+    private Table table(String name) {
+        Table table = tables.get(name);
+        if (table == null) {
+            throw ResourceNotFoundException.builder().message("Requested resource not found: Table: " + name + " not found").build();
+        }
+        return table;
+    }
+
+    private ReentrantLock lockFor(String table, String pk) {
+        return locks[stripe(table, pk)];
+    }
+
+    private static int stripe(String table, String pk) {
+        int hash = table.hashCode() * 31 + pk.hashCode();
+        return (hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1);
+    }
+
+    private static String pkOf(WriteOp write) {
+        return write.update() != null ? write.update().pk() : keyString(write.item(), Constants.ATTR_PK);
+    }
+
+    private static String keyString(Map<String, AttributeValue> item, String attribute) {
+        AttributeValue value = item.get(attribute);
+        if (value == null || value.s() == null) {
+            throw new IllegalArgumentException("Item is missing string key attribute " + attribute);
+        }
+        return value.s();
+    }
+
+    private static long nowEpochSeconds() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    private static <T> CompletableFuture<T> complete(Supplier<T> operation) {
+        try {
+            return CompletableFuture.completedFuture(operation.get());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /** Snapshot items use DynamoDB's own JSON encoding of attribute values. */
+    private static ObjectNode toJson(Map<String, AttributeValue> item) {
+        ObjectNode node = objectMapper.createObjectNode();
+        for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+            node.set(attribute.getKey(), toJson(attribute.getValue()));
+        }
+        return node;
+    }
+
+    private static ObjectNode toJson(AttributeValue value) {
+        ObjectNode node = objectMapper.createObjectNode();
+        if (value.s() != null) {
+            node.put("S", value.s());
+        } else if (value.n() != null) {
+            node.put("N", value.n());
+        } else if (value.bool() != null) {
+            node.put("BOOL", value.bool());
+        } else if (value.nul() != null) {
+            node.put("NULL", true);
+        } else if (value.b() != null) {
+            node.put("B", value.b().asByteArray());
+        } else if (value.hasSs()) {
+            ArrayNode set = node.putArray("SS");
+            value.ss().forEach(set::add);
+        } else if (value.hasNs()) {
+            ArrayNode set = node.putArray("NS");
+            value.ns().forEach(set::add);
+        } else if (value.hasL()) {
+            ArrayNode list = node.putArray("L");
+            value.l().forEach(element -> list.add(toJson(element)));
+        } else if (value.hasM()) {
+            node.set("M", toJson(value.m()));
+        }
+        return node;
+    }
+
+    private static Map<String, AttributeValue> fromJson(JsonNode node) throws IOException {
+        Map<String, AttributeValue> item = new HashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            item.put(field.getKey(), attributeFromJson(field.getValue()));
+        }
+        return item;
+    }
+
+    private static AttributeValue attributeFromJson(JsonNode node) throws IOException {
+        AttributeValue.Builder value = AttributeValue.builder();
+        if (node.has("S")) {
+            value.s(node.get("S").asText());
+        } else if (node.has("N")) {
+            value.n(node.get("N").asText());
+        } else if (node.has("BOOL")) {
+            value.bool(node.get("BOOL").asBoolean());
+        } else if (node.has("NULL")) {
+            value.nul(true);
+        } else if (node.has("B")) {
+            value.b(SdkBytes.fromByteArray(node.get("B").binaryValue()));
+        } else if (node.has("SS")) {
+            List<String> set = new ArrayList<>();
+            node.get("SS").forEach(element -> set.add(element.asText()));
+            value.ss(set);
+        } else if (node.has("NS")) {
+            List<String> set = new ArrayList<>();
+            node.get("NS").forEach(element -> set.add(element.asText()));
+            value.ns(set);
+        } else if (node.has("L")) {
+            List<AttributeValue> list = new ArrayList<>();
+            for (JsonNode element : node.get("L")) {
+                list.add(attributeFromJson(element));
+            }
+            value.l(list);
+        } else if (node.has("M")) {
+            value.m(fromJson(node.get("M")));
+        }
+        return value.build();
+    }
+
+    /** A table's name, optional TTL attribute (epoch seconds) and secondary indexes. */
+    public static final class TableDefinition {
+        private final String name;
+        private final String ttlAttribute;
+        private final List<IndexDefinition> indexes;
+
+        public TableDefinition(String name, String ttlAttribute, List<IndexDefinition> indexes) {
+            this.name = name;
+            this.ttlAttribute = ttlAttribute;
+            this.indexes = indexes;
+        }
+    }
+
+    /** A secondary index keyed by two string attributes. */
+    public static final class IndexDefinition {
+        private final String name;
+        private final String hashAttribute;
+        private final String rangeAttribute;
+
+        public IndexDefinition(String name, String hashAttribute, String rangeAttribute) {
+            this.name = name;
+            this.hashAttribute = hashAttribute;
+            this.rangeAttribute = rangeAttribute;
+        }
+    }
+
+    private static final class Table {
+        private final TableDefinition definition;
+        private final ConcurrentMap<String, ConcurrentSkipListMap<String, Map<String, AttributeValue>>> partitions =
+                new ConcurrentHashMap<>();
+        private final Map<String, Index> indexes = new HashMap<>();
+
+        private Table(TableDefinition definition) {
+            this.definition = definition;
+            for (IndexDefinition index : definition.indexes) {
+                indexes.put(index.name, new Index(index));
+            }
+        }
+
+        private Map<String, AttributeValue> get(String pk, String sk) {
+            ConcurrentSkipListMap<String, Map<String, AttributeValue>> partition = partitions.get(pk);
+            return partition != null ? partition.get(sk) : null;
+        }
+
+        /** The item, or {@code null} if there is none or its TTL has passed. */
+        private Map<String, AttributeValue> live(Map<String, AttributeValue> item, long nowEpochSeconds) {
+            if (item == null || definition.ttlAttribute == null) {
+                return item;
+            }
+            AttributeValue expiresAt = item.get(definition.ttlAttribute);
+            if (expiresAt != null && expiresAt.n() != null
+                    && new BigDecimal(expiresAt.n()).longValue() <= nowEpochSeconds) {
+                return null;
+            }
+            return item;
+        }
+
+        /**
+         * Stores {@code item} under the key, or removes the key when it is
+         * {@code null}, keeping the indexes in step. Callers hold the key's
+         * stripe lock.
+         */
+        private Map<String, AttributeValue> write(String pk, String sk, Map<String, AttributeValue> item) {
+            Map<String, AttributeValue> stored = item != null ? Collections.unmodifiableMap(new HashMap<>(item)) : null;
+            Map<String, AttributeValue> previous;
+            if (stored != null) {
+                previous = partitions.computeIfAbsent(pk, p -> new ConcurrentSkipListMap<>()).put(sk, stored);
+            } else {
+                ConcurrentSkipListMap<String, Map<String, AttributeValue>> partition = partitions.get(pk);
+                previous = partition != null ? partition.remove(sk) : null;
+                if (partition != null && partition.isEmpty()) {
+                    partitions.remove(pk, partition);
+                }
+            }
+            ItemKey key = new ItemKey(pk, sk);
+            for (Index index : indexes.values()) {
+                index.replace(key, previous, stored);
+            }
+            return stored;
+        }
+    }
+
+    private static final class Index {
+        private final IndexDefinition definition;
+        private final ConcurrentMap<String, ItemKey> entries = new ConcurrentHashMap<>();
+
+        private Index(IndexDefinition definition) {
+            this.definition = definition;
+        }
+
+        private void replace(ItemKey key, Map<String, AttributeValue> previous, Map<String, AttributeValue> current) {
+            String previousEntry = entryKey(previous);
+            String currentEntry = entryKey(current);
+            if (previousEntry != null && !previousEntry.equals(currentEntry)) {
+                entries.remove(previousEntry, key);
+            }
+            if (currentEntry != null) {
+                entries.put(currentEntry, key);
+            }
+        }
+
+        /** Items without both index attributes are not in the index, as with a sparse GSI. */
+        private String entryKey(Map<String, AttributeValue> item) {
+            if (item == null) {
+                return null;
+            }
+            AttributeValue hash = item.get(definition.hashAttribute);
+            AttributeValue range = item.get(definition.rangeAttribute);
+            if (hash == null || hash.s() == null || range == null || range.s() == null) {
+                return null;
+            }
+            return entryKey(hash.s(), range.s());
+        }
+
+        private static String entryKey(String hashValue, String rangeValue) {
+            return hashValue + '\u0000' + rangeValue;
+        }
+    }
+
+    private static final class ItemKey {
+        private final String pk;
+        private final String sk;
+
+        private ItemKey(String pk, String sk) {
+            this.pk = pk;
+            this.sk = sk;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ItemKey)) {
+                return false;
+            }
+            ItemKey other = (ItemKey) o;
+            return pk.equals(other.pk) && sk.equals(other.sk);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(pk, sk);
+        }
+    }
+}
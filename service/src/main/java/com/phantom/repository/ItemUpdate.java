@@ -0,0 +1,146 @@
+package com.phantom.repository;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * An {@code UpdateItem} against one key, assembled from SET, ADD and REMOVE
+ * actions and an optional condition. Used both for standalone updates and as
+ * the update member of a transaction.
+ *
+ * Every action is recorded twice: as expression text for DynamoDB and as a
+ * mutation {@link InMemoryStorageEngine} applies to its copy of the item.
+ */
+public final class ItemUpdate {
+
+    private final String pk;
+    private final String sk;
+    private final ExpressionPlaceholders placeholders = new ExpressionPlaceholders();
+    private final List<String> setActions = new ArrayList<>();
+    private final List<String> addActions = new ArrayList<>();
+    private final List<String> removeActions = new ArrayList<>();
+    private final List<Consumer<Map<String, AttributeValue>>> mutations = new ArrayList<>();
+    private Condition condition;
+    private String conditionExpression;
+
+    private ItemUpdate(String pk, String sk) {
+        this.pk = pk;
+        this.sk = sk;
+    }
+
+    public static ItemUpdate forKey(String pk, String sk) {
+        return new ItemUpdate(pk, sk);
+    }
+
+    public ItemUpdate set(String attribute, AttributeValue value) {
+        setActions.add(placeholders.name(attribute) + " = " + placeholders.value(value));
+        mutations.add(item -> item.put(attribute, value));
+        return this;
+    }
+
+    public ItemUpdate set(String attribute, String value) {
+        return set(attribute, AttributeValue.builder().s(value).build());
+    }
+
+    /** Sets the attribute only if the item does not have it yet. */
+    public ItemUpdate setIfAbsent(String attribute, AttributeValue value) {
+        String name = placeholders.name(attribute);
+        setActions.add(name + " = if_not_exists(" + name + ", " + placeholders.value(value) + ")");
+        mutations.add(item -> item.putIfAbsent(attribute, value));
+        return this;
+    }
+
+    /** Atomically adds {@code delta} to a numeric attribute, treating a missing one as zero. */
+    public ItemUpdate add(String attribute, Number delta) {
+        addActions.add(placeholders.name(attribute) + " " +
+                placeholders.value(AttributeValue.builder().n(delta.toString()).build()));
+        BigDecimal amount = new BigDecimal(delta.toString());
+        mutations.add(item -> {
+            AttributeValue current = item.get(attribute);
+            BigDecimal base = current != null && current.n() != null ? new BigDecimal(current.n()) : BigDecimal.ZERO;
+            item.put(attribute, AttributeValue.builder().n(base.add(amount).toPlainString()).build());
+        });
+        return this;
+    }
+
+    public ItemUpdate remove(String attribute) {
+        removeActions.add(placeholders.name(attribute));
+        mutations.add(item -> item.remove(attribute));
+        return this;
+    }
+
+    public ItemUpdate condition(Condition condition) {
+        this.condition = condition;
+        this.conditionExpression = condition.render(placeholders);
+        return this;
+    }
+
+    Map<String, AttributeValue> key() {
+        return DynamoDbRepository.key(pk, sk);
+    }
+
+    String pk() {
+        return pk;
+    }
+
+    String sk() {
+        return sk;
+    }
+
+    /** Evaluates the condition against the stored item, {@code null} when there is none. */
+    boolean conditionHolds(Map<String, AttributeValue> current) {
+        return condition == null || condition.test(current);
+    }
+
+    /**
+     * Returns a new item with the actions applied to {@code current}, or to
+     * just the key when there is no item yet. {@code current} is not modified.
+     */
+    Map<String, AttributeValue> applyTo(Map<String, AttributeValue> current) {
+        Map<String, AttributeValue> item = current != null ? new HashMap<>(current) : new HashMap<>(key());
+        for (Consumer<Map<String, AttributeValue>> mutation : mutations) {
+            mutation.accept(item);
+        }
+        return item;
+    }
+
+    String updateExpression() {
+        StringBuilder expression = new StringBuilder();
+        appendClause(expression, "SET", setActions);
+        appendClause(expression, "ADD", addActions);
+        appendClause(expression, "REMOVE", removeActions);
+        if (expression.length() == 0) {
+            throw new IllegalStateException("ItemUpdate has no actions");
+        }
+        return expression.toString();
+    }
+
+    String conditionExpression() {
+        return conditionExpression;
+    }
+
+    Map<String, String> expressionAttributeNames() {
+        return placeholders.names();
+    }
+
+    /** Null when no action or condition uses a value, which DynamoDB requires. */
+    Map<String, AttributeValue> expressionAttributeValues() {
+        return placeholders.values().isEmpty() ? null : placeholders.values();
+    }
+
+    private static void appendClause(StringBuilder expression, String keyword, List<String> actions) {
+        if (actions.isEmpty()) {
+            return;
+        }
+        if (expression.length() > 0) {
+            expression.append(' ');
+        }
+        expression.append(keyword).append(' ').append(String.join(", ", actions));
+    }
+}
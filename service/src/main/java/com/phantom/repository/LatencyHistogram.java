@@ -0,0 +1,103 @@
+package com.phantom.repository;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Rolling latency distribution of one operation. Samples land in
+ * logarithmic buckets, four per power of two (about 19% wide), from 16µs to
+ * roughly 17s, so recording is one array increment and a percentile is one
+ * scan of a hundred or so counters.
+ *
+ * Two windows rotate every {@code windowMillis}: percentiles cover the
+ * current window plus the previous one, so they follow shifts in latency
+ * within a couple of windows without starting from nothing at each rotation.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 4;
+    private static final int MIN_SHIFT = 14;           // 2^14 ns ~ 16µs
+    private static final int MAX_SHIFT = 34;           // 2^34 ns ~ 17s
+    private static final int BUCKETS = (MAX_SHIFT - MIN_SHIFT) * SUB_BUCKETS + 1;
+
+    private final long windowNanos;
+    private final int minSamples;
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private volatile AtomicLongArray current = new AtomicLongArray(BUCKETS);
+    private volatile AtomicLongArray previous = new AtomicLongArray(BUCKETS);
+
+    /**
+     * @param minSamples samples needed across both windows before
+     *        {@link #percentile} reports anything
+     */
+    LatencyHistogram(long windowMillis, int minSamples) {
+        this.windowNanos = windowMillis * 1_000_000L;
+        this.minSamples = minSamples;
+    }
+
+    void record(long nanos) {
+        rotateIfDue();
+        current.incrementAndGet(bucket(nanos));
+    }
+
+    /**
+     * The latency below which fraction {@code q} of recent samples fall,
+     * rounded up to a bucket boundary, or {@code -1} while there are too few
+     * samples to say.
+     */
+    long percentile(double q) {
+        rotateIfDue();
+        AtomicLongArray now = current;
+        AtomicLongArray before = previous;
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += now.get(i) + before.get(i);
+        }
+        if (total < minSamples) {
+            return -1;
+        }
+
+        long rank = (long) Math.ceil(q * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += now.get(i) + before.get(i);
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    private void rotateIfDue() {
+        long start = windowStart.get();
+        long now = System.nanoTime();
+        if (now - start < windowNanos || !windowStart.compareAndSet(start, now)) {
+            return;
+        }
+        // A window idle for longer than a full period says nothing about now.
+        previous = now - start < 2 * windowNanos ? current : new AtomicLongArray(BUCKETS);
+        current = new AtomicLongArray(BUCKETS);
+    }
+
+    private static int bucket(long nanos) {
+        if (nanos < (1L << MIN_SHIFT)) {
+            return 0;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(nanos);
+        if (shift >= MAX_SHIFT) {
+            return BUCKETS - 1;
+        }
+        // The two bits after the leading one pick the quarter within the power of two.
+        int sub = (int) ((nanos >>> (shift - 2)) & (SUB_BUCKETS - 1));
+        return (shift - MIN_SHIFT) * SUB_BUCKETS + sub + 1;
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket == 0) {
+            return 1L << MIN_SHIFT;
+        }
+        int shift = (bucket - 1) / SUB_BUCKETS + MIN_SHIFT;
+        int sub = (bucket - 1) % SUB_BUCKETS;
+        return (1L << shift) + ((long) (sub + 1) << (shift - 2));
+    }
+}
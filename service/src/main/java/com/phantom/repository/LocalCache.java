@@ -0,0 +1,103 @@
+package com.phantom.repository;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bounded in-process cache, the tier in front of the cache table. Each entry
+ * carries its own expiry, and entries are weighed so that one large value,
+ * such as a year of candles, counts for more than a quote. Once the total
+ * weight passes the bound, the least recently used entries are evicted.
+ *
+ * Values are shared between readers and must not be modified.
+ */
+final class LocalCache<K, V> {
+
+    private final long maxWeight;
+    private final ToIntFunction<V> weigher;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalWeight;
+
+    LocalCache(long maxWeight, ToIntFunction<V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /** The live value under {@code key}, or {@code null}. */
+    V get(K key) {
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAtMs <= now) {
+                remove(key, entry);
+                return null;
+            }
+            return entry.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Caches {@code value} until {@code expiresAtMs} unless the entry already
+     * cached under the key lives longer, which keeps a slow read from
+     * replacing a fresher save.
+     *
+     * @return how many entries were evicted to make room
+     */
+    int put(K key, V value, long expiresAtMs) {
+        int weight = weigher.applyAsInt(value);
+        if (expiresAtMs <= System.currentTimeMillis() || weight > maxWeight) {
+            return 0;
+        }
+
+        lock.lock();
+        try {
+            Entry<V> existing = entries.get(key);
+            if (existing != null) {
+                if (existing.expiresAtMs > expiresAtMs) {
+                    return 0;
+                }
+                remove(key, existing);
+            }
+            entries.put(key, new Entry<>(value, weight, expiresAtMs));
+            totalWeight += weight;
+
+            int evicted = 0;
+            Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+            while (totalWeight > maxWeight && eldest.hasNext()) {
+                totalWeight -= eldest.next().getValue().weight;
+                eldest.remove();
+                evicted++;
+            }
+            return evicted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remove(K key, Entry<V> entry) {
+        entries.remove(key);
+        totalWeight -= entry.weight;
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final int weight;
+        private final long expiresAtMs;
+
+        private Entry(V value, int weight, long expiresAtMs) {
+            this.value = value;
+            this.weight = weight;
+            this.expiresAtMs = expiresAtMs;
+        }
+    }
+}
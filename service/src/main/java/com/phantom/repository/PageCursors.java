@@ -0,0 +1,130 @@
+package com.phantom.repository;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.phantom.util.Constants;
+import com.phantom.util.Json;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Turns a DynamoDB {@code LastEvaluatedKey} into the opaque {@code nextToken}
+ * handed to clients and back. The token is HMAC-signed and bound to the
+ * partition it was issued for, so a client can neither forge a start key nor
+ * replay one user's cursor against another user's partition.
+ */
+@Slf4j
+final class PageCursors {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final TypeReference<Map<String, String>> KEY_TYPE = new TypeReference<>() {};
+
+    private static final SecretKeySpec KEY = new SecretKeySpec(signingKey(), ALGORITHM);
+    private static final ThreadLocal<Mac> MACS = ThreadLocal.withInitial(PageCursors::newMac);
+
+    private PageCursors() {
+    }
+
+    static String encode(String pk, Map<String, AttributeValue> lastEvaluatedKey) {
+        if (lastEvaluatedKey == null || lastEvaluatedKey.isEmpty()) {
+            return null;
+        }
+
+        Map<String, String> key = new TreeMap<>();
+        for (Map.Entry<String, AttributeValue> entry : lastEvaluatedKey.entrySet()) {
+            if (entry.getValue().s() == null) {
+                throw new IllegalStateException("Only string key attributes can be encoded: " + entry.getKey());
+            }
+            key.put(entry.getKey(), entry.getValue().s());
+        }
+
+        try {
+            byte[] payload = Json.mapper().writeValueAsBytes(key);
+            return ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(sign(pk, payload));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode page cursor", e);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token is malformed, was not
+     *         issued by this service, or belongs to a different partition
+     */
+    static Map<String, AttributeValue> decode(String pk, String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+
+        Map<String, String> key;
+        try {
+            int dot = token.indexOf('.');
+            if (dot < 0) {
+                throw new IllegalArgumentException("Invalid nextToken");
+            }
+            byte[] payload = DECODER.decode(token.substring(0, dot));
+            byte[] signature = DECODER.decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(sign(pk, payload), signature)) {
+                throw new IllegalArgumentException("Invalid nextToken");
+            }
+            key = Json.mapper().readValue(payload, KEY_TYPE);
+        } catch (IllegalArgumentException | IOException e) {
+            throw new IllegalArgumentException("Invalid nextToken");
+        }
+
+        if (!pk.equals(key.get(Constants.ATTR_PK))) {
+            throw new IllegalArgumentException("Invalid nextToken");
+        }
+
+        Map<String, AttributeValue> startKey = new HashMap<>();
+        for (Map.Entry<String, String> entry : key.entrySet()) {
+            startKey.put(entry.getKey(), AttributeValue.builder().s(entry.getValue()).build());
+        }
+        return startKey;
+    }
+
+    private static byte[] sign(String pk, byte[] payload) {
+        Mac mac = MACS.get();
+        mac.update(pk.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        return mac.doFinal(payload);
+    }
+
+    private static Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(KEY);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 unavailable", e);
+        }
+    }
+
+    private static byte[] signingKey() {
+        if (!Constants.CURSOR_SIGNING_KEY.isEmpty()) {
+            return Constants.CURSOR_SIGNING_KEY.getBytes(StandardCharsets.UTF_8);
+        }
+        if (System.getenv("AWS_LAMBDA_FUNCTION_NAME") != null) {
+            // Every execution environment would sign with its own key, so a cursor
+            // would only verify on the one that issued it.
+            throw new IllegalStateException("CURSOR_SIGNING_KEY must be set on Lambda");
+        }
+        // Cursors then only verify on the instance that issued them.
+        log.warn("CURSOR_SIGNING_KEY not set, signing page cursors with a per-process random key");
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return key;
+    }
+}
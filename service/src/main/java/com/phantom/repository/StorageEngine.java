@@ -0,0 +1,148 @@
+package com.phantom.repository;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The storage operations {@link DynamoDbRepository} is built on. Items,
+ * keys and failures use the DynamoDB SDK's model types, so repositories behave
+ * the same on every backend:
+ * <ul>
+ *   <li>{@link DynamoDbStorageEngine} - the DynamoDB tables</li>
+ *   <li>{@link InMemoryStorageEngine} - an embedded engine for local servers,
+ *       load tests and benchmarks, with no network access</li>
+ *   <li>{@link HedgingStorageEngine} - wraps another engine to hedge slow
+ *       reads</li>
+ * </ul>
+ *
+ * Failed conditions surface as the SDK's
+ * {@code ConditionalCheckFailedException} and
+ * {@code TransactionCanceledException} on either backend.
+ */
+public interface StorageEngine {
+
+    CompletableFuture<Map<String, AttributeValue>> getItem(String table, Map<String, AttributeValue> key);
+
+    CompletableFuture<Void> putItem(String table, Map<String, AttributeValue> item);
+
+    CompletableFuture<Void> deleteItem(String table, Map<String, AttributeValue> key);
+
+    /**
+     * Applies the update, creating the item if it does not exist.
+     *
+     * @param returnNew whether to return the item as it is afterwards; when
+     *        {@code false} the future completes with {@code null}
+     */
+    CompletableFuture<Map<String, AttributeValue>> updateItem(String table, ItemUpdate update, boolean returnNew);
+
+    /**
+     * Reads up to {@code limit} items of one partition in descending sort-key
+     * order, optionally restricted to sort keys starting with
+     * {@code skPrefix} and resuming after {@code exclusiveStartKey}.
+     */
+    CompletableFuture<QueryResult> query(String table, String pk, String skPrefix, int limit,
+                                         Map<String, AttributeValue> exclusiveStartKey);
+
+    /**
+     * Like {@link #query}, but each item holds only its {@code pk} and
+     * {@code sk}, for callers that need the keys and not the attributes.
+     */
+    CompletableFuture<QueryResult> queryKeys(String table, String pk, String skPrefix, int limit,
+                                             Map<String, AttributeValue> exclusiveStartKey);
+
+    /**
+     * Reads the item with the given full key on a secondary index, or
+     * {@code null}.
+     */
+    CompletableFuture<Map<String, AttributeValue>> getIndexItem(String table, String indexName,
+                                                                String hashAttribute, String hashValue,
+                                                                String rangeAttribute, String rangeValue);
+
+    /**
+     * Reads at most 100 distinct keys. Keys the backend could not serve this
+     * time are returned as unprocessed for the caller to retry.
+     */
+    CompletableFuture<BatchGetResult> batchGet(String table, List<Map<String, AttributeValue>> keys);
+
+    /**
+     * Applies at most 25 puts and deletes, returning the writes the backend
+     * could not apply this time.
+     */
+    CompletableFuture<List<WriteRequest>> batchWrite(String table, List<WriteRequest> writes);
+
+    /** Applies every write or none of them. */
+    CompletableFuture<Void> transactWrite(String table, List<WriteOp> writes);
+
+    void close();
+
+    final class QueryResult {
+        private final List<Map<String, AttributeValue>> items;
+        private final Map<String, AttributeValue> lastEvaluatedKey;
+
+        public QueryResult(List<Map<String, AttributeValue>> items, Map<String, AttributeValue> lastEvaluatedKey) {
+            this.items = items;
+            this.lastEvaluatedKey = lastEvaluatedKey;
+        }
+
+        public List<Map<String, AttributeValue>> items() {
+            return items;
+        }
+
+        /** Where the next page starts, or {@code null} on the last page. */
+        public Map<String, AttributeValue> lastEvaluatedKey() {
+            return lastEvaluatedKey;
+        }
+    }
+
+    final class BatchGetResult {
+        private final List<Map<String, AttributeValue>> items;
+        private final List<Map<String, AttributeValue>> unprocessedKeys;
+
+        public BatchGetResult(List<Map<String, AttributeValue>> items, List<Map<String, AttributeValue>> unprocessedKeys) {
+            this.items = items;
+            this.unprocessedKeys = unprocessedKeys != null ? unprocessedKeys : Collections.emptyList();
+        }
+
+        public List<Map<String, AttributeValue>> items() {
+            return items;
+        }
+
+        public List<Map<String, AttributeValue>> unprocessedKeys() {
+            return unprocessedKeys;
+        }
+    }
+
+    /** One member of a transaction: an unconditional put or an {@link ItemUpdate}. */
+    final class WriteOp {
+        private final Map<String, AttributeValue> item;
+        private final ItemUpdate update;
+
+        private WriteOp(Map<String, AttributeValue> item, ItemUpdate update) {
+            this.item = item;
+            this.update = update;
+        }
+
+        public static WriteOp put(Map<String, AttributeValue> item) {
+            return new WriteOp(item, null);
+        }
+
+        public static WriteOp update(ItemUpdate update) {
+            return new WriteOp(null, update);
+        }
+
+        /** The item to put, or {@code null} for an update. */
+        public Map<String, AttributeValue> item() {
+            return item;
+        }
+
+        /** The update to apply, or {@code null} for a put. */
+        public ItemUpdate update() {
+            return update;
+        }
+    }
+}
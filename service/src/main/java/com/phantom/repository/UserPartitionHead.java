@@ -0,0 +1,35 @@
+package com.phantom.repository;
+
+import com.phantom.model.entity.DashboardSummary;
+import com.phantom.model.entity.Ghost;
+import com.phantom.model.entity.UserProfile;
+
+/**
+ * What the app needs at launch, read from the head of one user's partition:
+ * the profile, the dashboard summary and the newest page of ghosts. The
+ * profile and summary are {@code null} when they have not been written yet.
+ */
+public final class UserPartitionHead {
+
+    private final UserProfile profile;
+    private final DashboardSummary summary;
+    private final Page<Ghost> ghosts;
+
+    public UserPartitionHead(UserProfile profile, DashboardSummary summary, Page<Ghost> ghosts) {
+        this.profile = profile;
+        this.summary = summary;
+        this.ghosts = ghosts;
+    }
+
+    public UserProfile getProfile() {
+        return profile;
+    }
+
+    public DashboardSummary getSummary() {
+        return summary;
+    }
+
+    public Page<Ghost> getGhosts() {
+        return ghosts;
+    }
+}
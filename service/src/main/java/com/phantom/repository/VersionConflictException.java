@@ -0,0 +1,19 @@
+package com.phantom.repository;
+
+/**
+ * A conditional write found the item at a different version than the caller
+ * expected.
+ */
+public class VersionConflictException extends RuntimeException {
+
+    private final long currentVersion;
+
+    public VersionConflictException(long currentVersion) {
+        super("Item was modified concurrently; current version is " + currentVersion);
+        this.currentVersion = currentVersion;
+    }
+
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+}
@@ -0,0 +1,116 @@
+package com.phantom.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Buffers item puts and writes them in batches off the request path. Puts to
+ * the same key coalesce, so only the latest item for a key is written. The
+ * buffer drains a short linger after the first put, or immediately once it
+ * reaches its capacity, and {@link #flush()} drains it and waits for every
+ * write in flight.
+ *
+ * Write failures are logged and dropped, so this only suits data that can be
+ * rebuilt, such as cached upstream responses.
+ */
+@Slf4j
+final class WriteBehindQueue {
+
+    private static final long FLUSH_TIMEOUT_MS = 5_000;
+
+    private final Function<List<Map<String, AttributeValue>>, CompletableFuture<Void>> writer;
+    private final int capacity;
+    private final Executor lingerExecutor;
+    private final Map<String, Map<String, AttributeValue>> pending = new ConcurrentHashMap<>();
+    private final Set<CompletableFuture<Void>> inFlight = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    WriteBehindQueue(Function<List<Map<String, AttributeValue>>, CompletableFuture<Void>> writer,
+                     int capacity, long lingerMs) {
+        this.writer = writer;
+        this.capacity = capacity;
+        this.lingerExecutor = CompletableFuture.delayedExecutor(lingerMs, TimeUnit.MILLISECONDS);
+    }
+
+    void enqueue(Map<String, AttributeValue> item) {
+        pending.put(bufferKey(item.get("pk").s(), item.get("sk").s()), item);
+        if (pending.size() >= capacity) {
+            drain();
+        } else if (drainScheduled.compareAndSet(false, true)) {
+            lingerExecutor.execute(this::drain);
+        }
+    }
+
+    /** The item waiting to be written under the key, or {@code null}. */
+    Map<String, AttributeValue> pending(String pk, String sk) {
+        return pending.get(bufferKey(pk, sk));
+    }
+
+    /**
+     * Writes everything buffered and waits, up to a bound, for all writes in
+     * flight. Called before the Lambda environment can be frozen and when a
+     * long-lived host shuts down.
+     */
+    void flush() {
+        drain();
+        CompletableFuture<?>[] writes = inFlight.toArray(new CompletableFuture<?>[0]);
+        if (writes.length == 0) {
+            return;
+        }
+        try {
+            CompletableFuture.allOf(writes).get(FLUSH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("{} write-behind batches still in flight after {} ms", inFlight.size(), FLUSH_TIMEOUT_MS);
+        } catch (ExecutionException e) {
+            // Failures are already logged per batch.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        drainScheduled.set(false);
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        Iterator<String> keys = pending.keySet().iterator();
+        while (keys.hasNext()) {
+            Map<String, AttributeValue> item = pending.remove(keys.next());
+            if (item != null) {
+                items.add(item);
+            }
+        }
+        if (items.isEmpty()) {
+            return;
+        }
+
+        CompletableFuture<Void> write;
+        try {
+            write = writer.apply(items);
+        } catch (RuntimeException e) {
+            write = CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<Void> logged = write.exceptionally(e -> {
+            log.warn("Dropped {} write-behind items after a failed batch write", items.size(), e);
+            return null;
+        });
+        inFlight.add(logged);
+        logged.whenComplete((ignored, e) -> inFlight.remove(logged));
+    }
+
+    private static String bufferKey(String pk, String sk) {
+        return pk + '\u0000' + sk;
+    }
+}
@@ -0,0 +1,126 @@
+package com.phantom.server;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Translates between JDK {@link HttpExchange}s and the API Gateway v2 event
+ * shapes the controllers are written against.
+ */
+final class ExchangeAdapter {
+
+    private ExchangeAdapter() {
+    }
+
+    static APIGatewayV2HTTPEvent toEvent(HttpExchange exchange) throws IOException {
+        URI uri = exchange.getRequestURI();
+        String method = exchange.getRequestMethod().toUpperCase(Locale.ROOT);
+
+        Map<String, String> headers = new HashMap<>();
+        for (Map.Entry<String, List<String>> header : exchange.getRequestHeaders().entrySet()) {
+            headers.put(header.getKey().toLowerCase(Locale.ROOT), String.join(",", header.getValue()));
+        }
+
+        APIGatewayV2HTTPEvent.RequestContext.Http http = APIGatewayV2HTTPEvent.RequestContext.Http.builder()
+                .withMethod(method)
+                .withPath(uri.getRawPath())
+                .withProtocol(exchange.getProtocol())
+                .withSourceIp(exchange.getRemoteAddress().getAddress().getHostAddress())
+                .withUserAgent(headers.get("user-agent"))
+                .build();
+
+        APIGatewayV2HTTPEvent.RequestContext.RequestContextBuilder requestContext =
+                APIGatewayV2HTTPEvent.RequestContext.builder()
+                        .withHttp(http)
+                        .withRequestId(UUID.randomUUID().toString())
+                        .withTimeEpoch(System.currentTimeMillis());
+
+        Map<String, String> claims = JwtClaims.fromAuthorizationHeader(headers.get("authorization"));
+        if (claims != null) {
+            requestContext.withAuthorizer(APIGatewayV2HTTPEvent.RequestContext.Authorizer.builder()
+                    .withJwt(APIGatewayV2HTTPEvent.RequestContext.Authorizer.JWT.builder()
+                            .withClaims(claims)
+                            .build())
+                    .build());
+        }
+
+        String body;
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readAllBytes();
+            body = bytes.length > 0 ? new String(bytes, StandardCharsets.UTF_8) : null;
+        }
+
+        return APIGatewayV2HTTPEvent.builder()
+                .withVersion("2.0")
+                .withRawPath(uri.getRawPath())
+                .withRawQueryString(uri.getRawQuery() != null ? uri.getRawQuery() : "")
+                .withQueryStringParameters(parseQuery(uri.getRawQuery()))
+                .withHeaders(headers)
+                .withBody(body)
+                .withIsBase64Encoded(false)
+                .withRequestContext(requestContext.build())
+                .build();
+    }
+
+    static void writeResponse(HttpExchange exchange, APIGatewayV2HTTPResponse response) throws IOException {
+        Headers responseHeaders = exchange.getResponseHeaders();
+        if (response.getHeaders() != null) {
+            response.getHeaders().forEach(responseHeaders::set);
+        }
+        if (response.getMultiValueHeaders() != null) {
+            response.getMultiValueHeaders().forEach(responseHeaders::put);
+        }
+
+        byte[] body = null;
+        if (response.getBody() != null) {
+            body = response.getIsBase64Encoded()
+                    ? Base64.getDecoder().decode(response.getBody())
+                    : response.getBody().getBytes(StandardCharsets.UTF_8);
+        }
+
+        int status = response.getStatusCode();
+        if (body == null || body.length == 0 || status == 204) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /** Parses a raw query string the way API Gateway does: repeated keys are comma-joined. */
+    private static Map<String, String> parseQuery(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return null;
+        }
+
+        Map<String, String> params = new HashMap<>();
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq >= 0 ? pair.substring(0, eq) : pair, StandardCharsets.UTF_8);
+            String value = eq >= 0 ? URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8) : "";
+            params.merge(key, value, (existing, added) -> existing + "," + added);
+        }
+        return params;
+    }
+}
@@ -0,0 +1,66 @@
+package com.phantom.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.phantom.util.Json;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Stand-in for the API Gateway JWT authorizer when running as a standalone
+ * server. Decodes the claims of a bearer token so controllers see the same
+ * {@code sub} claim they get behind API Gateway.
+ *
+ * The token signature is NOT verified. Server mode must sit behind a proxy
+ * or load balancer that authenticates the token before it reaches us.
+ */
+@Slf4j
+final class JwtClaims {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final ObjectMapper objectMapper = Json.mapper();
+
+    private JwtClaims() {
+    }
+
+    /**
+     * Returns the token's top-level claims rendered as strings, the way API
+     * Gateway presents them, or {@code null} if the header carries no
+     * decodable token.
+     */
+    static Map<String, String> fromAuthorizationHeader(String authorization) {
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            return null;
+        }
+
+        String[] parts = authorization.substring(BEARER_PREFIX.length()).trim().split("\\.");
+        if (parts.length < 2) {
+            return null;
+        }
+
+        try {
+            byte[] payload = Base64.getUrlDecoder().decode(parts[1]);
+            JsonNode json = objectMapper.readTree(new String(payload, StandardCharsets.UTF_8));
+            if (json == null || !json.isObject() || !json.has("sub")) {
+                return null;
+            }
+
+            Map<String, String> claims = new HashMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = json.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                JsonNode value = field.getValue();
+                claims.put(field.getKey(), value.isValueNode() ? value.asText() : value.toString());
+            }
+            return claims;
+        } catch (Exception e) {
+            log.warn("Ignoring undecodable bearer token: {}", e.getMessage());
+            return null;
+        }
+    }
+}
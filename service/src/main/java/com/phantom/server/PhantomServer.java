@@ -0,0 +1,125 @@
+package com.phantom.server;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import com.phantom.handler.ApiHandler;
+import com.phantom.util.ResponseBuilder;
+import com.phantom.util.ThreadPools;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the Lambda controllers as a long-lived HTTP process for container
+ * deployments. Every request is adapted to an {@link APIGatewayV2HTTPEvent}
+ * and dispatched through a single shared {@link ApiHandler}, so the object
+ * graph and its in-process caches stay warm for the life of the process.
+ *
+ * Configuration:
+ * <ul>
+ *   <li>{@code PORT} - listen port (default 8080)</li>
+ *   <li>{@code SHUTDOWN_DRAIN_SECONDS} - how long in-flight requests may run
+ *       after a shutdown signal (default 20)</li>
+ *   <li>{@code STORAGE_ENGINE} - {@code dynamodb} (default) or {@code memory}
+ *       to keep the tables in process</li>
+ *   <li>{@code STORAGE_SNAPSHOT_PATH} - with the memory engine, a file the
+ *       tables are loaded from at start and persisted to (optional)</li>
+ * </ul>
+ */
+@Slf4j
+public class PhantomServer {
+
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_DRAIN_SECONDS = 20;
+
+    private final ApiHandler handler;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final int drainSeconds;
+
+    public PhantomServer(ApiHandler handler, int port, int drainSeconds) throws IOException {
+        this.handler = handler;
+        this.drainSeconds = drainSeconds;
+        this.executor = ThreadPools.newPerTaskExecutor("phantom-request");
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(executor);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = intFromEnv("PORT", DEFAULT_PORT);
+        int drainSeconds = intFromEnv("SHUTDOWN_DRAIN_SECONDS", DEFAULT_DRAIN_SECONDS);
+
+        PhantomServer server = new PhantomServer(new ApiHandler(false), port, drainSeconds);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "phantom-shutdown"));
+        server.start();
+    }
+
+    public void start() {
+        server.start();
+        log.info("Phantom server listening on port {} (Java {})", server.getAddress().getPort(),
+                Runtime.version().feature());
+        log.warn("Bearer token signatures are not verified in server mode; run behind an authenticating proxy");
+    }
+
+    /**
+     * Stops accepting connections, lets in-flight exchanges finish for up to
+     * the drain period, then releases the handler's clients.
+     */
+    public void stop() {
+        log.info("Draining in-flight requests for up to {}s", drainSeconds);
+        // One deadline for the whole drain: whatever the HTTP server's stop used
+        // up is not granted to the executor again.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(drainSeconds);
+        server.stop(drainSeconds);
+
+        executor.shutdown();
+        try {
+            long remainingNanos = Math.max(0, deadline - System.nanoTime());
+            if (!executor.awaitTermination(remainingNanos, TimeUnit.NANOSECONDS)) {
+                log.warn("Requests still running after drain period, interrupting");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        handler.close();
+        log.info("Phantom server stopped");
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            APIGatewayV2HTTPResponse response;
+            try {
+                APIGatewayV2HTTPEvent event = ExchangeAdapter.toEvent(exchange);
+                response = handler.handleRequest(event, null);
+            } catch (Exception e) {
+                log.error("Error adapting request", e);
+                response = ResponseBuilder.internalServerError("Internal server error");
+            }
+            ExchangeAdapter.writeResponse(exchange, response);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static int intFromEnv(String name, int defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn("Invalid {}={}, using {}", name, value, defaultValue);
+            return defaultValue;
+        }
+    }
+}
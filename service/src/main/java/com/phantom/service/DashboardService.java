@@ -19,16 +19,12 @@ public class DashboardService {
         
         DashboardSummary summary = appRepository.getDashboardSummary(userId);
         
-        if (summary == null) {
-            log.info("Dashboard summary not found, creating empty summary for userId: {}", userId);
-            summary = createEmptyDashboardSummary(userId);
-            appRepository.saveDashboardSummary(summary);
-        }
-        
-        return summary;
+        // Not written back: the first ghost creates the item with ADD, and a put of
+        // zeroed counters here could overwrite counts a concurrent create just added.
+        return summary != null ? summary : emptySummary(userId);
     }
     
-    private DashboardSummary createEmptyDashboardSummary(String userId) {
+    static DashboardSummary emptySummary(String userId) {
         DashboardSummary summary = new DashboardSummary();
         summary.setPk(Constants.PK_USER_PREFIX + userId);
         summary.setSk(Constants.SK_DASHBOARD_SUMMARY);
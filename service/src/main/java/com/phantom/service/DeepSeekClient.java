@@ -2,7 +2,10 @@ package com.phantom.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.phantom.metrics.RequestMetrics;
+import com.phantom.metrics.RequestMetrics.Phase;
 import com.phantom.util.Constants;
+import com.phantom.util.Json;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
@@ -23,7 +26,7 @@ public class DeepSeekClient {
 
     private static final String DEEPSEEK_URL = "https://api.deepseek.com/chat/completions";
     private static final String DEFAULT_MODEL = "deepseek-chat";
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final ObjectMapper objectMapper = Json.mapper();
 
     private final HttpClient httpClient;
 
@@ -33,7 +36,7 @@ public class DeepSeekClient {
                 .build();
     }
 
-    DeepSeekClient(HttpClient httpClient) {
+    public DeepSeekClient(HttpClient httpClient) {
         this.httpClient = httpClient;
     }
 
@@ -75,7 +78,13 @@ public class DeepSeekClient {
                 .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
                 .build();
 
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response;
+        long start = System.nanoTime();
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } finally {
+            RequestMetrics.current().record(Phase.LLM, System.nanoTime() - start);
+        }
 
         if (response.statusCode() < 200 || response.statusCode() >= 300) {
             log.error("DeepSeek error: HTTP {} - {}", response.statusCode(), response.body());
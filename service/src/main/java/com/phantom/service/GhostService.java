@@ -1,8 +1,8 @@
 package com.phantom.service;
 
-import com.phantom.model.entity.DashboardSummary;
 import com.phantom.model.entity.Ghost;
 import com.phantom.repository.AppRepository;
+import com.phantom.repository.Page;
 import com.phantom.util.Constants;
 import lombok.extern.slf4j.Slf4j;
 
@@ -103,63 +103,42 @@ public class GhostService {
         ghost.setLoggedQuote(loggedQuote);
         ghost.setEmotionStress(clampUnit(emotionStress));
         ghost.setEmotionSentiment(clampUnit(emotionSentiment));
+        ghost.setVersion(1L);
 
-        appRepository.saveGhost(ghost);
-        
-        updateDashboardOnGhostCreate(userId, createdAtEpochMs, hesitationTags);
+        appRepository.saveNewGhost(ghost);
         
         return ghost;
     }
     
-    public Ghost getGhost(String userId, String sk) {
-        log.info("Retrieving ghost for userId: {}, sk: {}", userId, sk);
-        
-        Ghost ghost = appRepository.getGhost(userId, sk);
-        
-        if (ghost == null) {
-            throw new RuntimeException("Ghost not found");
-        }
+    /**
+     * @return the ghost, or {@code null} if the user has no ghost with this id
+     */
+    public Ghost getGhostById(String userId, String ghostId) {
+        log.info("Retrieving ghost for userId: {}, ghostId: {}", userId, ghostId);
         
-        return ghost;
+        return appRepository.getGhostById(userId, ghostId);
     }
     
-    public List<Ghost> listGhosts(String userId, Integer limit) {
-        log.info("Listing ghosts for userId: {}", userId);
-        
-        int effectiveLimit = limit != null ? limit : 50;
+    public Page<Ghost> listGhostsPage(String userId, int limit, String nextToken) {
+        log.info("Listing ghosts for userId: {}, limit: {}, continued: {}", userId, limit, nextToken != null);
         
-        return appRepository.listGhosts(userId, effectiveLimit);
+        return appRepository.listGhostsPage(userId, limit, nextToken);
     }
     
+    /**
+     * Applies a field-level patch in a single conditional write.
+     *
+     * @param expectedVersion version from the client's If-Match, or {@code null}
+     * @return the updated ghost, or {@code null} if it does not exist
+     * @throws com.phantom.repository.VersionConflictException if the ghost
+     *         changed since {@code expectedVersion}
+     */
     public Ghost updateGhost(String userId, String sk, String status, String noteText,
-                             Double emotionStress, Double emotionSentiment) {
-        log.info("Updating ghost for userId: {}, sk: {}", userId, sk);
-
-        Ghost ghost = appRepository.getGhost(userId, sk);
-
-        if (ghost == null) {
-            throw new RuntimeException("Ghost not found");
-        }
-
-        if (status != null) {
-            ghost.setStatus(status);
-        }
-
-        if (noteText != null) {
-            ghost.setNoteText(noteText);
-        }
+                             Double emotionStress, Double emotionSentiment, Long expectedVersion) {
+        log.info("Updating ghost for userId: {}, sk: {}, expectedVersion: {}", userId, sk, expectedVersion);
 
-        if (emotionStress != null) {
-            ghost.setEmotionStress(clampUnit(emotionStress));
-        }
-
-        if (emotionSentiment != null) {
-            ghost.setEmotionSentiment(clampUnit(emotionSentiment));
-        }
-
-        appRepository.saveGhost(ghost);
-
-        return ghost;
+        return appRepository.updateGhostFields(userId, sk, status, noteText,
+                clampUnit(emotionStress), clampUnit(emotionSentiment), expectedVersion);
     }
 
     private Double clampUnit(Double value) {
@@ -176,23 +155,4 @@ public class GhostService {
         quote.put(Constants.QUOTE_KEY_SOURCE, Constants.SOURCE_MANUAL);
         return quote;
     }
-    
-    private void updateDashboardOnGhostCreate(String userId, long createdAtEpochMs, List<String> hesitationTags) {
-        DashboardSummary summary = appRepository.getDashboardSummary(userId);
-        
-        if (summary == null) {
-            summary = new DashboardSummary();
-            summary.setPk(Constants.PK_USER_PREFIX + userId);
-            summary.setSk(Constants.SK_DASHBOARD_SUMMARY);
-            summary.setEntityType(Constants.ENTITY_TYPE_DASH_SUMMARY);
-            summary.setGhostCountTotal(0);
-            summary.setGhostCount30d(0);
-        }
-        
-        summary.setGhostCountTotal(summary.getGhostCountTotal() + 1);
-        summary.setGhostCount30d(summary.getGhostCount30d() + 1);
-        summary.setLastGhostAtEpochMs(createdAtEpochMs);
-        
-        appRepository.saveDashboardSummary(summary);
-    }
 }
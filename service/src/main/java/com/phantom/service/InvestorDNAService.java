@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.phantom.model.entity.Ghost;
 import com.phantom.repository.AppRepository;
+import com.phantom.util.Json;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
@@ -27,7 +28,7 @@ import java.util.Map;
 public class InvestorDNAService {
 
     private static final int GHOST_FETCH_LIMIT = 50;
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final ObjectMapper objectMapper = Json.mapper();
 
     private static final List<String> METRICS = Arrays.asList(
             "intensity", "momentum", "conviction", "caution", "deliberation", "sensitivity"
@@ -1,25 +1,47 @@
 package com.phantom.service;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.phantom.metrics.RequestMetrics;
+import com.phantom.metrics.RequestMetrics.Phase;
 import com.phantom.model.entity.CacheItem;
+import com.phantom.model.response.CandleSeries;
+import com.phantom.model.response.CandlesResponse;
 import com.phantom.repository.CacheRepository;
 import com.phantom.util.Constants;
+import com.phantom.util.Json;
+import com.phantom.util.ThreadPools;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Slf4j
 public class MarketDataService {
@@ -29,17 +51,27 @@ public class MarketDataService {
     private static final String MOCK_SOURCE = "MOCK";
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private static final ZoneId MARKET_TIMEZONE = ZoneId.of("America/New_York");
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final ObjectMapper objectMapper = Json.mapper();
+    // Symbols per snapshots call, keeping the query string well inside URL limits.
+    private static final int SNAPSHOTS_MAX_SYMBOLS = 100;
+    private static final int BARS_LIMIT = 1000;
+    private static final long REFRESH_WAIT_MS = 3_000;
 
     private final CacheRepository cacheRepository;
     private final HttpClient httpClient;
+    // Concurrent misses on one key, e.g. as a hot quote expires, share a single upstream call.
+    private final SingleFlight<String, Map<String, Object>> quoteFetches = new SingleFlight<>();
+    private final SingleFlight<String, CandlesResponse> candleFetches = new SingleFlight<>();
+    // Stale-while-revalidate refreshes queued or running, by key, so each key is refreshed once.
+    private final Map<String, CompletableFuture<Void>> refreshes = new ConcurrentHashMap<>();
+    private final Executor refreshExecutor = ThreadPools.newPerTaskExecutor("market-refresh");
 
     public MarketDataService(CacheRepository cacheRepository) {
         this.cacheRepository = cacheRepository;
         this.httpClient = HttpClient.newHttpClient();
     }
 
-    MarketDataService(CacheRepository cacheRepository, HttpClient httpClient) {
+    public MarketDataService(CacheRepository cacheRepository, HttpClient httpClient) {
         this.cacheRepository = cacheRepository;
         this.httpClient = httpClient;
     }
@@ -63,7 +95,7 @@ public class MarketDataService {
         String url = String.format("%s/v2/assets/%s", ALPACA_TRADING_BASE_URL, normalizedSymbol);
 
         HttpRequest request = buildAlpacaRequest(url);
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = send(request);
 
         if (response.statusCode() == 404) {
             Map<String, Object> result = new HashMap<>();
@@ -88,7 +120,16 @@ public class MarketDataService {
         return result;
     }
 
+    /** A quote no older than the price TTL, e.g. to log against a ghost. */
     public Map<String, Object> getRealTimeQuote(String symbol) throws IOException, InterruptedException {
+        return getQuote(symbol, false);
+    }
+
+    /**
+     * @param allowStale whether a quote past its TTL but not yet expired may be
+     *        returned, tagged {@code stale}, while it is refreshed in the background
+     */
+    private Map<String, Object> getQuote(String symbol, boolean allowStale) throws IOException, InterruptedException {
         log.info("Fetching real-time quote for symbol: {}", symbol);
 
         String normalizedSymbol = symbol.trim().toUpperCase();
@@ -100,15 +141,30 @@ public class MarketDataService {
 
         // Check cache first
         CacheItem cached = cacheRepository.getLatestPrice(normalizedSymbol);
-        if (cached != null && cached.getExpiresAt() != null && cached.getExpiresAt() > System.currentTimeMillis() / 1000) {
+        long nowEpochSeconds = System.currentTimeMillis() / 1000;
+        if (cached != null && cached.isFresh(nowEpochSeconds)) {
             log.info("Cache hit for {}", normalizedSymbol);
+            RequestMetrics.current().cacheHit();
             return cached.getPayload();
         }
+        if (allowStale && cached != null && cached.isUsable(nowEpochSeconds)) {
+            log.info("Serving stale quote for {} while it refreshes", normalizedSymbol);
+            RequestMetrics.current().cacheHit();
+            refreshInBackground(quoteFetches, normalizedSymbol, () -> fetchRealTimeQuote(normalizedSymbol));
+            Map<String, Object> quote = new HashMap<>(cached.getPayload());
+            quote.put(Constants.QUOTE_KEY_STALE, true);
+            return quote;
+        }
+        RequestMetrics.current().cacheMiss();
+
+        return quoteFetches.execute(normalizedSymbol, () -> fetchRealTimeQuote(normalizedSymbol));
+    }
 
+    private Map<String, Object> fetchRealTimeQuote(String normalizedSymbol) throws IOException, InterruptedException {
         String url = String.format("%s/v2/stocks/%s/snapshot", ALPACA_DATA_BASE_URL, normalizedSymbol);
 
         HttpRequest request = buildAlpacaRequest(url);
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = send(request);
 
         if (response.statusCode() == 404 || response.statusCode() == 422) {
             throw new IllegalArgumentException("Invalid ticker symbol: " + normalizedSymbol);
@@ -120,13 +176,116 @@ public class MarketDataService {
         }
 
         JsonNode jsonResponse = objectMapper.readTree(response.body());
-
-        JsonNode latestTrade = jsonResponse.get("latestTrade");
-        if (latestTrade == null || !latestTrade.has("p")) {
+        Map<String, Object> quote = quoteFromSnapshot(normalizedSymbol, jsonResponse);
+        if (quote == null) {
             log.error("Missing latestTrade data in Alpaca snapshot for {}", normalizedSymbol);
             throw new RuntimeException("Invalid snapshot response from Alpaca for " + normalizedSymbol);
         }
 
+        cacheRepository.saveCacheItem(quoteCacheItem(normalizedSymbol, quote));
+
+        return quote;
+    }
+
+    /**
+     * Fresh quotes for several symbols, keyed by upper-cased symbol in request
+     * order. Cached prices are read in one batch and the misses fetched in one
+     * snapshots call per {@link #SNAPSHOTS_MAX_SYMBOLS} symbols, then cached
+     * together. Symbols Alpaca has no trade for are absent from the result.
+     *
+     * Each quote comes as its cache item, whose {@code fetchedAt} is when the
+     * quote was fetched from Alpaca, whether by this call or an earlier one.
+     */
+    public Map<String, CacheItem> getRealTimeQuotes(Collection<String> symbols)
+            throws IOException, InterruptedException {
+        Set<String> normalizedSymbols = new LinkedHashSet<>();
+        for (String symbol : symbols) {
+            normalizedSymbols.add(symbol.trim().toUpperCase());
+        }
+        log.info("Fetching real-time quotes for {} symbols", normalizedSymbols.size());
+
+        Map<String, CacheItem> quotes = new LinkedHashMap<>();
+        if (!isAlpacaConfigured()) {
+            log.error("Alpaca API keys not configured, returning mock data");
+            for (String symbol : normalizedSymbols) {
+                quotes.put(symbol, quoteCacheItem(symbol, createMockQuote(symbol, 0.0)));
+            }
+            return quotes;
+        }
+
+        Map<String, CacheItem> cached = cacheRepository.getLatestPrices(normalizedSymbols);
+        long nowEpochSeconds = System.currentTimeMillis() / 1000;
+        List<String> misses = new ArrayList<>();
+        for (String symbol : normalizedSymbols) {
+            CacheItem item = cached.get(symbol);
+            if (item != null && item.isFresh(nowEpochSeconds)) {
+                RequestMetrics.current().cacheHit();
+                quotes.put(symbol, item);
+            } else {
+                RequestMetrics.current().cacheMiss();
+                // Reserve the symbol's place in request order.
+                quotes.put(symbol, null);
+                misses.add(symbol);
+            }
+        }
+
+        List<CacheItem> fetched = new ArrayList<>(misses.size());
+        for (int start = 0; start < misses.size(); start += SNAPSHOTS_MAX_SYMBOLS) {
+            List<String> chunk = misses.subList(start, Math.min(misses.size(), start + SNAPSHOTS_MAX_SYMBOLS));
+            for (Map.Entry<String, Map<String, Object>> quote : fetchSnapshots(chunk).entrySet()) {
+                CacheItem item = quoteCacheItem(quote.getKey(), quote.getValue());
+                quotes.put(quote.getKey(), item);
+                fetched.add(item);
+            }
+        }
+        if (!fetched.isEmpty()) {
+            cacheRepository.saveCacheItems(fetched);
+        }
+
+        quotes.values().removeIf(Objects::isNull);
+        return quotes;
+    }
+
+    private Map<String, Map<String, Object>> fetchSnapshots(List<String> normalizedSymbols)
+            throws IOException, InterruptedException {
+        String url = String.format("%s/v2/stocks/snapshots?symbols=%s", ALPACA_DATA_BASE_URL,
+                URLEncoder.encode(String.join(",", normalizedSymbols), StandardCharsets.UTF_8));
+
+        HttpRequest request = buildAlpacaRequest(url);
+        HttpResponse<String> response = send(request);
+
+        if (response.statusCode() == 400 || response.statusCode() == 422) {
+            throw new IllegalArgumentException("Invalid ticker symbols: " + String.join(",", normalizedSymbols));
+        }
+
+        if (response.statusCode() != 200) {
+            log.error("Failed to fetch snapshots for {} symbols: HTTP {} - {}", normalizedSymbols.size(),
+                    response.statusCode(), response.body());
+            throw new RuntimeException("Failed to fetch market data: HTTP " + response.statusCode());
+        }
+
+        // The body maps each symbol to its snapshot; unknown symbols are absent or null.
+        JsonNode jsonResponse = objectMapper.readTree(response.body());
+        Map<String, Map<String, Object>> quotes = new HashMap<>();
+        for (String symbol : normalizedSymbols) {
+            JsonNode snapshot = jsonResponse.get(symbol);
+            Map<String, Object> quote = snapshot != null ? quoteFromSnapshot(symbol, snapshot) : null;
+            if (quote != null) {
+                quotes.put(symbol, quote);
+            } else {
+                log.warn("No snapshot from Alpaca for {}", symbol);
+            }
+        }
+        return quotes;
+    }
+
+    /** The quote in an Alpaca snapshot, or {@code null} if it has no latest trade. */
+    private static Map<String, Object> quoteFromSnapshot(String normalizedSymbol, JsonNode snapshot) {
+        JsonNode latestTrade = snapshot.get("latestTrade");
+        if (latestTrade == null || !latestTrade.has("p")) {
+            return null;
+        }
+
         double price = latestTrade.get("p").asDouble();
         String providerTs = latestTrade.has("t") ? latestTrade.get("t").asText() : Instant.now().toString();
 
@@ -136,20 +295,20 @@ public class MarketDataService {
         quote.put(Constants.QUOTE_KEY_PROVIDER_TS, providerTs);
         quote.put(Constants.QUOTE_KEY_CAPTURED_AT, System.currentTimeMillis());
         quote.put(Constants.QUOTE_KEY_SOURCE, Constants.SOURCE_ALPACA);
+        return quote;
+    }
 
-        // Cache the result
+    private static CacheItem quoteCacheItem(String normalizedSymbol, Map<String, Object> quote) {
         long nowEpochSeconds = System.currentTimeMillis() / 1000;
-        CacheItem cacheItem = CacheItem.builder()
+        return CacheItem.builder()
                 .pk(Constants.PK_MARKET_DATA_PREFIX + normalizedSymbol)
                 .sk(Constants.SK_PRICE_LATEST)
                 .payload(quote)
                 .fetchedAt(Instant.now().toString())
-                .expiresAt(nowEpochSeconds + Constants.CACHE_TTL_PRICE_SECONDS)
+                .staleAt(nowEpochSeconds + Constants.CACHE_TTL_PRICE_SECONDS)
+                .expiresAt(nowEpochSeconds + Constants.CACHE_HARD_TTL_PRICE_SECONDS)
                 .source(Constants.SOURCE_ALPACA)
                 .build();
-        cacheRepository.saveCacheItem(cacheItem);
-
-        return quote;
     }
 
     public Map<String, Object> getHistoricalQuote(String symbol, long epochMs) throws IOException, InterruptedException {
@@ -178,7 +337,7 @@ public class MarketDataService {
                 ALPACA_DATA_BASE_URL, normalizedSymbol, startDate, endDate);
 
         HttpRequest request = buildAlpacaRequest(url);
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = send(request);
 
         if (response.statusCode() == 404 || response.statusCode() == 422) {
             throw new IllegalArgumentException("Invalid ticker symbol: " + normalizedSymbol);
@@ -217,7 +376,7 @@ public class MarketDataService {
         String normalizedSymbol = symbol.trim().toUpperCase();
 
         try {
-            return getRealTimeQuote(normalizedSymbol);
+            return getQuote(normalizedSymbol, true);
         } catch (IllegalArgumentException e) {
             throw e;
         } catch (Exception e) {
@@ -226,7 +385,7 @@ public class MarketDataService {
         }
     }
 
-    public Map<String, Object> getMarketCandles(String symbol, String interval, String range) throws IOException, InterruptedException {
+    public CandlesResponse getMarketCandles(String symbol, String interval, String range) throws IOException, InterruptedException {
         log.info("Fetching market candles for symbol: {}, interval: {}, range: {}", symbol, interval, range);
 
         String normalizedSymbol = symbol.trim().toUpperCase();
@@ -235,25 +394,97 @@ public class MarketDataService {
 
         if (!isAlpacaConfigured()) {
             log.error("Alpaca API keys not configured, returning empty candles");
-            return buildCandlesResponse(normalizedSymbol, effectiveInterval, new ArrayList<>());
+            return new CandlesResponse(normalizedSymbol, effectiveInterval, CandleSeries.empty(), Instant.now().toString());
         }
 
         // Check cache first
         CacheItem cached = cacheRepository.getTimeSeries(normalizedSymbol, effectiveInterval, effectiveRange);
-        if (cached != null && cached.getExpiresAt() != null && cached.getExpiresAt() > System.currentTimeMillis() / 1000) {
+        long nowEpochSeconds = System.currentTimeMillis() / 1000;
+        String fetchKey = normalizedSymbol + "#" + effectiveInterval + "#" + effectiveRange;
+        if (cached != null && cached.isFresh(nowEpochSeconds)) {
             log.info("Cache hit for candles {}/{}/{}", normalizedSymbol, effectiveInterval, effectiveRange);
-            return cached.getPayload();
+            RequestMetrics.current().cacheHit();
+            return CandlesResponse.fromPayload(cached.getPayload());
+        }
+        if (cached != null && cached.isUsable(nowEpochSeconds)) {
+            // An hours-old series still draws a good chart; don't make the user wait on 1000 bars.
+            log.info("Serving stale candles {}/{}/{} while they refresh", normalizedSymbol, effectiveInterval, effectiveRange);
+            RequestMetrics.current().cacheHit();
+            refreshInBackground(candleFetches, fetchKey,
+                    () -> fetchMarketCandles(normalizedSymbol, effectiveInterval, effectiveRange));
+            CandlesResponse stale = CandlesResponse.fromPayload(cached.getPayload());
+            stale.setStale(true);
+            return stale;
+        }
+        RequestMetrics.current().cacheMiss();
+
+        return candleFetches.execute(fetchKey,
+                () -> fetchMarketCandles(normalizedSymbol, effectiveInterval, effectiveRange));
+    }
+
+    /**
+     * Runs {@code fetch} off the request path unless a refresh of {@code key}
+     * is already queued or running. It goes through the same single flight as
+     * foreground misses, so a blocked caller and the refresh share one call.
+     */
+    private <V> void refreshInBackground(SingleFlight<String, V> fetches, String key,
+                                         SingleFlight.UpstreamCall<V> fetch) {
+        CompletableFuture<Void> refresh = new CompletableFuture<>();
+        if (refreshes.putIfAbsent(key, refresh) != null) {
+            return;
+        }
+        refresh.whenComplete((ignored, e) -> refreshes.remove(key, refresh));
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    fetches.execute(key, fetch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    log.warn("Background refresh of {} failed", key, e);
+                } finally {
+                    refresh.complete(null);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refresh.complete(null);
+            log.warn("Background refresh of {} rejected", key, e);
+        }
+    }
+
+    /**
+     * Waits, up to a bound, for the background refreshes started so far. The
+     * Lambda handler calls this at the end of each invocation, before the
+     * write-behind flush, so a refresh and its cache save finish before the
+     * environment can be frozen rather than resuming on a dead connection.
+     */
+    public void awaitRefreshes() {
+        CompletableFuture<?>[] running = refreshes.values().toArray(new CompletableFuture<?>[0]);
+        if (running.length == 0) {
+            return;
+        }
+        try {
+            CompletableFuture.allOf(running).get(REFRESH_WAIT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("{} background refreshes still running after {} ms", refreshes.size(), REFRESH_WAIT_MS);
+        } catch (ExecutionException e) {
+            // Refreshes complete normally; failures are logged where they happen.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+    }
 
+    private CandlesResponse fetchMarketCandles(String normalizedSymbol, String effectiveInterval, String effectiveRange)
+            throws IOException, InterruptedException {
         String timeframe = mapIntervalToTimeframe(effectiveInterval);
         String startDate = mapRangeToStartDate(effectiveRange);
         String endDate = Instant.now().toString();
 
-        String url = String.format("%s/v2/stocks/%s/bars?timeframe=%s&start=%s&end=%s&limit=1000",
-                ALPACA_DATA_BASE_URL, normalizedSymbol, timeframe, startDate, endDate);
+        String url = String.format("%s/v2/stocks/%s/bars?timeframe=%s&start=%s&end=%s&limit=%d",
+                ALPACA_DATA_BASE_URL, normalizedSymbol, timeframe, startDate, endDate, BARS_LIMIT);
 
         HttpRequest request = buildAlpacaRequest(url);
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = send(request);
 
         if (response.statusCode() == 404 || response.statusCode() == 422) {
             throw new IllegalArgumentException("Invalid ticker symbol: " + normalizedSymbol);
@@ -264,33 +495,20 @@ public class MarketDataService {
             throw new RuntimeException("Failed to fetch market candles: HTTP " + response.statusCode());
         }
 
-        JsonNode jsonResponse = objectMapper.readTree(response.body());
-        JsonNode bars = jsonResponse.get("bars");
+        CandleSeries candles = parseBars(response.body());
 
-        List<Map<String, Object>> candles = new ArrayList<>();
-        if (bars != null && bars.isArray()) {
-            for (JsonNode bar : bars) {
-                Map<String, Object> candle = new HashMap<>();
-                candle.put(Constants.CANDLE_KEY_DATETIME, bar.get("t").asText());
-                candle.put(Constants.CANDLE_KEY_OPEN, bar.get("o").asDouble());
-                candle.put(Constants.CANDLE_KEY_HIGH, bar.get("h").asDouble());
-                candle.put(Constants.CANDLE_KEY_LOW, bar.get("l").asDouble());
-                candle.put(Constants.CANDLE_KEY_CLOSE, bar.get("c").asDouble());
-                candle.put(Constants.CANDLE_KEY_VOLUME, bar.get("v").asLong());
-                candles.add(candle);
-            }
-        }
-
-        Map<String, Object> result = buildCandlesResponse(normalizedSymbol, effectiveInterval, candles);
+        CandlesResponse result = new CandlesResponse(normalizedSymbol, effectiveInterval, candles,
+                Instant.now().toString());
 
         // Cache the result
         long nowEpochSeconds = System.currentTimeMillis() / 1000;
         CacheItem cacheItem = CacheItem.builder()
                 .pk(Constants.PK_MARKET_DATA_PREFIX + normalizedSymbol)
                 .sk(Constants.SK_TIMESERIES_PREFIX + effectiveInterval + "#" + effectiveRange)
-                .payload(result)
+                .payload(result.toPayload())
                 .fetchedAt(Instant.now().toString())
-                .expiresAt(nowEpochSeconds + Constants.CACHE_TTL_TIMESERIES_SECONDS)
+                .staleAt(nowEpochSeconds + Constants.CACHE_TTL_TIMESERIES_SECONDS)
+                .expiresAt(nowEpochSeconds + Constants.CACHE_HARD_TTL_TIMESERIES_SECONDS)
                 .source(Constants.SOURCE_ALPACA)
                 .build();
         cacheRepository.saveCacheItem(cacheItem);
@@ -298,13 +516,52 @@ public class MarketDataService {
         return result;
     }
 
-    private Map<String, Object> buildCandlesResponse(String symbol, String interval, List<Map<String, Object>> candles) {
-        Map<String, Object> response = new HashMap<>();
-        response.put(Constants.QUOTE_KEY_SYMBOL, symbol);
-        response.put(Constants.CANDLE_KEY_INTERVAL, interval);
-        response.put(Constants.CANDLE_KEY_CANDLES, candles);
-        response.put(Constants.QUOTE_KEY_FETCHED_AT, Instant.now().toString());
-        return response;
+    /**
+     * Streams the bars of an Alpaca bars response straight into columns,
+     * without building a JSON tree of a thousand bar objects first.
+     */
+    private static CandleSeries parseBars(String body) throws IOException {
+        CandleSeries.Builder series = CandleSeries.builder(BARS_LIMIT);
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object from Alpaca bars");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("bars".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        readBar(parser, series);
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return series.build();
+    }
+
+    private static void readBar(JsonParser parser, CandleSeries.Builder series) throws IOException {
+        long epochMs = 0;
+        double open = 0;
+        double high = 0;
+        double low = 0;
+        double close = 0;
+        long volume = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "t": epochMs = Instant.parse(parser.getText()).toEpochMilli(); break;
+                case "o": open = parser.getValueAsDouble(); break;
+                case "h": high = parser.getValueAsDouble(); break;
+                case "l": low = parser.getValueAsDouble(); break;
+                case "c": close = parser.getValueAsDouble(); break;
+                case "v": volume = parser.getValueAsLong(); break;
+                default: parser.skipChildren(); break;
+            }
+        }
+        series.add(epochMs, open, high, low, close, volume);
     }
 
     private String mapIntervalToTimeframe(String interval) {
@@ -332,6 +589,15 @@ public class MarketDataService {
         return start.format(DATE_FORMATTER) + "T00:00:00Z";
     }
 
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } finally {
+            RequestMetrics.current().record(Phase.UPSTREAM_HTTP, System.nanoTime() - start);
+        }
+    }
+
     private HttpRequest buildAlpacaRequest(String url) {
         return HttpRequest.newBuilder()
                 .uri(URI.create(url))
@@ -0,0 +1,59 @@
+package com.phantom.service;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Collapses concurrent upstream calls for the same key into one. The first
+ * caller for a key makes the call; callers arriving while it is in flight
+ * wait for and share its result, or its failure. Nothing is remembered once
+ * the call finishes, so a failure is never served to later callers and
+ * caching stays the cache repository's job.
+ */
+final class SingleFlight<K, V> {
+
+    @FunctionalInterface
+    interface UpstreamCall<V> {
+        V call() throws IOException, InterruptedException;
+    }
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    V execute(K key, UpstreamCall<V> call) throws IOException, InterruptedException {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> leader = inFlight.putIfAbsent(key, own);
+        if (leader != null) {
+            return await(leader);
+        }
+
+        try {
+            V result = call.call();
+            own.complete(result);
+            return result;
+        } catch (IOException | InterruptedException | RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> leader) throws IOException, InterruptedException {
+        try {
+            return leader.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            // The leader was interrupted, not this caller.
+            throw new IOException("Upstream call abandoned by an interrupted caller", cause);
+        }
+    }
+}
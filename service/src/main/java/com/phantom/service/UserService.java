@@ -1,7 +1,9 @@
 package com.phantom.service;
 
+import com.phantom.model.entity.DashboardSummary;
 import com.phantom.model.entity.UserProfile;
 import com.phantom.repository.AppRepository;
+import com.phantom.repository.UserPartitionHead;
 import com.phantom.util.Constants;
 import lombok.extern.slf4j.Slf4j;
 
@@ -31,6 +33,29 @@ public class UserService {
         return profile;
     }
     
+    /**
+     * The launch-time views in one round trip. A first launch creates the
+     * profile as {@link #getUserProfile} does; a missing dashboard summary is
+     * reported as empty without being written, since the first ghost creates it.
+     */
+    public UserPartitionHead bootstrap(String userId, int ghostLimit) {
+        log.info("Bootstrapping userId: {}", userId);
+        
+        UserPartitionHead head = appRepository.getUserPartitionHead(userId, ghostLimit);
+        
+        UserProfile profile = head.getProfile();
+        if (profile == null) {
+            log.info("User profile not found, creating new profile for userId: {}", userId);
+            profile = createNewUserProfile(userId);
+            appRepository.saveUserProfile(profile);
+        }
+        DashboardSummary summary = head.getSummary() != null
+                ? head.getSummary()
+                : DashboardService.emptySummary(userId);
+        
+        return new UserPartitionHead(profile, summary, head.getGhosts());
+    }
+    
     public UserProfile updateUserProfile(String userId, String timezone, Map<String, Object> settings) {
         log.info("Updating user profile for userId: {}", userId);
         
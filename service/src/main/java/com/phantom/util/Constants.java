@@ -10,11 +10,19 @@ public final class Constants {
     public static final String ALPACA_API_KEY_ID = System.getenv().getOrDefault("ALPACA_API_KEY_ID", "");
     public static final String ALPACA_API_SECRET_KEY = System.getenv().getOrDefault("ALPACA_API_SECRET_KEY", "");
     public static final String DEEPSEEK_API_KEY = System.getenv().getOrDefault("DEEPSEEK_API_KEY", "");
+    public static final String CURSOR_SIGNING_KEY = System.getenv().getOrDefault("CURSOR_SIGNING_KEY", "");
+    // New ghosts store loggedQuote and long notes compressed in ATTR_PACKED; existing items read either way.
+    public static final boolean PACK_GHOST_ATTRIBUTES =
+            Boolean.parseBoolean(System.getenv().getOrDefault("PACK_GHOST_ATTRIBUTES", "false"));
+    // Bound on the in-process cache tier, in weight units: about one per quote, one per candle.
+    public static final long LOCAL_CACHE_MAX_WEIGHT =
+            Long.parseLong(System.getenv().getOrDefault("LOCAL_CACHE_MAX_WEIGHT", "50000"));
     
     public static final String PK_USER_PREFIX = "USER#";
     public static final String SK_PROFILE = "PROFILE";
     public static final String SK_GHOST_PREFIX = "GHOST#";
     public static final String SK_DASHBOARD_SUMMARY = "DASH#SUMMARY";
+    public static final String GSI_GHOST_ID = "GhostIdIndex";
     
     public static final String PK_MARKET_DATA_PREFIX = "MD#";
     public static final String SK_PRICE_LATEST = "PRICE#latest";
@@ -51,9 +59,11 @@ public final class Constants {
     public static final String QUOTE_KEY_CAPTURED_AT = "capturedAtEpochMs";
     public static final String QUOTE_KEY_SOURCE = "source";
     public static final String QUOTE_KEY_FETCHED_AT = "fetchedAt";
+    public static final String QUOTE_KEY_STALE = "stale";
 
     public static final String CANDLE_KEY_INTERVAL = "interval";
     public static final String CANDLE_KEY_CANDLES = "candles";
+    public static final String CANDLE_KEY_SERIES = "series";
     public static final String CANDLE_KEY_DATETIME = "datetime";
     public static final String CANDLE_KEY_OPEN = "open";
     public static final String CANDLE_KEY_HIGH = "high";
@@ -74,6 +84,7 @@ public final class Constants {
     public static final String REQUEST_KEY_VOICE_KEY = "voiceKey";
     public static final String REQUEST_KEY_STATUS = "status";
     public static final String REQUEST_KEY_LIMIT = "limit";
+    public static final String REQUEST_KEY_NEXT_TOKEN = "nextToken";
     public static final String REQUEST_KEY_EMOTION_STRESS = "emotionStress";
     public static final String REQUEST_KEY_EMOTION_SENTIMENT = "emotionSentiment";
     
@@ -109,8 +120,13 @@ public final class Constants {
     public static final String ATTR_LOGGED_QUOTE = "loggedQuote";
     public static final String ATTR_EMOTION_STRESS = "emotionStress";
     public static final String ATTR_EMOTION_SENTIMENT = "emotionSentiment";
+    public static final String ATTR_VERSION = "version";
+    public static final String ATTR_PACKED = "packed";
     
+    // Market data is fresh for the TTL and may be served stale, while it refreshes, until the hard TTL.
     public static final int CACHE_TTL_PRICE_SECONDS = 15;
+    public static final int CACHE_HARD_TTL_PRICE_SECONDS = 300;
     public static final int CACHE_TTL_TIMESERIES_SECONDS = 21600;
+    public static final int CACHE_HARD_TTL_TIMESERIES_SECONDS = 259200;
     public static final int CACHE_TTL_SEARCH_SECONDS = 86400;
 }
@@ -0,0 +1,94 @@
+package com.phantom.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * The service's single Jackson configuration. Blackbird replaces reflective
+ * property access with generated lambdas, and responses are written through
+ * one pre-built {@link ObjectWriter} into a per-thread buffer that is reused
+ * across requests instead of being reallocated for every response.
+ */
+public final class Json {
+
+    private static final ObjectMapper MAPPER = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .addModule(new BlackbirdModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private static final ObjectWriter WRITER = MAPPER.writer();
+
+    // Buffers that grew past this after an unusually large response are dropped
+    // rather than pinned to the thread for the life of the container.
+    private static final int MAX_RETAINED_BUFFER_CHARS = 256 * 1024;
+    private static final ThreadLocal<StringBuilderWriter> BUFFERS = ThreadLocal.withInitial(StringBuilderWriter::new);
+
+    private Json() {
+    }
+
+    public static ObjectMapper mapper() {
+        return MAPPER;
+    }
+
+    public static String write(Object value) throws JsonProcessingException {
+        StringBuilderWriter buffer = BUFFERS.get();
+        if (buffer.inUse) {
+            // Re-entered from inside a serializer; don't clobber the outer buffer.
+            return WRITER.writeValueAsString(value);
+        }
+
+        buffer.inUse = true;
+        try {
+            WRITER.writeValue(buffer, value);
+            return buffer.builder.toString();
+        } catch (JsonProcessingException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buffer.inUse = false;
+            if (buffer.builder.capacity() > MAX_RETAINED_BUFFER_CHARS) {
+                BUFFERS.remove();
+            } else {
+                buffer.builder.setLength(0);
+            }
+        }
+    }
+
+    private static final class StringBuilderWriter extends Writer {
+        private final StringBuilder builder = new StringBuilder(4096);
+        private boolean inUse;
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            builder.append(chars, offset, length);
+        }
+
+        @Override
+        public void write(String value, int offset, int length) {
+            builder.append(value, offset, offset + length);
+        }
+
+        @Override
+        public void write(int c) {
+            builder.append((char) c);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
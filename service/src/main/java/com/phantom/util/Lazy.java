@@ -0,0 +1,48 @@
+package com.phantom.util;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Thread-safe memoizing supplier. The factory runs at most once, on the first
+ * call to {@link #get()}; a factory that throws is retried on the next call.
+ */
+public final class Lazy<T> implements Supplier<T> {
+
+    private final Supplier<? extends T> factory;
+    private volatile T value;
+
+    private Lazy(Supplier<? extends T> factory) {
+        this.factory = factory;
+    }
+
+    public static <T> Lazy<T> of(Supplier<? extends T> factory) {
+        return new Lazy<>(factory);
+    }
+
+    @Override
+    public T get() {
+        T result = value;
+        if (result == null) {
+            synchronized (this) {
+                result = value;
+                if (result == null) {
+                    result = factory.get();
+                    value = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    public boolean isInitialized() {
+        return value != null;
+    }
+
+    public void ifInitialized(Consumer<? super T> action) {
+        T result = value;
+        if (result != null) {
+            action.accept(result);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.phantom.util;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds synthetic API Gateway v2 events for code paths that invoke the
+ * handler in-process rather than through API Gateway.
+ */
+public class RequestBuilder {
+
+    public static APIGatewayV2HTTPEvent build(String method, String rawPath, Map<String, String> queryParams,
+                                              String body, String userId) {
+        APIGatewayV2HTTPEvent.RequestContext.Http http = APIGatewayV2HTTPEvent.RequestContext.Http.builder()
+                .withMethod(method)
+                .withPath(rawPath)
+                .build();
+
+        APIGatewayV2HTTPEvent.RequestContext.RequestContextBuilder requestContext =
+                APIGatewayV2HTTPEvent.RequestContext.builder().withHttp(http);
+
+        if (userId != null) {
+            Map<String, String> claims = new HashMap<>();
+            claims.put("sub", userId);
+            requestContext.withAuthorizer(APIGatewayV2HTTPEvent.RequestContext.Authorizer.builder()
+                    .withJwt(APIGatewayV2HTTPEvent.RequestContext.Authorizer.JWT.builder()
+                            .withClaims(claims)
+                            .build())
+                    .build());
+        }
+
+        return APIGatewayV2HTTPEvent.builder()
+                .withVersion("2.0")
+                .withRawPath(rawPath)
+                .withQueryStringParameters(queryParams)
+                .withBody(body)
+                .withRequestContext(requestContext.build())
+                .build();
+    }
+}
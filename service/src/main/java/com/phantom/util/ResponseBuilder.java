@@ -2,18 +2,18 @@ package com.phantom.util;
 
 import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.phantom.metrics.RequestMetrics;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 public class ResponseBuilder {
     
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
-            .registerModule(new JavaTimeModule())
-            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    // Shared by every response; API Gateway and the server adapter only read it.
+    private static final Map<String, String> JSON_HEADERS = Map.of(
+            "Content-Type", "application/json",
+            "Access-Control-Allow-Origin", "*");
     
     public static APIGatewayV2HTTPResponse ok(Object body) {
         return buildResponse(200, body);
@@ -35,21 +35,34 @@ public class ResponseBuilder {
         return buildErrorResponse(404, message);
     }
     
+    public static APIGatewayV2HTTPResponse conflict(String message) {
+        return buildErrorResponse(409, message);
+    }
+    
+    public static APIGatewayV2HTTPResponse methodNotAllowed(String message, String allowedMethods) {
+        Map<String, String> headers = new HashMap<>(JSON_HEADERS);
+        headers.put("Allow", allowedMethods);
+        return buildResponse(405, Collections.singletonMap("error", message), headers);
+    }
+    
     public static APIGatewayV2HTTPResponse internalServerError(String message) {
         return buildErrorResponse(500, message);
     }
     
     private static APIGatewayV2HTTPResponse buildResponse(int statusCode, Object body) {
-        Map<String, String> headers = new HashMap<>();
-        headers.put("Content-Type", "application/json");
-        headers.put("Access-Control-Allow-Origin", "*");
-        
+        return buildResponse(statusCode, body, JSON_HEADERS);
+    }
+    
+    private static APIGatewayV2HTTPResponse buildResponse(int statusCode, Object body, Map<String, String> headers) {
         String jsonBody = null;
         if (body != null) {
+            long start = System.nanoTime();
             try {
-                jsonBody = OBJECT_MAPPER.writeValueAsString(body);
+                jsonBody = Json.write(body);
             } catch (JsonProcessingException e) {
                 return internalServerError("Failed to serialize response");
+            } finally {
+                RequestMetrics.current().record(RequestMetrics.Phase.SERIALIZATION, System.nanoTime() - start);
             }
         }
         
@@ -61,12 +74,10 @@ public class ResponseBuilder {
     }
     
     private static APIGatewayV2HTTPResponse buildErrorResponse(int statusCode, String message) {
-        Map<String, String> errorBody = new HashMap<>();
-        errorBody.put("error", message);
-        return buildResponse(statusCode, errorBody);
+        return buildResponse(statusCode, Collections.singletonMap("error", message));
     }
     
     public static <T> T parseRequestBody(String body, Class<T> clazz) throws JsonProcessingException {
-        return OBJECT_MAPPER.readValue(body, clazz);
+        return Json.mapper().readValue(body, clazz);
     }
 }
@@ -0,0 +1,40 @@
+package com.phantom.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors shared by the Lambda handler and the standalone server.
+ */
+@Slf4j
+public final class ThreadPools {
+
+    private ThreadPools() {
+    }
+
+    /**
+     * Executor that starts a new thread per task: a virtual thread when the
+     * runtime has them, otherwise a daemon thread from a cached pool. The
+     * service is compiled for Java 17, so the virtual-thread factory is looked
+     * up reflectively.
+     */
+    public static ExecutorService newPerTaskExecutor(String namePrefix) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.debug("Virtual threads unavailable on Java {}, using a cached thread pool for {}",
+                    Runtime.version().feature(), namePrefix);
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, namePrefix + "-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.phantom.handler;
+
+import com.phantom.handler.RouteTable.Match;
+import com.phantom.handler.RouteTable.RouteHandler;
+import com.phantom.handler.RouteTable.Status;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RouteTableTest {
+
+    private static final RouteHandler STUB = (components, event, userId) -> null;
+
+    /** Every modeled route as {method, sample path, operation}. */
+    private static final List<String[]> MODELED_ROUTES = List.of(
+            new String[] {"GET", "/v1/me", "GetUser"},
+            new String[] {"PATCH", "/v1/me", "UpdateUser"},
+            new String[] {"DELETE", "/v1/me", "DeleteUser"},
+            new String[] {"GET", "/v1/ghosts", "ListGhosts"},
+            new String[] {"POST", "/v1/ghosts", "CreateGhost"},
+            new String[] {"GET", "/v1/ghosts/g-123", "GetGhost"},
+            new String[] {"PATCH", "/v1/ghosts/g-123", "UpdateGhost"},
+            new String[] {"GET", "/v1/dashboard/summary", "GetDashboardSummary"},
+            new String[] {"GET", "/v1/bootstrap", "GetBootstrap"},
+            new String[] {"GET", "/v1/achievements", "GetAchievements"},
+            new String[] {"GET", "/v1/streaks", "GetStreaks"},
+            new String[] {"GET", "/v1/market/candles", "GetMarketCandles"},
+            new String[] {"GET", "/v1/market/quote", "GetMarketQuote"},
+            new String[] {"GET", "/v1/market/quotes", "GetMarketQuotes"},
+            new String[] {"GET", "/v1/market/validate", "ValidateTicker"},
+            new String[] {"GET", "/v1/investor-dna", "GetInvestorDNA"},
+            new String[] {"POST", "/v1/batch", "ExecuteBatch"},
+            new String[] {"GET", "/v1/health", "GetHealth"});
+
+    private final RouteTable generated = generatedRoutes();
+
+    @Test
+    void resolvesEveryModeledRoute() {
+        for (String[] route : MODELED_ROUTES) {
+            Match match = generated.match(route[0], route[1]);
+            assertEquals(Status.FOUND, match.status(), route[0] + " " + route[1]);
+            assertEquals(route[2], match.operation().name(), route[0] + " " + route[1]);
+        }
+    }
+
+    @Test
+    void onlyHealthIsPublic() {
+        for (String[] route : MODELED_ROUTES) {
+            Match match = generated.match(route[0], route[1]);
+            assertEquals(!"GetHealth".equals(route[2]), match.operation().authRequired(), route[2]);
+        }
+    }
+
+    @Test
+    void staticRoutesHaveNoPathParameters() {
+        assertNull(generated.match("GET", "/v1/dashboard/summary").pathParameters());
+    }
+
+    @Test
+    void extractsSingleLabel() {
+        Match match = generated.match("PATCH", "/v1/ghosts/g-123");
+
+        assertEquals(Map.of("ghostId", "g-123"), match.pathParameters());
+    }
+
+    @Test
+    void unknownPathsAreNotFound() {
+        assertEquals(Status.NOT_FOUND, generated.match("GET", "/v1/unknown").status());
+        assertEquals(Status.NOT_FOUND, generated.match("GET", "/v1").status());
+        assertEquals(Status.NOT_FOUND, generated.match("GET", "/v1/ghosts/g-123/extra").status());
+        assertEquals(Status.NOT_FOUND, generated.match("GET", "/").status());
+        assertEquals(Status.NOT_FOUND, generated.match("GET", "").status());
+        assertEquals(Status.NOT_FOUND, generated.match("GET", "v1/me").status());
+        assertEquals(Status.NOT_FOUND, generated.match("GET", null).status());
+    }
+
+    @Test
+    void trailingSlashIsNotFound() {
+        assertEquals(Status.NOT_FOUND, generated.match("GET", "/v1/me/").status());
+        assertEquals(Status.NOT_FOUND, generated.match("GET", "/v1/ghosts/g-123/").status());
+    }
+
+    @Test
+    void emptySegmentIsNotFound() {
+        assertEquals(Status.NOT_FOUND, generated.match("GET", "/v1//me").status());
+    }
+
+    @Test
+    void wrongMethodListsAllowedMethods() {
+        Match ghosts = generated.match("DELETE", "/v1/ghosts");
+        assertEquals(Status.METHOD_NOT_ALLOWED, ghosts.status());
+        assertEquals("GET, POST", ghosts.allowedMethods());
+
+        Match me = generated.match("POST", "/v1/me");
+        assertEquals(Status.METHOD_NOT_ALLOWED, me.status());
+        assertEquals("DELETE, GET, PATCH", me.allowedMethods());
+
+        assertEquals("GET, PATCH", generated.match("DELETE", "/v1/ghosts/g-123").allowedMethods());
+    }
+
+    @Test
+    void staticSegmentTakesPrecedenceOverLabel() {
+        RouteTable table = itemRoutes();
+
+        assertEquals("GetLatestItem", table.match("GET", "/items/latest").operation().name());
+        assertNull(table.match("GET", "/items/latest").pathParameters());
+        assertEquals("GetItem", table.match("GET", "/items/42").operation().name());
+        assertEquals(Map.of("itemId", "42"), table.match("GET", "/items/42").pathParameters());
+    }
+
+    @Test
+    void doesNotBacktrackFromStaticSegmentToLabel() {
+        RouteTable table = itemRoutes();
+
+        // "latest" commits to the static branch, which has no "parts" child,
+        // even though {itemId}/parts/{partId} would have matched.
+        assertEquals(Status.NOT_FOUND, table.match("GET", "/items/latest/parts/7").status());
+        assertEquals(Status.FOUND, table.match("GET", "/items/41/parts/7").status());
+    }
+
+    @Test
+    void extractsSeveralLabels() {
+        Match match = itemRoutes().match("GET", "/items/42/parts/p-7");
+
+        assertEquals("GetItemPart", match.operation().name());
+        assertEquals(Map.of("itemId", "42", "partId", "p-7"), match.pathParameters());
+    }
+
+    @Test
+    void staticLookupProbesPastHashCollisions() {
+        // "Aa" and "BB" share a String hash, so one of them sits in a probed slot.
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        Map<String, RouteHandler> handlers = handlers("GetAa", "GetBB");
+        RouteTable table = RouteTable.builder(handlers)
+                .add("GET", "/hash/Aa", "GetAa", true)
+                .add("GET", "/hash/BB", "GetBB", true)
+                .build();
+
+        assertEquals("GetAa", table.match("GET", "/hash/Aa").operation().name());
+        assertEquals("GetBB", table.match("GET", "/hash/BB").operation().name());
+        assertEquals(Status.NOT_FOUND, table.match("GET", "/hash/Ab").status());
+        assertEquals(Status.NOT_FOUND, table.match("GET", "/hash/A").status());
+    }
+
+    @Test
+    void rejectsInvalidRouteSets() {
+        assertThrows(IllegalStateException.class, () -> RouteTable.builder(handlers("GetItem"))
+                .add("GET", "/items/{itemId}", "GetItem", true)
+                .add("GET", "/items/{itemId}", "GetItem", true));
+        assertThrows(IllegalStateException.class, () -> RouteTable.builder(handlers("GetItem", "GetOther"))
+                .add("GET", "/items/{itemId}", "GetItem", true)
+                .add("PATCH", "/items/{id}", "GetOther", true));
+        assertThrows(IllegalStateException.class, () -> RouteTable.builder(handlers())
+                .add("GET", "/items", "GetItems", true));
+        assertThrows(IllegalStateException.class, () -> RouteTable.builder(handlers("GetItem", "Unrouted"))
+                .add("GET", "/items/{itemId}", "GetItem", true)
+                .build());
+    }
+
+    private static RouteTable generatedRoutes() {
+        Map<String, RouteHandler> handlers = new HashMap<>();
+        for (String[] route : MODELED_ROUTES) {
+            handlers.put(route[2], STUB);
+        }
+        RouteTable.Builder builder = RouteTable.builder(handlers);
+        GeneratedRoutes.register(builder);
+        return builder.build();
+    }
+
+    private static RouteTable itemRoutes() {
+        return RouteTable.builder(handlers("GetItem", "GetLatestItem", "GetItemPart"))
+                .add("GET", "/items/{itemId}", "GetItem", true)
+                .add("GET", "/items/latest", "GetLatestItem", true)
+                .add("GET", "/items/{itemId}/parts/{partId}", "GetItemPart", true)
+                .build();
+    }
+
+    private static Map<String, RouteHandler> handlers(String... operations) {
+        Map<String, RouteHandler> handlers = new HashMap<>();
+        for (String operation : operations) {
+            handlers.put(operation, STUB);
+        }
+        return handlers;
+    }
+}
@@ -0,0 +1,85 @@
+package com.phantom.repository;
+
+import com.phantom.model.entity.Ghost;
+import com.phantom.model.entity.PackedGhostAttributes;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GhostAttributeCodecTest {
+
+    private static final Map<String, Object> QUOTE = Map.of(
+            "symbol", "AAPL",
+            "price", 187.25,
+            "volume", 52_000_000L,
+            "bid", 187,
+            "levels", List.of(186, 187.5));
+
+    @Test
+    void roundTripsQuoteOnly() {
+        PackedGhostAttributes attributes = decode(GhostAttributeCodec.encode(QUOTE, null));
+
+        assertEquals("AAPL", attributes.loggedQuote().get("symbol"));
+        assertEquals(187.25, attributes.loggedQuote().get("price"));
+        assertNull(attributes.noteText());
+    }
+
+    @Test
+    void roundTripsQuoteAndLongNote() {
+        String note = "Waited for a pullback that never came. ".repeat(8);
+        PackedGhostAttributes attributes = decode(GhostAttributeCodec.encode(QUOTE, note));
+
+        assertTrue(note.length() >= 256);
+        assertEquals(note, attributes.noteText());
+        assertEquals("AAPL", attributes.loggedQuote().get("symbol"));
+    }
+
+    @Test
+    void returnsEveryNumberAsDouble() {
+        Map<String, Object> quote = decode(GhostAttributeCodec.encode(QUOTE, null)).loggedQuote();
+
+        assertEquals(187.25, quote.get("price"));
+        assertEquals(52_000_000.0, quote.get("volume"));
+        assertEquals(187.0, quote.get("bid"));
+        assertEquals(List.of(186.0, 187.5), quote.get("levels"));
+    }
+
+    @Test
+    void plainNoteTakesPrecedenceOverPackedNote() {
+        String packedNote = "x".repeat(300);
+        Ghost ghost = new Ghost();
+        ghost.setNoteText("edited after packing");
+        ghost.setPacked(decode(GhostAttributeCodec.encode(QUOTE, packedNote)));
+
+        assertEquals("edited after packing", ghost.getNoteText());
+        assertEquals("AAPL", ghost.getLoggedQuote().get("symbol"));
+    }
+
+    @Test
+    void rejectsUnknownFormatVersion() {
+        byte[] bytes = GhostAttributeCodec.encode(QUOTE, null).b().asByteArray();
+        bytes[0] = 2;
+        PackedGhostAttributes attributes = GhostAttributeCodec.decodeLazily(SdkBytes.fromByteArray(bytes));
+
+        assertThrows(IllegalStateException.class, attributes::loggedQuote);
+    }
+
+    @Test
+    void rejectsEmptyAttribute() {
+        PackedGhostAttributes attributes = GhostAttributeCodec.decodeLazily(SdkBytes.fromByteArray(new byte[0]));
+
+        assertThrows(IllegalStateException.class, attributes::noteText);
+    }
+
+    private static PackedGhostAttributes decode(AttributeValue packed) {
+        return GhostAttributeCodec.decodeLazily(packed.b());
+    }
+}
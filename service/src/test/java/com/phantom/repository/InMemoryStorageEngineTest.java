@@ -0,0 +1,328 @@
+package com.phantom.repository;
+
+import com.phantom.repository.InMemoryStorageEngine.IndexDefinition;
+import com.phantom.repository.InMemoryStorageEngine.TableDefinition;
+import com.phantom.repository.StorageEngine.QueryResult;
+import com.phantom.repository.StorageEngine.WriteOp;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryStorageEngineTest {
+
+    private static final String TABLE = "items";
+    private static final String INDEX = "GhostIdIndex";
+    private static final String USER = "USER#alice";
+
+    @TempDir
+    Path tempDir;
+
+    private InMemoryStorageEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = newEngine(null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.close();
+    }
+
+    @Test
+    void queriesPrefixInDescendingOrderAcrossPages() {
+        for (int i = 1; i <= 5; i++) {
+            put(item(USER, "GHOST#00" + i));
+        }
+        put(item(USER, "PROFILE"));
+        put(item(USER, "DASH#SUMMARY"));
+        put(item("USER#bob", "GHOST#009"));
+
+        QueryResult first = engine.query(TABLE, USER, "GHOST#", 2, null).join();
+        assertEquals(List.of("GHOST#005", "GHOST#004"), sortKeys(first));
+        assertEquals(DynamoDbRepository.key(USER, "GHOST#004"), first.lastEvaluatedKey());
+
+        QueryResult second = engine.query(TABLE, USER, "GHOST#", 2, first.lastEvaluatedKey()).join();
+        assertEquals(List.of("GHOST#003", "GHOST#002"), sortKeys(second));
+
+        QueryResult last = engine.query(TABLE, USER, "GHOST#", 2, second.lastEvaluatedKey()).join();
+        assertEquals(List.of("GHOST#001"), sortKeys(last));
+        assertNull(last.lastEvaluatedKey());
+    }
+
+    @Test
+    void fullLastPageHasNoCursor() {
+        for (int i = 1; i <= 4; i++) {
+            put(item(USER, "GHOST#00" + i));
+        }
+
+        QueryResult first = engine.query(TABLE, USER, "GHOST#", 2, null).join();
+        QueryResult second = engine.query(TABLE, USER, "GHOST#", 2, first.lastEvaluatedKey()).join();
+
+        assertEquals(List.of("GHOST#002", "GHOST#001"), sortKeys(second));
+        assertNull(second.lastEvaluatedKey());
+    }
+
+    @Test
+    void queryWithoutPrefixReadsWholePartition() {
+        put(item(USER, "GHOST#001"));
+        put(item(USER, "PROFILE"));
+
+        assertEquals(List.of("PROFILE", "GHOST#001"), sortKeys(engine.query(TABLE, USER, null, 10, null).join()));
+        assertTrue(engine.query(TABLE, "USER#nobody", null, 10, null).join().items().isEmpty());
+    }
+
+    @Test
+    void queryKeysReturnsOnlyKeys() {
+        Map<String, AttributeValue> ghost = item(USER, "GHOST#001");
+        ghost.put("note", s("long note"));
+        put(ghost);
+        put(item(USER, "PROFILE"));
+
+        QueryResult first = engine.queryKeys(TABLE, USER, null, 1, null).join();
+        assertEquals(List.of(DynamoDbRepository.key(USER, "PROFILE")), first.items());
+
+        QueryResult second = engine.queryKeys(TABLE, USER, null, 1, first.lastEvaluatedKey()).join();
+        assertEquals(List.of(DynamoDbRepository.key(USER, "GHOST#001")), second.items());
+        assertNull(second.lastEvaluatedKey());
+    }
+
+    @Test
+    void expiredItemsAreInvisibleToReads() {
+        Map<String, AttributeValue> expired = item(USER, "GHOST#001");
+        expired.put("expiresAt", n(nowEpochSeconds() - 10));
+        expired.put("ghostId", s("g-1"));
+        put(expired);
+        Map<String, AttributeValue> live = item(USER, "GHOST#002");
+        live.put("expiresAt", n(nowEpochSeconds() + 3_600));
+        put(live);
+
+        assertNull(engine.getItem(TABLE, DynamoDbRepository.key(USER, "GHOST#001")).join());
+        assertEquals(live, engine.getItem(TABLE, DynamoDbRepository.key(USER, "GHOST#002")).join());
+        assertEquals(List.of("GHOST#002"), sortKeys(engine.query(TABLE, USER, "GHOST#", 10, null).join()));
+        assertEquals(List.of(live), engine.batchGet(TABLE, List.of(
+                DynamoDbRepository.key(USER, "GHOST#001"), DynamoDbRepository.key(USER, "GHOST#002"))).join().items());
+        assertNull(engine.getIndexItem(TABLE, INDEX, "ghostId", "g-1", "pk", USER).join());
+    }
+
+    @Test
+    void expiredItemsAreInvisibleToConditions() {
+        Map<String, AttributeValue> expired = item(USER, "GHOST#001");
+        expired.put("expiresAt", n(nowEpochSeconds() - 10));
+        expired.put("note", s("stale"));
+        put(expired);
+
+        ConditionalCheckFailedException failed = conditionFailure(engine.updateItem(TABLE,
+                ItemUpdate.forKey(USER, "GHOST#001").set("note", "fresh")
+                        .condition(Condition.attributeExists("pk")), true));
+        assertFalse(failed.hasItem());
+
+        Map<String, AttributeValue> created = engine.updateItem(TABLE,
+                ItemUpdate.forKey(USER, "GHOST#001").set("status", "open")
+                        .condition(Condition.attributeNotExists("pk")), true).join();
+        // The expired item is treated as absent, so none of its attributes carry over.
+        assertEquals(Map.of("pk", s(USER), "sk", s("GHOST#001"), "status", s("open")), created);
+    }
+
+    @Test
+    void failedConditionalUpdateReturnsOldItem() {
+        Map<String, AttributeValue> stored = item(USER, "GHOST#001");
+        stored.put("version", n(3));
+        put(stored);
+
+        ConditionalCheckFailedException failed = conditionFailure(engine.updateItem(TABLE,
+                ItemUpdate.forKey(USER, "GHOST#001").add("version", 1)
+                        .condition(Condition.equalTo("version", n(2))), true));
+
+        assertEquals(stored, failed.item());
+        assertEquals(stored, engine.getItem(TABLE, DynamoDbRepository.key(USER, "GHOST#001")).join());
+    }
+
+    @Test
+    void failedConditionalUpdateWithoutReturnValuesCarriesNoItem() {
+        Map<String, AttributeValue> stored = item(USER, "GHOST#001");
+        stored.put("version", n(3));
+        put(stored);
+
+        ConditionalCheckFailedException failed = conditionFailure(engine.updateItem(TABLE,
+                ItemUpdate.forKey(USER, "GHOST#001").add("version", 1)
+                        .condition(Condition.equalTo("version", n(2))), false));
+
+        assertFalse(failed.hasItem());
+    }
+
+    @Test
+    void updateCreatesMissingItemAndReturnsNewImage() {
+        Map<String, AttributeValue> updated = engine.updateItem(TABLE,
+                ItemUpdate.forKey(USER, "DASH#SUMMARY").add("ghostCountTotal", 1), true).join();
+
+        assertEquals(Map.of("pk", s(USER), "sk", s("DASH#SUMMARY"), "ghostCountTotal", n(1)), updated);
+        assertNull(engine.updateItem(TABLE,
+                ItemUpdate.forKey(USER, "DASH#SUMMARY").add("ghostCountTotal", 1), false).join());
+        assertEquals(n(2), engine.getItem(TABLE, DynamoDbRepository.key(USER, "DASH#SUMMARY")).join()
+                .get("ghostCountTotal"));
+    }
+
+    @Test
+    void failedTransactionReportsReasonPerWriteAndAppliesNothing() {
+        Map<String, AttributeValue> summary = item(USER, "DASH#SUMMARY");
+        summary.put("lastGhostAtEpochMs", n(2_000));
+        put(summary);
+
+        Map<String, AttributeValue> ghost = item(USER, "GHOST#001");
+        CompletableFuture<Void> result = engine.transactWrite(TABLE, List.of(
+                WriteOp.put(ghost),
+                WriteOp.update(ItemUpdate.forKey(USER, "DASH#SUMMARY")
+                        .set("lastGhostAtEpochMs", n(1_000))
+                        .condition(Condition.lessThan("lastGhostAtEpochMs", n(1_000)))),
+                WriteOp.update(ItemUpdate.forKey(USER, "PROFILE").set("plan", "pro")
+                        .condition(Condition.attributeNotExists("pk")))));
+
+        CompletionException thrown = assertThrows(CompletionException.class, result::join);
+        TransactionCanceledException cancelled = assertInstanceOf(TransactionCanceledException.class, thrown.getCause());
+        assertEquals(List.of("None", "ConditionalCheckFailed", "None"), cancelled.cancellationReasons().stream()
+                .map(CancellationReason::code)
+                .collect(Collectors.toList()));
+
+        assertNull(engine.getItem(TABLE, DynamoDbRepository.key(USER, "GHOST#001")).join());
+        assertNull(engine.getItem(TABLE, DynamoDbRepository.key(USER, "PROFILE")).join());
+        assertEquals(summary, engine.getItem(TABLE, DynamoDbRepository.key(USER, "DASH#SUMMARY")).join());
+    }
+
+    @Test
+    void successfulTransactionAppliesEveryWrite() {
+        engine.transactWrite(TABLE, List.of(
+                WriteOp.put(item(USER, "GHOST#001")),
+                WriteOp.update(ItemUpdate.forKey("USER#bob", "DASH#SUMMARY").add("ghostCountTotal", 1)))).join();
+
+        assertEquals(item(USER, "GHOST#001"), engine.getItem(TABLE, DynamoDbRepository.key(USER, "GHOST#001")).join());
+        assertEquals(n(1), engine.getItem(TABLE, DynamoDbRepository.key("USER#bob", "DASH#SUMMARY")).join()
+                .get("ghostCountTotal"));
+    }
+
+    @Test
+    void indexEntryFollowsRewrittenItem() {
+        Map<String, AttributeValue> ghost = item(USER, "GHOST#001");
+        ghost.put("ghostId", s("g-1"));
+        put(ghost);
+        assertEquals(ghost, indexItem("g-1"));
+
+        Map<String, AttributeValue> rewritten = item(USER, "GHOST#001");
+        rewritten.put("ghostId", s("g-2"));
+        put(rewritten);
+        assertNull(indexItem("g-1"));
+        assertEquals(rewritten, indexItem("g-2"));
+
+        engine.updateItem(TABLE, ItemUpdate.forKey(USER, "GHOST#001").remove("ghostId"), false).join();
+        assertNull(indexItem("g-2"));
+
+        engine.updateItem(TABLE, ItemUpdate.forKey(USER, "GHOST#001").set("ghostId", "g-3"), false).join();
+        assertEquals("g-3", indexItem("g-3").get("ghostId").s());
+
+        engine.deleteItem(TABLE, DynamoDbRepository.key(USER, "GHOST#001")).join();
+        assertNull(indexItem("g-3"));
+    }
+
+    @Test
+    void unknownTableOrIndexFails() {
+        CompletionException table = assertThrows(CompletionException.class,
+                () -> engine.getItem("missing", DynamoDbRepository.key(USER, "PROFILE")).join());
+        assertInstanceOf(ResourceNotFoundException.class, table.getCause());
+
+        CompletionException index = assertThrows(CompletionException.class,
+                () -> engine.getIndexItem(TABLE, INDEX, "ticker", "AAPL", "pk", USER).join());
+        assertInstanceOf(ResourceNotFoundException.class, index.getCause());
+    }
+
+    @Test
+    void snapshotRoundTripsEveryAttributeType() {
+        Path snapshot = tempDir.resolve("storage.json");
+        Map<String, AttributeValue> stored = item(USER, "GHOST#001");
+        stored.put("ghostId", s("g-1"));
+        stored.put("price", n("187.25"));
+        stored.put("flag", AttributeValue.builder().bool(true).build());
+        stored.put("nothing", AttributeValue.builder().nul(true).build());
+        stored.put("packed", AttributeValue.builder().b(SdkBytes.fromByteArray(new byte[] {1, 0, -1, 42})).build());
+        stored.put("tags", AttributeValue.builder().ss("fomo", "fear").build());
+        stored.put("levels", AttributeValue.builder().ns("1", "2.5").build());
+        stored.put("history", AttributeValue.builder().l(
+                s("first"),
+                n(2),
+                AttributeValue.builder().m(Map.of("nested", s("value"))).build()).build());
+        stored.put("quote", AttributeValue.builder().m(Map.of(
+                "symbol", s("AAPL"),
+                "bars", AttributeValue.builder().l(n(1), n(2)).build())).build());
+
+        InMemoryStorageEngine writer = newEngine(snapshot);
+        writer.putItem(TABLE, stored).join();
+        writer.close();
+
+        InMemoryStorageEngine reader = newEngine(snapshot);
+        try {
+            assertEquals(stored, reader.getItem(TABLE, DynamoDbRepository.key(USER, "GHOST#001")).join());
+            assertEquals(stored, reader.getIndexItem(TABLE, INDEX, "ghostId", "g-1", "pk", USER).join());
+        } finally {
+            reader.close();
+        }
+    }
+
+    private InMemoryStorageEngine newEngine(Path snapshotPath) {
+        return new InMemoryStorageEngine(List.of(new TableDefinition(TABLE, "expiresAt",
+                List.of(new IndexDefinition(INDEX, "ghostId", "pk")))), snapshotPath);
+    }
+
+    private void put(Map<String, AttributeValue> item) {
+        engine.putItem(TABLE, item).join();
+    }
+
+    private Map<String, AttributeValue> indexItem(String ghostId) {
+        return engine.getIndexItem(TABLE, INDEX, "ghostId", ghostId, "pk", USER).join();
+    }
+
+    private static ConditionalCheckFailedException conditionFailure(CompletableFuture<?> result) {
+        CompletionException thrown = assertThrows(CompletionException.class, result::join);
+        return assertInstanceOf(ConditionalCheckFailedException.class, thrown.getCause());
+    }
+
+    private static List<String> sortKeys(QueryResult result) {
+        return result.items().stream().map(item -> item.get("sk").s()).collect(Collectors.toList());
+    }
+
+    private static Map<String, AttributeValue> item(String pk, String sk) {
+        return new HashMap<>(DynamoDbRepository.key(pk, sk));
+    }
+
+    private static AttributeValue s(String value) {
+        return AttributeValue.builder().s(value).build();
+    }
+
+    private static AttributeValue n(Object value) {
+        return AttributeValue.builder().n(value.toString()).build();
+    }
+
+    private static long nowEpochSeconds() {
+        return System.currentTimeMillis() / 1000;
+    }
+}
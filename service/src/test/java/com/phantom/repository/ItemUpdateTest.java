@@ -0,0 +1,200 @@
+package com.phantom.repository;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The in-memory engine applies an {@link ItemUpdate} through its recorded
+ * mutations while DynamoDB evaluates its expression text, so both are checked
+ * against each other here.
+ */
+class ItemUpdateTest {
+
+    private static final Pattern CLAUSE = Pattern.compile("(SET|ADD|REMOVE) (.+?)(?= (?:SET|ADD|REMOVE) |$)");
+    private static final Pattern SET_ACTION =
+            Pattern.compile("(#n\\d+) = (?:if_not_exists\\((#n\\d+), (:v\\d+)\\)|(:v\\d+))");
+    private static final Pattern ADD_ACTION = Pattern.compile("(#n\\d+) (:v\\d+)");
+
+    private static final String PK = "USER#alice";
+    private static final String SK = "DASH#SUMMARY";
+
+    @Test
+    void mutationsMatchExpressionOnMissingItem() {
+        ItemUpdate update = summaryUpdate();
+
+        assertEquals("SET #n0 = if_not_exists(#n0, :v0), #n3 = :v3 ADD #n1 :v1, #n2 :v2 REMOVE #n4",
+                update.updateExpression());
+        assertMatchesExpression(update, null);
+        assertEquals(Map.of(
+                "pk", s(PK),
+                "sk", s(SK),
+                "entityType", s("DASH_SUMMARY"),
+                "ghostCountTotal", n("1"),
+                "ghostCount30d", n("2.5"),
+                "lastGhostAtEpochMs", n("1700000000000")), update.applyTo(null));
+    }
+
+    @Test
+    void mutationsMatchExpressionOnExistingItem() {
+        Map<String, AttributeValue> current = new HashMap<>(DynamoDbRepository.key(PK, SK));
+        current.put("entityType", s("LEGACY"));
+        current.put("ghostCountTotal", n("41"));
+        current.put("ghostCount30d", n("0.5"));
+        current.put("lastGhostAtEpochMs", n("1600000000000"));
+        current.put("staleFlag", AttributeValue.builder().bool(true).build());
+        current.put("untouched", s("kept"));
+        Map<String, AttributeValue> before = new HashMap<>(current);
+
+        ItemUpdate update = summaryUpdate();
+        assertMatchesExpression(update, current);
+
+        Map<String, AttributeValue> updated = update.applyTo(current);
+        assertEquals(s("LEGACY"), updated.get("entityType"));
+        assertEquals(n("42"), updated.get("ghostCountTotal"));
+        assertEquals(n("3.0"), updated.get("ghostCount30d"));
+        assertEquals(n("1700000000000"), updated.get("lastGhostAtEpochMs"));
+        assertFalse(updated.containsKey("staleFlag"));
+        assertEquals(s("kept"), updated.get("untouched"));
+        assertEquals(before, current);
+    }
+
+    @Test
+    void placeholdersAreSharedWithCondition() {
+        AttributeValue createdAt = n("1700000000000");
+        ItemUpdate update = ItemUpdate.forKey(PK, SK)
+                .set("lastGhostAtEpochMs", createdAt)
+                .condition(Condition.attributeNotExists("lastGhostAtEpochMs")
+                        .or(Condition.lessThan("lastGhostAtEpochMs", createdAt)));
+
+        assertEquals("SET #n0 = :v0", update.updateExpression());
+        assertEquals("(attribute_not_exists(#n0)) OR (#n0 < :v1)", update.conditionExpression());
+        assertEquals(Map.of("#n0", "lastGhostAtEpochMs"), update.expressionAttributeNames());
+        assertEquals(Map.of(":v0", createdAt, ":v1", createdAt), update.expressionAttributeValues());
+    }
+
+    @Test
+    void removeOnlyUpdateHasNoValues() {
+        ItemUpdate update = ItemUpdate.forKey(PK, SK).remove("note");
+
+        assertEquals("REMOVE #n0", update.updateExpression());
+        assertNull(update.expressionAttributeValues());
+        assertMatchesExpression(update, Map.of("pk", s(PK), "sk", s(SK), "note", s("x")));
+    }
+
+    @Test
+    void updateWithoutActionsIsRejected() {
+        assertThrows(IllegalStateException.class, () -> ItemUpdate.forKey(PK, SK).updateExpression());
+    }
+
+    @Test
+    void conditionsEvaluateLikeDynamoDb() {
+        Map<String, AttributeValue> item = Map.of("pk", s(PK), "version", n("9"), "plan", s("free"));
+
+        assertTrue(Condition.attributeExists("version").test(item));
+        assertFalse(Condition.attributeExists("version").test(null));
+        assertTrue(Condition.attributeNotExists("note").test(item));
+        assertTrue(Condition.attributeNotExists("pk").test(null));
+
+        // Numbers compare numerically, not as strings.
+        assertTrue(Condition.lessThan("version", n("10")).test(item));
+        assertTrue(Condition.equalTo("version", n("9.0")).test(item));
+        assertTrue(Condition.lessThan("plan", s("pro")).test(item));
+
+        // Comparing different types, or a missing attribute, is false.
+        assertFalse(Condition.equalTo("version", s("9")).test(item));
+        assertFalse(Condition.lessThan("note", n("1")).test(item));
+        assertFalse(Condition.lessThan("version", n("1")).test(null));
+
+        assertTrue(Condition.attributeNotExists("note").or(Condition.lessThan("version", n("1"))).test(item));
+        assertFalse(Condition.attributeExists("note").and(Condition.lessThan("version", n("10"))).test(item));
+    }
+
+    @Test
+    void updateWithoutConditionAlwaysHolds() {
+        assertTrue(ItemUpdate.forKey(PK, SK).set("plan", "pro").conditionHolds(null));
+        assertFalse(ItemUpdate.forKey(PK, SK).set("plan", "pro")
+                .condition(Condition.attributeExists("pk")).conditionHolds(null));
+    }
+
+    private static ItemUpdate summaryUpdate() {
+        return ItemUpdate.forKey(PK, SK)
+                .setIfAbsent("entityType", s("DASH_SUMMARY"))
+                .add("ghostCountTotal", 1)
+                .add("ghostCount30d", new BigDecimal("2.5"))
+                .set("lastGhostAtEpochMs", n("1700000000000"))
+                .remove("staleFlag");
+    }
+
+    private static void assertMatchesExpression(ItemUpdate update, Map<String, AttributeValue> current) {
+        assertEquals(evaluate(update, current), update.applyTo(current));
+    }
+
+    /**
+     * Applies the update expression the way DynamoDB does, covering the subset
+     * {@link ItemUpdate} can produce. Every right-hand side reads the item as
+     * it was before the update.
+     */
+    private static Map<String, AttributeValue> evaluate(ItemUpdate update, Map<String, AttributeValue> current) {
+        Map<String, String> names = update.expressionAttributeNames();
+        Map<String, AttributeValue> values = update.expressionAttributeValues();
+        Map<String, AttributeValue> before = current != null ? current : Map.of();
+        Map<String, AttributeValue> item = current != null ? new HashMap<>(current) : new HashMap<>(update.key());
+
+        Matcher clause = CLAUSE.matcher(update.updateExpression());
+        while (clause.find()) {
+            for (String action : clause.group(2).split(", (?=#)")) {
+                switch (clause.group(1)) {
+                    case "SET": {
+                        Matcher set = matchWhole(SET_ACTION, action);
+                        String attribute = names.get(set.group(1));
+                        if (set.group(2) != null) {
+                            AttributeValue existing = before.get(names.get(set.group(2)));
+                            item.put(attribute, existing != null ? existing : values.get(set.group(3)));
+                        } else {
+                            item.put(attribute, values.get(set.group(4)));
+                        }
+                        break;
+                    }
+                    case "ADD": {
+                        Matcher add = matchWhole(ADD_ACTION, action);
+                        String attribute = names.get(add.group(1));
+                        AttributeValue existing = before.get(attribute);
+                        BigDecimal base = existing != null ? new BigDecimal(existing.n()) : BigDecimal.ZERO;
+                        BigDecimal sum = base.add(new BigDecimal(values.get(add.group(2)).n()));
+                        item.put(attribute, n(sum.toPlainString()));
+                        break;
+                    }
+                    default:
+                        item.remove(names.get(action));
+                }
+            }
+        }
+        return item;
+    }
+
+    private static Matcher matchWhole(Pattern pattern, String action) {
+        Matcher matcher = pattern.matcher(action);
+        assertTrue(matcher.matches(), "Unexpected action " + action);
+        return matcher;
+    }
+
+    private static AttributeValue s(String value) {
+        return AttributeValue.builder().s(value).build();
+    }
+
+    private static AttributeValue n(String value) {
+        return AttributeValue.builder().n(value).build();
+    }
+}
@@ -0,0 +1,80 @@
+package com.phantom.repository;
+
+import com.phantom.util.Constants;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PageCursorsTest {
+
+    private static final String ALICE = Constants.PK_USER_PREFIX + "alice";
+    private static final String BOB = Constants.PK_USER_PREFIX + "bob";
+
+    @Test
+    void roundTripsLastEvaluatedKey() {
+        Map<String, AttributeValue> key = lastKey(ALICE, Constants.SK_GHOST_PREFIX + "0001");
+
+        assertEquals(key, PageCursors.decode(ALICE, PageCursors.encode(ALICE, key)));
+    }
+
+    @Test
+    void emptyCursorMeansFirstPage() {
+        assertNull(PageCursors.encode(ALICE, Map.of()));
+        assertNull(PageCursors.decode(ALICE, null));
+        assertNull(PageCursors.decode(ALICE, ""));
+    }
+
+    @Test
+    void rejectsTamperedPayload() {
+        String token = PageCursors.encode(ALICE, lastKey(ALICE, Constants.SK_GHOST_PREFIX + "0001"));
+        String signature = token.substring(token.indexOf('.') + 1);
+        String forged = "{\"pk\":\"" + ALICE + "\",\"sk\":\"" + Constants.SK_GHOST_PREFIX + "9999\"}";
+        String tampered = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(forged.getBytes(StandardCharsets.UTF_8)) + "." + signature;
+
+        assertThrows(IllegalArgumentException.class, () -> PageCursors.decode(ALICE, tampered));
+    }
+
+    @Test
+    void rejectsTamperedSignature() {
+        String token = PageCursors.encode(ALICE, lastKey(ALICE, Constants.SK_GHOST_PREFIX + "0001"));
+        int dot = token.indexOf('.');
+        char first = token.charAt(dot + 1);
+        String tampered = token.substring(0, dot + 1) + (first == 'A' ? 'B' : 'A') + token.substring(dot + 2);
+
+        assertThrows(IllegalArgumentException.class, () -> PageCursors.decode(ALICE, tampered));
+    }
+
+    @Test
+    void rejectsCursorReplayedAgainstAnotherPartition() {
+        String token = PageCursors.encode(ALICE, lastKey(ALICE, Constants.SK_GHOST_PREFIX + "0001"));
+
+        assertThrows(IllegalArgumentException.class, () -> PageCursors.decode(BOB, token));
+    }
+
+    @Test
+    void rejectsSignedCursorForAnotherPartitionsKey() {
+        // Signed for Bob's partition, but the start key points into Alice's.
+        String token = PageCursors.encode(BOB, lastKey(ALICE, Constants.SK_GHOST_PREFIX + "0001"));
+
+        assertThrows(IllegalArgumentException.class, () -> PageCursors.decode(BOB, token));
+    }
+
+    @Test
+    void rejectsMalformedToken() {
+        assertThrows(IllegalArgumentException.class, () -> PageCursors.decode(ALICE, "not-a-cursor"));
+        assertThrows(IllegalArgumentException.class, () -> PageCursors.decode(ALICE, "%%%.%%%"));
+    }
+
+    private static Map<String, AttributeValue> lastKey(String pk, String sk) {
+        return Map.of(Constants.ATTR_PK, AttributeValue.builder().s(pk).build(),
+                Constants.ATTR_SK, AttributeValue.builder().s(sk).build());
+    }
+}